@@ -3,14 +3,17 @@ package DAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Appointment;
+import model.AppointmentStore;
 import model.Globals;
 import model.TimeAndDate;
-import model.Tools;
 
 import java.sql.*;
 import java.time.*;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -19,6 +22,8 @@ import java.util.List;
  */
 public class AppointmentQuery {
 
+    private static final String insertSql = "INSERT INTO appointments values(?,?,?,?,?,?,?,?,?,?,?,?,?,?);";
+
 
     /**
      * Retrieves all appointments IDs from database.
@@ -26,197 +31,296 @@ public class AppointmentQuery {
      */
     public static List<Integer> fetchAllId() throws SQLException {
 
-        String sql = "SELECT Customer_Id FROM appointments;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it
+        String sql = "SELECT Appointment_ID FROM appointments;";
+        return JDBC.query(sql, ps -> ps.setFetchSize(Integer.MIN_VALUE), rs -> {  // a result set is essentially an entire table, so we can fetch values from it
 
-        List<Integer> allAppointmentId = new ArrayList<>();
+            List<Integer> allAppointmentId = new ArrayList<>();
 
-        while(rs.next()){  //rs will read line by line through the results returned
+            while(rs.next()){  //rs will read line by line through the results returned
 
-            // fetch appointment_id and add it to list containing all appointments
-            allAppointmentId.add(rs.getInt("Customer_ID"));
-        }
+                // fetch appointment_id and add it to list containing all appointments
+                allAppointmentId.add(rs.getInt("Appointment_ID"));
+            }
 
-        return allAppointmentId;
+            return allAppointmentId;
+        });
     }
 
 
     /**
      * Retrieves all appointments from database, creates local appointment objects.
-     * Adds appointments to a static list located in Appointments class.
+     * Contact names are joined in the same query, so only one round trip is made.
+     * The appointments are only returned, the caller adds them to Appointment.allAppointments on the JavaFX application thread.
+     * @return All appointments, ordered by start time.
      */
-    public static void fetchAllAppointments() throws SQLException {
-
-
-        String sql = "SELECT * FROM appointments ORDER BY Start;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        int appointmentId;
-        int customerId;
-        int contactId;
-        int userId;
-        String title;
-        String description;
-        String location;
-        String type;
-        String createdBy;
-        String lastUpdatedBy;
-        LocalDateTime startDate;
-        LocalDateTime endDate;
-        LocalDateTime creationDate;
-        LocalDateTime lastUpdate;
-
-
-        while(rs.next()){  //rs will read line by line through the results returned
-
-            // fetch data from current row
-            appointmentId = rs.getInt("Appointment_ID");
-            customerId = rs.getInt("Customer_ID");
-            contactId = rs.getInt("Contact_ID");
-            userId = rs.getInt("User_ID");
-            title = rs.getString("Title");
-            description = rs.getString("Description");
-            location = rs.getString("Location");
-            type = rs.getString("Type");
-            createdBy = rs.getString("Created_By");
-            lastUpdatedBy = rs.getString("Last_Updated_By");
-            startDate = rs.getTimestamp("Start").toLocalDateTime();  // This will convert UTC to local time
-            endDate = rs.getTimestamp("End").toLocalDateTime();
-            creationDate = rs.getTimestamp("Create_Date").toLocalDateTime();
-            lastUpdate = rs.getTimestamp("Last_Update").toLocalDateTime();
-
-            Appointment newAppointment = new Appointment(startDate, endDate, customerId, appointmentId, contactId, title, description, location, type, creationDate, lastUpdate, createdBy, lastUpdatedBy, userId);
-
-            Appointment.allAppointments.add(newAppointment);
-        }
+    public static List<Appointment> fetchAllAppointments() throws SQLException {
+
+
+        String sql = "SELECT app.*, con.Contact_Name " +
+                     "FROM appointments app " +
+                     "LEFT JOIN contacts con " +
+                     "ON app.Contact_ID = con.Contact_ID " +
+                     "ORDER BY app.Start;";
+
+        // Rows are streamed one at a time instead of buffering the whole table in the driver
+        return JDBC.query(sql, ps -> ps.setFetchSize(Integer.MIN_VALUE), rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
+
+            List<Appointment> results = new ArrayList<>();
+            AppointmentStore rows = new AppointmentStore();  // One set of columns for all rows, they are copied into the shared store once added to the list
+
+            while(rs.next()){  //rs will read line by line through the results returned
+                results.add(readAppointment(rs, rows));
+            }
+
+            return results;
+        });
     }
 
 
     /**
-     * Checks the database to see if an appointment ID exists.
-     * @param id The ID to be checked.
-     * @return True if appointment ID already exists.
+     * Retrieves appointments created or updated since a point in time.
+     * @param since Epoch milliseconds, appointments with a later last update are returned.
+     * @return Appointments updated since given time.
      */
-    public static boolean checkAppointmentIdExists(int id) throws SQLException {
-
-        String sql = "SELECT Appointment_ID FROM appointments ORDER BY Start;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+    public static List<Appointment> fetchAppointmentsUpdatedSince(long since) throws SQLException {
 
-        List<Integer> allAppointmentId = new ArrayList<>();
+        String sql = "SELECT app.*, con.Contact_Name " +
+                     "FROM appointments app " +
+                     "LEFT JOIN contacts con " +
+                     "ON app.Contact_ID = con.Contact_ID " +
+                     "WHERE app.Last_Update > ?;";
 
-        while(rs.next()){  // rs will read line by line through the results returned
+        return JDBC.query(sql, ps -> ps.setTimestamp(1, TimeAndDate.toTimestamp(since)), rs -> {
 
-            // fetch appointment_id and add it to list containing all appointments
-            allAppointmentId.add(rs.getInt("Appointment_ID"));
-        }
+            List<Appointment> results = new ArrayList<>();
+            AppointmentStore rows = new AppointmentStore();
 
+            while(rs.next()){
+                results.add(readAppointment(rs, rows));
+            }
 
-        return allAppointmentId.contains(id);
+            return results;
+        });
     }
 
 
     /**
-     * Updates an appointment in database, by overwriting old appointment with new one.
-     * @param newAppointment The new appointment to be written to database.
-     * @param appointmentId The ID of the appointment to be overwritten.
+     * @return Amount of appointments in database.
      */
-    public static void updateAppointment(Appointment newAppointment, int appointmentId) throws SQLException {
-
-        String sql = "DELETE FROM Appointments WHERE Appointment_Id = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, appointmentId);
+    public static int countAppointments() throws SQLException {
+        return JDBC.query("SELECT COUNT(*) FROM appointments;", null, rs -> rs.next() ? rs.getInt(1) : 0);
+    }
 
-        ps.executeUpdate();
 
-        writeAppointment(newAppointment);
+    /**
+     * Creates an appointment from the current row of a result set.
+     * The row must contain the appointment columns along with the Contact_Name column.
+     * @param rs Result set positioned on an appointment row.
+     * @param rows Store the appointment is added to.
+     * @return Appointment matching the row.
+     */
+    private static Appointment readAppointment(ResultSet rs, AppointmentStore rows) throws SQLException {
+
+        // fetch data from current row
+        int appointmentId = rs.getInt("Appointment_ID");
+        int customerId = rs.getInt("Customer_ID");
+        int contactId = rs.getInt("Contact_ID");
+        int userId = rs.getInt("User_ID");
+        String title = rs.getString("Title");
+        String description = rs.getString("Description");
+        String location = rs.getString("Location");
+        String type = rs.getString("Type");
+        String contactName = rs.getString("Contact_Name");
+        String createdBy = rs.getString("Created_By");
+        String lastUpdatedBy = rs.getString("Last_Updated_By");
+        long startDate = TimeAndDate.toEpochMilli(rs.getTimestamp("Start"));  // Epoch time in UTC, converted to local time only for display
+        long endDate = TimeAndDate.toEpochMilli(rs.getTimestamp("End"));
+        long creationDate = TimeAndDate.toEpochMilli(rs.getTimestamp("Create_Date"));
+        long lastUpdate = TimeAndDate.toEpochMilli(rs.getTimestamp("Last_Update"));
+
+        if (contactName == null) {contactName = "N/A";}  // Contact no longer exists
+
+        return rows.add(startDate, endDate, customerId, appointmentId, contactId, contactName, title, description, location, type, creationDate, lastUpdate, createdBy, lastUpdatedBy, userId);
     }
 
+
     /**
-     * Writes new appointment to database.
-     * @param appointment The appointment object to be written to database.
+     * Updates many appointments in one transaction, only columns that changed are written.
+     * An update is only applied if the row still has the last update time of the original,
+     * otherwise someone else changed or deleted the appointment since it was loaded (a conflict).
+     * @param originals The appointments as they were loaded from database.
+     * @param updates The appointments with changes applied, in the same order as originals.
+     * @return IDs of appointments not updated because of a conflict.
      */
-    public static void writeAppointment(Appointment appointment) throws SQLException {
+    public static List<Integer> updateAppointments(List<Appointment> originals, List<Appointment> updates) throws SQLException {
 
-        if (Globals.writeToDatabase) {
+        List<Integer> conflicts = new ArrayList<>();
 
-            String sql = "INSERT INTO appointments values(?,?,?,?,?,?,?,?,?,?,?,?,?,?);";
-            PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-            ps.setInt(1, appointment.getAppointmentId());
-            ps.setString(2, appointment.getTitle());
-            ps.setString(3, appointment.getDescription());
-            ps.setString(4, appointment.getLocation());
-            ps.setString(5, appointment.getType());
-            ps.setTimestamp(6, appointment.getStartDateTimestamp());
-            ps.setTimestamp(7, appointment.getEndDateTimestamp());
-            ps.setTimestamp(8, appointment.getCreateDateTimestamp());
-            ps.setString(9, appointment.getCreatedBy());
-            ps.setTimestamp(10, appointment.getLastUpdateTimestamp());
-            ps.setString(11, appointment.getLastUpdatedBy());
-            ps.setInt(12, appointment.getCustomerId());
-            ps.setInt(13, appointment.getUserId());
-            ps.setInt(14, appointment.getContactId());
-
-            ps.executeUpdate();
+        if (!Globals.writeToDatabase) {
+            return conflicts;
+        }
 
+        // Updates changing the same columns share a statement, so they can be sent as one batch
+        Map<EnumSet<Appointment.Field>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            EnumSet<Appointment.Field> changes = updates.get(i).changesFrom(originals.get(i));
+            if (!changes.isEmpty()) {
+                groups.computeIfAbsent(changes, key -> new ArrayList<>()).add(i);
+            }
         }
+
+        JDBC.transaction(connection -> {
+
+            for (Map.Entry<EnumSet<Appointment.Field>, List<Integer>> group : groups.entrySet()) {
+
+                // Last_Update is compared within a second, DATETIME columns drop the fraction of a second
+                String sql = updateSql(group.getKey()) + " AND Last_Update BETWEEN ? AND ?;";
+
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+                    for (int i : group.getValue()) {
+                        int parameter = bindUpdate(ps, group.getKey(), updates.get(i));
+                        long loadedUpdate = originals.get(i).getLastUpdateMillis();
+                        ps.setTimestamp(parameter++, new Timestamp(loadedUpdate - 1000));
+                        ps.setTimestamp(parameter, new Timestamp(loadedUpdate + 1000));
+                        ps.addBatch();
+                    }
+
+                    int[] counts = ps.executeBatch();
+                    for (int j = 0; j < counts.length; j++) {
+                        if (counts[j] == 0) {  // Row no longer matches, SUCCESS_NO_INFO is taken as applied
+                            conflicts.add(updates.get(group.getValue().get(j)).getAppointmentId());
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+
+        return conflicts;
     }
 
 
     /**
-     * Deletes appointment in database.
-     * @param appointmentId The ID of appointment to be deleted.
+     * @return UPDATE statement setting given columns along with the last update columns, without a closing semicolon.
      */
-    public static void deleteAppointment(int appointmentId) throws SQLException {
+    private static String updateSql(EnumSet<Appointment.Field> changes) {
+
+        StringBuilder sql = new StringBuilder("UPDATE appointments SET ");
+        for (Appointment.Field field : changes) {
+            sql.append(columnOf(field)).append(" = ?, ");
+        }
+        sql.append("Last_Update = ?, Last_Updated_By = ? WHERE Appointment_ID = ?");
+
+        return sql.toString();
+    }
 
-        if (Globals.writeToDatabase){
-            String sql = "DELETE from appointments WHERE Appointment_Id = ?;";
-            PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-            ps.setInt(1, appointmentId);
 
-            ps.executeUpdate();
+    /**
+     * Sets the parameters of a statement created by updateSql().
+     * @return Index of the next unused parameter.
+     */
+    private static int bindUpdate(PreparedStatement ps, EnumSet<Appointment.Field> changes, Appointment updated) throws SQLException {
+
+        int parameter = 1;
+        for (Appointment.Field field : changes) {
+            bindField(ps, parameter++, field, updated);
         }
+        ps.setTimestamp(parameter++, updated.getLastUpdateTimestamp());
+        ps.setString(parameter++, updated.getLastUpdatedBy());
+        ps.setInt(parameter++, updated.getAppointmentId());
+
+        return parameter;
     }
 
 
     /**
-     * Retrieves appointments based on type and month.
-     * Used for reporting.
-     * @return List containing report information.
+     * @return Database column holding given field.
      */
-    public static ObservableList<String>  fetchAppointmentsByTypeAndMonth() throws SQLException {
+    private static String columnOf(Appointment.Field field) {
+        return switch (field) {
+            case TITLE -> "Title";
+            case DESCRIPTION -> "Description";
+            case LOCATION -> "Location";
+            case TYPE -> "Type";
+            case START -> "Start";
+            case END -> "End";
+            case CUSTOMER_ID -> "Customer_ID";
+            case USER_ID -> "User_ID";
+            case CONTACT_ID -> "Contact_ID";
+        };
+    }
+
+
+    /**
+     * Sets a single UPDATE parameter to the value of given field.
+     */
+    private static void bindField(PreparedStatement ps, int parameter, Appointment.Field field, Appointment appointment) throws SQLException {
+        switch (field) {
+            case TITLE -> ps.setString(parameter, appointment.getTitle());
+            case DESCRIPTION -> ps.setString(parameter, appointment.getDescription());
+            case LOCATION -> ps.setString(parameter, appointment.getLocation());
+            case TYPE -> ps.setString(parameter, appointment.getType());
+            case START -> ps.setTimestamp(parameter, appointment.getStartDateTimestamp());
+            case END -> ps.setTimestamp(parameter, appointment.getEndDateTimestamp());
+            case CUSTOMER_ID -> ps.setInt(parameter, appointment.getCustomerId());
+            case USER_ID -> ps.setInt(parameter, appointment.getUserId());
+            case CONTACT_ID -> ps.setInt(parameter, appointment.getContactId());
+        }
+    }
 
 
-        String sql = "SELECT EXTRACT(MONTH FROM CONVERT_TZ(Start, ?, ?)) AS Month_Number , Type, count(Type) AS Amount FROM appointments " +
-                     "GROUP BY Type, Month_Number " +
-                     "ORDER BY Month_Number, Type;";
+    /**
+     * Writes many new appointments to database at once.
+     * Appointments are sent in batches, each batch being committed together.
+     * @param appointments The appointment objects to be written to database.
+     * @return Amount of appointments written.
+     */
+    public static int writeAppointments(List<Appointment> appointments) throws SQLException {
 
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setString(1,"+00:00");
-        ps.setString(2,TimeAndDate.getZoneOffsetString(TimeAndDate.getZoneOffset()));
-        ResultSet rs =  ps.executeQuery();
+        if (Globals.writeToDatabase) {
+            return JDBC.batch(insertSql, appointments, AppointmentQuery::bindAppointment, "appointments");
+        }
+        return 0;
+    }
 
-        ObservableList<String> appointmentsByTypeAndMonth = FXCollections.observableArrayList();
-        appointmentsByTypeAndMonth.add("MONTH,   TYPE,   AMOUNT");  // First index value acts as a label
 
-        while(rs.next()){  //rs will read line by line through the results returned
+    /**
+     * Sets the parameters of an appointment INSERT.
+     * @param ps Statement created from insertSql.
+     * @param appointment Appointment being written.
+     */
+    private static void bindAppointment(PreparedStatement ps, Appointment appointment) throws SQLException {
+        ps.setInt(1, appointment.getAppointmentId());
+        ps.setString(2, appointment.getTitle());
+        ps.setString(3, appointment.getDescription());
+        ps.setString(4, appointment.getLocation());
+        ps.setString(5, appointment.getType());
+        ps.setTimestamp(6, appointment.getStartDateTimestamp());
+        ps.setTimestamp(7, appointment.getEndDateTimestamp());
+        ps.setTimestamp(8, appointment.getCreateDateTimestamp());
+        ps.setString(9, appointment.getCreatedBy());
+        ps.setTimestamp(10, appointment.getLastUpdateTimestamp());
+        ps.setString(11, appointment.getLastUpdatedBy());
+        ps.setInt(12, appointment.getCustomerId());
+        ps.setInt(13, appointment.getUserId());
+        ps.setInt(14, appointment.getContactId());
+    }
 
-            // First data containing row is formatted differently
-            if (appointmentsByTypeAndMonth.size() == 1) {
-                appointmentsByTypeAndMonth.add("\n\n"+TimeAndDate.numberToMonth(rs.getInt( "Month_Number")));  // Add month name (first convert it from number to name)
-            }
-            else {
-                appointmentsByTypeAndMonth.add("\n"+TimeAndDate.numberToMonth(rs.getInt( "Month_Number")));
-            }
-            appointmentsByTypeAndMonth.add("  " + rs.getString("Type"));  // Add appointment type to array
-            appointmentsByTypeAndMonth.add("  "  + rs.getString("Amount"));  // Add amount that type occurs per month
-       }
 
-        Tools.consoleMessage(Tools.MsgType.INFO, "For me info on how this report is generated, check this method.", "AppointmentQuery.fetchAppointmentsByTypeAndMonth()");
+    /**
+     * Deletes many appointments in database at once, in batches.
+     * @param appointmentIds The IDs of appointments to be deleted.
+     * @return Amount of IDs sent.
+     */
+    public static int deleteAppointments(List<Integer> appointmentIds) throws SQLException {
 
-        return appointmentsByTypeAndMonth;
+        if (Globals.writeToDatabase) {
+            TombstoneQuery.writeAll(TombstoneQuery.APPOINTMENTS, appointmentIds);
+            String sql = "DELETE from appointments WHERE Appointment_Id = ?;";
+            return JDBC.batch(sql, appointmentIds, (ps, id) -> ps.setInt(1, id), "appointment deletes");
+        }
+        return 0;
     }
 
 
@@ -229,20 +333,18 @@ public class AppointmentQuery {
     public static ObservableList<String> fetchAppointmentsByContact(int contactId) throws SQLException {
 
         String sql = "SELECT * FROM Appointments WHERE Contact_ID = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, contactId);
-
-        ResultSet rs =  ps.executeQuery();
+        return JDBC.query(sql, ps -> ps.setInt(1, contactId), rs -> {
 
-        ObservableList<String> appointments = FXCollections.observableArrayList();
+            ObservableList<String> appointments = FXCollections.observableArrayList();
 
-        while(rs.next()){  //rs will read line by line through the results returned
+            while(rs.next()){  //rs will read line by line through the results returned
 
-            // fetch appointment_id and add it to list containing all appointments
-            appointments.add(rs.getString("Appointment_ID"));
-        }
+                // fetch appointment_id and add it to list containing all appointments
+                appointments.add(rs.getString("Appointment_ID"));
+            }
 
-        return appointments;
+            return appointments;
+        });
     }
 
 
@@ -253,82 +355,26 @@ public class AppointmentQuery {
      */
     public static Appointment fetchAppointmentsBetweenDates(long minutesFromCurrent) throws SQLException {
 
-        String sql = "SELECT * FROM Appointments WHERE " +
-                     "Start BETWEEN ? AND ? " +
-                     "ORDER BY Start desc;";
-
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
+        String sql = "SELECT app.*, con.Contact_Name " +
+                     "FROM appointments app " +
+                     "LEFT JOIN contacts con " +
+                     "ON app.Contact_ID = con.Contact_ID " +
+                     "WHERE app.Start BETWEEN ? AND ? " +
+                     "ORDER BY app.Start desc;";
 
         String t1 = TimeAndDate.customTimeFormattedString(TimeAndDate.toUTC(LocalDateTime.now()), "YYYY-MM-dd HH:mm:ss");
         String t2 = TimeAndDate.customTimeFormattedString(TimeAndDate.toUTC(LocalDateTime.now().plusMinutes(minutesFromCurrent)), "YYYY-MM-dd HH:mm:ss");
 
+        return JDBC.query(sql, ps -> {
+            ps.setString(1, t1);
+            ps.setString(2, t2);
+        }, rs -> {
 
-        ps.setString(1, t1);
-        ps.setString(2, t2);
-        ResultSet rs =  ps.executeQuery();
-
-        int appointmentId;
-        int customerId;
-        int contactId;
-        int userId;
-        String title;
-        String description;
-        String location;
-        String type;
-        String createdBy;
-        String lastUpdatedBy;
-        LocalDateTime startDate;
-        LocalDateTime endDate;
-        LocalDateTime creationDate;
-        LocalDateTime lastUpdate;
-
-
-        if (rs.next()){  //rs will read line by line through the results returned
-
-            // fetch data from current row
-            appointmentId = rs.getInt("Appointment_ID");
-            customerId = rs.getInt("Customer_ID");
-            contactId = rs.getInt("Contact_ID");
-            userId = rs.getInt("User_ID");
-            title = rs.getString("Title");
-            description = rs.getString("Description");
-            location = rs.getString("Location");
-            type = rs.getString("Type");
-            createdBy = rs.getString("Created_By");
-            lastUpdatedBy = rs.getString("Last_Updated_By");
-            startDate = rs.getTimestamp("Start").toLocalDateTime();  // This will convert UTC to local time
-            endDate = rs.getTimestamp("End").toLocalDateTime();
-            creationDate = rs.getTimestamp("Create_Date").toLocalDateTime();
-            lastUpdate = rs.getTimestamp("Last_Update").toLocalDateTime();
-
-            return new Appointment(startDate, endDate, customerId, appointmentId, contactId, title, description, location, type, creationDate, lastUpdate, createdBy, lastUpdatedBy, userId);
-        }
-
-        return null;
-    }
-
-
-    /**
-     * Retrieves appointments matching customer ID.
-     * @param customerId The ID of the customer associated with appointments.
-     * @return Integer list containing all appointment IDs associated with customer.
-     */
-    public static List<Integer> fetchAppointmentsByCustomer(int customerId) throws SQLException {
-
-        String sql = "SELECT Appointment_ID FROM appointments WHERE Customer_ID = ? ORDER BY Start;";
-
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, customerId);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        List<Integer> allAppointmentId = new ArrayList<>();
-
-        while(rs.next()){  //rs will read line by line through the results returned
-
-            // fetch appointment_id and add it to list containing all appointments
-            allAppointmentId.add(rs.getInt("Appointment_ID"));
-        }
+            if (rs.next()){  //rs will read line by line through the results returned
+                return readAppointment(rs, new AppointmentStore(1));
+            }
 
-        return allAppointmentId;
+            return null;
+        });
     }
 }
@@ -0,0 +1,209 @@
+package DAO;
+
+import javafx.application.Platform;
+import model.Globals;
+import model.Tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+
+/**
+ *  Runs DAO calls in the background, so the JavaFX application thread never waits for the database.
+ *  Calls return a CompletableFuture, onFxThread() hands the result back to the application thread once it arrives.
+ *  Screens run their calls through a Scope, cancelling the scope when the screen is left drops results nobody will see.
+ *  The time taken by every call is recorded per call name, see getLatencySummary().
+ */
+public class AsyncDao {
+
+    // Calls never run faster than connections can be leased, so there is one thread per pooled connection
+    private static final ExecutorService executor = Executors.newFixedThreadPool(Globals.asyncDaoThreads, new DaemonThreadFactory());
+
+    private static final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+
+
+    /**
+     *  Runs a DAO call in the background.
+     *  @param name Name of the call, used for latency metrics and logging.
+     *  @param call DAO method to run.
+     *  @return Future completing with the result of the call.
+     */
+    public static <T> CompletableFuture<T> supply(String name, DaoCall<T> call) {
+
+        return CompletableFuture.supplyAsync(() -> {
+
+            long start = System.nanoTime();
+
+            try {
+                return call.call();
+            }
+            catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            finally {
+                latencies.computeIfAbsent(name, key -> new Latency()).record(System.nanoTime() - start);
+            }
+        }, executor);
+    }
+
+
+    /**
+     *  Runs an action on the JavaFX application thread once a call has succeeded.
+     *  Failures are logged and the action is skipped, cancelled calls are ignored.
+     *  @param future Call to wait for.
+     *  @param onSuccess Action receiving the result, usually filling in a control.
+     */
+    public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess) {
+
+        future.whenComplete((result, e) -> {
+
+            if (future.isCancelled()) {
+                return;
+            }
+
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Background query failed: " + cause.getMessage(), "AsyncDao.onFxThread()");
+                return;
+            }
+
+            Platform.runLater(() -> onSuccess.accept(result));
+        });
+    }
+
+
+    /**
+     * @return Call count, average and slowest time of every call made so far, sorted by call name.
+     */
+    public static String getLatencySummary() {
+
+        StringBuilder summary = new StringBuilder();
+
+        for (Map.Entry<String, Latency> entry : new TreeMap<>(latencies).entrySet()) {
+            summary.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        }
+
+        return summary.toString();
+    }
+
+
+    /**
+     *  Calls made by a single screen.
+     *  Cancelling the scope cancels calls that have not finished yet and keeps their results from reaching the screen.
+     *  A statement already running on the database is allowed to finish, its result is simply dropped.
+     */
+    public static class Scope {
+
+        private final List<CompletableFuture<?>> pending = new ArrayList<>();
+        private volatile boolean cancelled = false;
+
+
+        /**
+         *  Runs a DAO call in the background as part of this scope.
+         *  @param name Name of the call, used for latency metrics and logging.
+         *  @param call DAO method to run.
+         *  @return Future completing with the result of the call, already cancelled if the scope is.
+         */
+        public synchronized <T> CompletableFuture<T> supply(String name, DaoCall<T> call) {
+
+            if (cancelled) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+                future.cancel(false);
+                return future;
+            }
+
+            CompletableFuture<T> future = AsyncDao.supply(name, call);
+            pending.removeIf(CompletableFuture::isDone);  // Keep the list from growing on long lived screens
+            pending.add(future);
+            return future;
+        }
+
+
+        /**
+         *  Runs an action on the JavaFX application thread once a call has succeeded, unless the scope was cancelled.
+         *  @param future Call to wait for.
+         *  @param onSuccess Action receiving the result.
+         */
+        public <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess) {
+            AsyncDao.onFxThread(future, result -> {
+                if (!cancelled) {  // Checked again on the application thread, the screen may have been left meanwhile
+                    onSuccess.accept(result);
+                }
+            });
+        }
+
+
+        /**
+         *  Cancels all calls of this scope, used when the screen is left.
+         */
+        public synchronized void cancel() {
+
+            cancelled = true;
+
+            for (CompletableFuture<?> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+        }
+
+
+        /**
+         * @return True once the scope has been cancelled.
+         */
+        public boolean isCancelled() {return cancelled;}
+    }
+
+
+    /**
+     *  Running totals of how long a call takes.
+     */
+    private static class Latency {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+
+        @Override
+        public String toString() {
+            long calls = count.sum();
+            double averageMs = calls == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / calls;
+            return String.format("%d calls, avg %.1f ms, max %.1f ms", calls, averageMs, maxNanos.get() / 1_000_000.0);
+        }
+    }
+
+
+    /**
+     *  Creates named daemon threads, background calls never keep the application open.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "dao-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package DAO;
+
+import model.Tools;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *  A bounded pool of database connections.
+ *  Connections are leased through JDBC.getConnection() and go back to the pool when closed,
+ *  so callers should always lease them with try-with-resources.
+ *  Idle connections are validated before reuse, retired once they reach their max lifetime,
+ *  and a background housekeeper reports leases that are held for suspiciously long.
+ */
+public class ConnectionPool {
+
+    private final String jdbcUrl;
+    private final String userName;
+    private final String password;
+
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final long idleValidationNanos;
+    private final long maxLifetimeNanos;
+    private final long leakDetectionNanos;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;  // One permit per connection that may be leased at once
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();  // Guarded by "this"
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder connectionsRetired = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+
+
+    /**
+     *  Creates a pool, no connections are opened until they are first needed.
+     *  @param jdbcUrl Database URL.
+     *  @param userName Database username.
+     *  @param password Database password.
+     *  @param maxSize Maximum amount of connections that can be leased at the same time.
+     *  @param connectionTimeoutMs How long a caller waits for a free connection before an exception is thrown.
+     *  @param idleValidationMs Connections idle longer than this are validated before being handed out.
+     *  @param maxLifetimeMs Connections older than this are closed instead of being reused.
+     *  @param leakDetectionMs Leases held longer than this are reported as possible leaks, 0 disables detection.
+     *  @param statementCacheSize Amount of prepared statements each connection keeps open, see StatementCache.
+     */
+    ConnectionPool(String jdbcUrl, String userName, String password, int maxSize, long connectionTimeoutMs,
+                   long idleValidationMs, long maxLifetimeMs, long leakDetectionMs, int statementCacheSize) {
+
+        this.jdbcUrl = jdbcUrl;
+        this.userName = userName;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.idleValidationNanos = TimeUnit.MILLISECONDS.toNanos(idleValidationMs);
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMs);
+        this.leakDetectionNanos = TimeUnit.MILLISECONDS.toNanos(leakDetectionMs);
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);  // Fair, so waiting callers are served in order
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);  // Never keep the application alive
+            return thread;
+        });
+
+        long period = Math.max(1000, Math.min(leakDetectionMs > 0 ? leakDetectionMs / 2 : 30000, 30000));
+        housekeeper.scheduleAtFixedRate(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     *  Opens a single connection and places it in the pool, used to verify the database is reachable.
+     */
+    void warmUp() throws SQLException {
+        try (Connection connection = lease()) {
+            if (!connection.isValid(2)) {
+                throw new SQLException("Database connection could not be validated");
+            }
+        }
+    }
+
+
+    /**
+     *  Leases a connection, waiting for one to become free if the pool is exhausted.
+     *  The connection is returned to the pool when close() is called on it.
+     *  @return Leased connection.
+     */
+    Connection lease() throws SQLException {
+
+        if (closed) {
+            throw new SQLException("Connection pool has been closed");
+        }
+
+        long waitStart = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs + "ms waiting for a database connection " + getMetrics());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection pooled = takeIdle();
+
+            if (pooled == null) {  // Nothing reusable, open a new physical connection
+                pooled = new PooledConnection(DriverManager.getConnection(jdbcUrl, userName, password));
+                connectionsCreated.increment();
+            }
+
+            pooled.leasedAt = System.nanoTime();
+            pooled.leaseOwner = leakDetectionNanos > 0 ? new Throwable("Connection leased here") : null;
+            pooled.leakReported = false;
+            leased.add(pooled);
+            leaseCount.increment();
+
+            return pooled.newLease();
+        }
+        catch (SQLException | RuntimeException e) {
+            permits.release();  // Failed to hand out a connection, give the permit back
+            throw e;
+        }
+    }
+
+
+    /**
+     *  Takes the most recently used idle connection, skipping any that are too old or no longer valid.
+     *  @return Usable connection, or null if none is idle.
+     */
+    private PooledConnection takeIdle() {
+
+        while (true) {
+
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idle.pollFirst();
+            }
+
+            if (pooled == null) {
+                return null;
+            }
+
+            long now = System.nanoTime();
+
+            if (now - pooled.createdAt > maxLifetimeNanos) {
+                retire(pooled);
+                continue;
+            }
+
+            // Connections that sat idle for a while might have been dropped by the server
+            if (now - pooled.returnedAt > idleValidationNanos && !pooled.isValid()) {
+                retire(pooled);
+                continue;
+            }
+
+            return pooled;
+        }
+    }
+
+
+    /**
+     *  Returns a leased connection to the pool, resetting any state the lessee changed.
+     *  @param pooled The connection being returned.
+     */
+    private void release(PooledConnection pooled) {
+
+        leased.remove(pooled);
+
+        try {
+            boolean reusable = !closed && !pooled.raw.isClosed() && System.nanoTime() - pooled.createdAt < maxLifetimeNanos;
+
+            if (reusable && !pooled.raw.getAutoCommit()) {  // Never hand out a connection with an open transaction
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+
+            if (reusable) {
+                pooled.returnedAt = System.nanoTime();
+                synchronized (this) {
+                    idle.addFirst(pooled);  // LIFO keeps the warmest connections in use
+                }
+            }
+            else {
+                retire(pooled);
+            }
+        }
+        catch (SQLException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Discarding broken connection: " + e.getMessage(), "ConnectionPool.release()");
+            retire(pooled);
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+
+    /**
+     *  Closes the physical connection, it will not be reused.
+     */
+    private void retire(PooledConnection pooled) {
+        connectionsRetired.increment();
+        try {
+            pooled.statements.closeAll();
+            pooled.raw.close();
+        }
+        catch (SQLException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, e.getMessage(), "ConnectionPool.retire()");
+        }
+    }
+
+
+    /**
+     *  Runs periodically, reports possible leaks and retires idle connections past their lifetime.
+     */
+    private void housekeeping() {
+
+        long now = System.nanoTime();
+
+        if (leakDetectionNanos > 0) {
+            for (PooledConnection pooled : leased) {
+                if (!pooled.leakReported && now - pooled.leasedAt > leakDetectionNanos) {
+                    pooled.leakReported = true;
+                    leaksDetected.increment();
+
+                    StackTraceElement[] trace = pooled.leaseOwner != null ? pooled.leaseOwner.getStackTrace() : new StackTraceElement[0];
+                    String owner = trace.length > 3 ? trace[3].toString() : "unknown";  // Skip pool and JDBC frames
+                    Tools.consoleMessage(Tools.MsgType.ERROR, "Possible connection leak, held for " + TimeUnit.NANOSECONDS.toMillis(now - pooled.leasedAt) + "ms by " + owner, "ConnectionPool.housekeeping()");
+                }
+            }
+        }
+
+        synchronized (this) {
+            idle.removeIf(pooled -> {
+                if (now - pooled.createdAt > maxLifetimeNanos) {
+                    retire(pooled);
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+
+    /**
+     *  Records how long a caller waited for a connection.
+     */
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+
+    /**
+     *  Closes all idle connections, leased connections are closed as they are returned.
+     */
+    void close() {
+
+        closed = true;
+        housekeeper.shutdownNow();
+
+        synchronized (this) {
+            for (PooledConnection pooled : idle) {
+                retire(pooled);
+            }
+            idle.clear();
+        }
+
+        if (!leased.isEmpty()) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, leased.size() + " connection(s) still leased while closing pool", "ConnectionPool.close()");
+        }
+    }
+
+
+    /**
+     * @return Snapshot of the pool's current state and lifetime statistics.
+     */
+    public Metrics getMetrics() {
+
+        int idleCount;
+        synchronized (this) {
+            idleCount = idle.size();
+        }
+
+        long leases = leaseCount.sum();
+        double averageWaitMs = leases == 0 ? 0 : totalWaitNanos.sum() / 1e6 / leases;
+
+        return new Metrics(leased.size(), idleCount, maxSize, leases, averageWaitMs, maxWaitNanos.get() / 1e6,
+                timeouts.sum(), connectionsCreated.sum(), connectionsRetired.sum(), leaksDetected.sum());
+    }
+
+
+    /**
+     *  Immutable snapshot of pool statistics.
+     */
+    public static class Metrics {
+
+        public final int active;
+        public final int idle;
+        public final int maxSize;
+        public final long leases;
+        public final double averageWaitMs;
+        public final double maxWaitMs;
+        public final long timeouts;
+        public final long created;
+        public final long retired;
+        public final long leaksDetected;
+
+        Metrics(int active, int idle, int maxSize, long leases, double averageWaitMs, double maxWaitMs, long timeouts, long created, long retired, long leaksDetected) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.leases = leases;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.retired = retired;
+            this.leaksDetected = leaksDetected;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[active=%d, idle=%d, max=%d, leases=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d, created=%d, retired=%d, leaks=%d]",
+                    active, idle, maxSize, leases, averageWaitMs, maxWaitMs, timeouts, created, retired, leaksDetected);
+        }
+    }
+
+
+    /**
+     *  A physical connection along with the bookkeeping the pool needs.
+     */
+    private class PooledConnection {
+
+        final Connection raw;
+        final StatementCache statements;
+        final long createdAt = System.nanoTime();
+        volatile long returnedAt = createdAt;
+        volatile long leasedAt;
+        volatile Throwable leaseOwner;  // Captures where the connection was leased, used when reporting leaks
+        volatile boolean leakReported;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(raw, statementCacheSize);
+        }
+
+        /**
+         * @return True if the server still answers on this connection.
+         */
+        boolean isValid() {
+            try {
+                return raw.isValid(2);
+            }
+            catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         *  Each lease gets its own proxy, so closing a stale reference twice can never release the connection twice.
+         *  @return Connection handed to the caller.
+         */
+        Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Lease());
+        }
+
+
+        /**
+         *  Forwards calls to the physical connection until the lease is closed.
+         */
+        private class Lease implements InvocationHandler {
+
+            private boolean released = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!released) {
+                            released = true;
+                            release(PooledConnection.this);
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        if (released) {
+                            return true;
+                        }
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    case "toString" -> {
+                        return "PooledConnection" + (released ? "[released]" : "[leased]");
+                    }
+                }
+
+                if (released) {
+                    throw new SQLException("Connection has already been returned to the pool");
+                }
+
+                // Plain prepareStatement(sql) calls are served from the statement cache
+                if (method.getName().equals("prepareStatement") && args.length == 1) {
+                    return statements.prepare((String) args[0]);
+                }
+
+                try {
+                    return method.invoke(raw, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -4,13 +4,12 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 
 
 /**
  *  This class allows contacts to be written, updated, and deleted from database.
+ *  Contacts are served from ReferenceData, the database is only read when it is loaded or refreshed.
  */
 public class ContactsQuery {
 
@@ -20,21 +19,7 @@ public class ContactsQuery {
      * @return List containing all contact IDs found in database.
      */
     public static ObservableList<Integer> fetchAllId() throws SQLException {
-
-        // Using ORDER_BY is important since certain methods count on sorting being consistent
-        String sql = "SELECT Contact_Id FROM contacts ORDER BY Contact_Id;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        ObservableList<Integer> allContactId = FXCollections.observableArrayList();
-
-        while(rs.next()){  //rs will read line by line through the results returned
-
-            // fetch contact_id and add it to list containing all contacts
-            allContactId.add(rs.getInt("Contact_ID"));
-        }
-
-        return allContactId;
+        return FXCollections.observableArrayList(ReferenceData.get().getContacts().ids());  // In ID order, certain methods count on sorting being consistent
     }
 
 
@@ -43,19 +28,7 @@ public class ContactsQuery {
      * @return List containing all contact names found in database.
      */
     public static ObservableList<String> fetchAllContactNames() throws SQLException {
-        String sql = "SELECT Contact_Name FROM contacts ORDER BY Contact_Id";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String contactName;
-        ObservableList<String> contactNames = FXCollections.observableArrayList();
-
-        while(rs.next()){  //rs will read line by line through the results returned
-            contactName = rs.getString("Contact_Name"); // fetch specified data from current row
-            contactNames.add(contactName);
-        }
-
-        return contactNames;
+        return FXCollections.observableArrayList(ReferenceData.get().getContacts().names());
     }
 
 
@@ -66,16 +39,11 @@ public class ContactsQuery {
      * @return List containing all contact name ID pairs found in database.
      */
     public static ObservableList<String> fetchAllNameIdPairs() throws SQLException {
-        String sql = "SELECT Contact_Name FROM contacts ORDER BY Contact_Id";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String contactName;
+        ReferenceData.NameTable contacts = ReferenceData.get().getContacts();
         ObservableList<String> contactNames = FXCollections.observableArrayList();
 
-        while(rs.next()){  //rs will read line by line through the results returned
-            contactName = rs.getString("Contact_Name"); // fetch specified data from current row
-            contactNames.add("(" + fetchContactId(contactName) + ") " + contactName);
+        for (int contactId : contacts.ids()) {
+            contactNames.add("(" + contactId + ") " + contacts.nameOf(contactId));
         }
 
         return contactNames;
@@ -89,21 +57,8 @@ public class ContactsQuery {
      * @return String containing both customer name and ID.
      */
     public static String fetchAllNameIdPair(int contactId) throws SQLException {
-        String sql = "SELECT Contact_Name FROM contacts WHERE Contact_Id = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, contactId);
-
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String contactName;
-        String nameIdPair = "";
-
-        if(rs.next()){
-            contactName = rs.getString("Contact_Name"); // fetch specified data from current row
-            nameIdPair = "(" + contactId + ") " + contactName;
-        }
-
-        return nameIdPair;
+        String contactName = ReferenceData.get().getContacts().nameOf(contactId);
+        return contactName == null ? "" : "(" + contactId + ") " + contactName;
     }
 
     /**
@@ -112,19 +67,7 @@ public class ContactsQuery {
      * @return Contact ID.
      */
     public static int fetchContactId(String contactName) throws SQLException {
-        String sql = "SELECT Contact_ID FROM contacts WHERE Contact_Name = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setString(1, contactName);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-
-        int contactId = -1; // Temp value
-
-        while(rs.next()){  //rs will read line by line through the results returned
-            contactId = rs.getInt("Contact_ID"); // fetch specified data from current row
-        }
-
-        return contactId;
+        return ReferenceData.get().getContacts().idOf(contactName);
     }
 
 
@@ -135,26 +78,13 @@ public class ContactsQuery {
      * @return Contact name associated with contact ID.
      */
     public static String fetchContactName(int contactId) throws SQLException {
-
-        // Lambda expression here is used to fetch Contact_Name based on Contact_ID
+        // Lambda expression here is used to look up Contact_Name based on Contact_ID
         FetchString fetchContactName = (id) -> {
-
-            String result = "N/A";  // Default value, must be overwritten
-
-            String sqlContact = "SELECT Contact_Name FROM contacts WHERE Contact_Id = ?";
-            PreparedStatement psContact = JDBC.connection.prepareStatement(sqlContact);
-            psContact.setInt(1, id);
-            ResultSet rsContact = psContact.executeQuery();
-
-            if(rsContact.next()) {  // No need to use loop since there will only be one value
-                result = rsContact.getString("Contact_Name");
-            }
-
-            return result;
+            String result = ReferenceData.get().getContacts().nameOf(id);
+            return result == null ? "N/A" : result;  // Default value when contact does not exist
         };
 
         return(fetchContactName.fetchString(contactId));
-
     }
 
 }
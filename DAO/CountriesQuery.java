@@ -4,31 +4,22 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.CountriesAndDivisions;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 
 /**
  *  This class allows countries to be fetched from database.
+ *  Countries are served from ReferenceData, the database is only read when it is loaded or refreshed.
  */
 public class CountriesQuery {
 
+    /**
+     * @return All country names, in ID order.
+     */
     public static ObservableList<String> fetchAllCountries() throws SQLException {
-        String sql = "SELECT * FROM countries ORDER BY Country_ID";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String countryName;
-        ObservableList<String> countryNames = FXCollections.observableArrayList();
-
-        while(rs.next()){  //rs will read line by line through the results returned
-            countryName = rs.getString("Country"); // fetch specified data from current row
-            countryNames.add(countryName);
-        }
-
-        return countryNames;
+        return FXCollections.observableArrayList(ReferenceData.get().getCountries().names());
     }
 
 
@@ -38,17 +29,7 @@ public class CountriesQuery {
      * @return Country ID.
      */
     public static int fetchCountryId(String countryName) throws SQLException {
-        String sql = "SELECT Country_ID FROM countries WHERE Country = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setString(1, countryName);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        int countryId = -1;  // will be overwritten
-        while(rs.next()){  //rs will read line by line through the results returned
-            countryId = rs.getInt("Country_ID"); // fetch specified data from current row
-        }
-
-        return countryId;
+        return ReferenceData.get().getCountries().idOf(countryName);
     }
 
 
@@ -58,26 +39,20 @@ public class CountriesQuery {
      * @return Country name associated with country ID.
      */
     public static String fetchCountryName(int countryId) throws SQLException {
-        String sql = "SELECT Country FROM countries WHERE Country_ID = ?;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, countryId);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String countryName = "N/A";  // will be overwritten
-        while(rs.next()){  //rs will read line by line through the results returned
-            countryName = rs.getString("Country"); // fetch specified data from current row
-        }
-
-        return countryName;
+        String countryName = ReferenceData.get().getCountries().nameOf(countryId);
+        return countryName == null ? "N/A" : countryName;
     }
 
 
     /**
      *  Associates division lists with country objects.
+     *  The countries are only returned, the caller adds them to CountriesAndDivisions.countries on the JavaFX application thread.
+     * @return Countries along with their divisions, in ID order.
      */
-    public static void createCountryDivisionPairs() throws SQLException {
+    public static List<CountriesAndDivisions> createCountryDivisionPairs() throws SQLException {
 
         ObservableList<String> countryNames = fetchAllCountries();
+        List<CountriesAndDivisions> countries = new ArrayList<>(countryNames.size());
 
         for(int i = 0; i < countryNames.size(); i++) {
 
@@ -92,8 +67,9 @@ public class CountriesQuery {
             List<Integer> divisionIds = FirstLevelDivisionQuery.fetchDivisionIds(countryNames.get(i));
             country.addAllDivisionIds(divisionIds);
 
-            // Add new country to list containing all countries
-            CountriesAndDivisions.countries.add(country);
+            countries.add(country);
         }
+
+        return countries;
     }
 }
@@ -4,13 +4,18 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Customer;
 import model.Globals;
+import model.NameIdModel;
+import model.TimeAndDate;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -18,63 +23,109 @@ import java.util.List;
  */
 public class CustomerQuery {
 
+    private static final String insertSql = "INSERT INTO customers values(?,?,?,?,?,?,?,?,?,?);";
+
 
     /**
      * Retrieves all customers from database, creates local customer objects.
-     * Adds customers to a static list located in customers class.
+     * Division and country names are joined in the same query, so only one round trip is made.
+     * The customers are only returned, the caller adds them to Customer.allCustomers on the JavaFX application thread.
+     * @return All customers, ordered by ID.
      */
-    public static void fetchAllCustomers() throws SQLException {
+    public static List<Customer> fetchAllCustomers() throws SQLException {
 
 
-        String sql = "SELECT * FROM Customers ORDER BY Customer_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        String sql = "SELECT cust.*, fld.Division, cn.Country " +
+                     "FROM customers cust " +
+                     "LEFT JOIN first_level_divisions fld " +
+                     "ON cust.Division_ID = fld.Division_ID " +
+                     "LEFT JOIN countries cn " +
+                     "ON fld.Country_ID = cn.Country_ID " +
+                     "ORDER BY cust.Customer_ID;";
 
+        // Rows are streamed one at a time instead of buffering the whole table in the driver
+        return JDBC.query(sql, ps -> ps.setFetchSize(Integer.MIN_VALUE), rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        int customerId;
-        int divisionId;
-        int countryId;
+            List<Customer> results = new ArrayList<>();
 
-        String customerName;
-        String address;
-        String country;
-        String postalCode;
-        String phoneNumber;
-        String createdBy;
-        String lastUpdatedBy;
+            while(rs.next()){  //rs will read line by line through the results returned
+                results.add(readCustomer(rs));
+            }
 
-        LocalDateTime creationDate;
-        LocalDateTime lastUpdate;
+            return results;
+        });
+    }
 
 
-        while(rs.next()){  //rs will read line by line through the results returned
+    /**
+     * Retrieves customers created or updated since a point in time.
+     * @param since Epoch milliseconds, customers with a later last update are returned.
+     * @return Customers updated since given time.
+     */
+    public static List<Customer> fetchCustomersUpdatedSince(long since) throws SQLException {
 
-            // fetch data from current row
-            customerId = rs.getInt("Customer_ID");
-            divisionId = rs.getInt("Division_ID");
+        String sql = "SELECT cust.*, fld.Division, cn.Country " +
+                     "FROM customers cust " +
+                     "LEFT JOIN first_level_divisions fld " +
+                     "ON cust.Division_ID = fld.Division_ID " +
+                     "LEFT JOIN countries cn " +
+                     "ON fld.Country_ID = cn.Country_ID " +
+                     "WHERE cust.Last_Update > ?;";
 
-            // This data isn't relevant when storing customer to DB, but is used during customer updates in GUI
-            countryId = FirstLevelDivisionQuery.fetchCountryId(divisionId);
-            country = CountriesQuery.fetchCountryName(countryId);
+        return JDBC.query(sql, ps -> ps.setTimestamp(1, TimeAndDate.toTimestamp(since)), rs -> {
 
-            customerName = rs.getString("Customer_Name");
-            address = rs.getString("Address");
-            postalCode = rs.getString("Postal_Code");
-            phoneNumber = rs.getString("Phone");
-            createdBy = rs.getString("Created_By");
-            lastUpdatedBy = rs.getString("Last_Updated_By");
+            List<Customer> results = new ArrayList<>();
 
-            creationDate = rs.getTimestamp("Create_Date").toLocalDateTime();  // This will convert UTC to local time
-            lastUpdate = rs.getTimestamp("Last_Update").toLocalDateTime();
+            while(rs.next()){
+                results.add(readCustomer(rs));
+            }
 
-            Customer customer = new Customer(customerId, divisionId, postalCode, customerName, address, phoneNumber, creationDate, lastUpdate, createdBy, lastUpdatedBy);
+            return results;
+        });
+    }
 
-            // Set data needed for GUI operations, this data does not get stored in DB
-            customer.setCountry(country);
-            customer.setDivisionName(FirstLevelDivisionQuery.fetchDivisionName(customer.getDivisionId()));
 
-            Customer.allCustomers.add(customer);
-        }
+    /**
+     * @return Amount of customers in database.
+     */
+    public static int countCustomers() throws SQLException {
+        return JDBC.query("SELECT COUNT(*) FROM customers;", null, rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+
+
+    /**
+     * Creates a customer from the current row of a result set.
+     * The row must contain the customer columns along with the Division and Country columns.
+     * @param rs Result set positioned on a customer row.
+     * @return Customer matching the row.
+     */
+    private static Customer readCustomer(ResultSet rs) throws SQLException {
+
+        // fetch data from current row
+        int customerId = rs.getInt("Customer_ID");
+        int divisionId = rs.getInt("Division_ID");
+
+        String customerName = rs.getString("Customer_Name");
+        String address = rs.getString("Address");
+        String postalCode = rs.getString("Postal_Code");
+        String phoneNumber = rs.getString("Phone");
+        String createdBy = rs.getString("Created_By");
+        String lastUpdatedBy = rs.getString("Last_Updated_By");
+
+        // This data isn't relevant when storing customer to DB, but is used during customer updates in GUI
+        String divisionName = rs.getString("Division");
+        String country = rs.getString("Country");
+
+        long creationDate = TimeAndDate.toEpochMilli(rs.getTimestamp("Create_Date"));  // Epoch time in UTC, converted to local time only for display
+        long lastUpdate = TimeAndDate.toEpochMilli(rs.getTimestamp("Last_Update"));
+
+        Customer customer = new Customer(customerId, divisionId, postalCode, customerName, address, phoneNumber, creationDate, lastUpdate, createdBy, lastUpdatedBy);
+
+        // Set data needed for GUI operations, this data does not get stored in DB
+        customer.setDivisionName(divisionName == null ? "N/A" : divisionName);
+        customer.setCountry(country == null ? "N/A" : country);
+
+        return customer;
     }
 
 
@@ -86,18 +137,18 @@ public class CustomerQuery {
 
         // Using ORDER_BY is important since certain methods rely on sorting being consistent
         String sql = "SELECT Customer_Id FROM customers ORDER BY Customer_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        return JDBC.query(sql, null, rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        List<Integer> allCustomerId = new ArrayList<>();
+            List<Integer> allCustomerId = new ArrayList<>();
 
-        while(rs.next()){  //rs will read line by line through the results returned
+            while(rs.next()){  //rs will read line by line through the results returned
 
-            // fetch customer_id and add it to list containing all customers
-            allCustomerId.add(rs.getInt("Customer_ID"));
-        }
+                // fetch customer_id and add it to list containing all customers
+                allCustomerId.add(rs.getInt("Customer_ID"));
+            }
 
-        return allCustomerId;
+            return allCustomerId;
+        });
     }
 
 
@@ -109,18 +160,18 @@ public class CustomerQuery {
 
         // Using ORDER_BY is important since certain methods rely on sorting being consistent
         String sql = "SELECT Customer_Name FROM customers ORDER BY Customer_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        return JDBC.query(sql, null, rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        String customerName;
-        ObservableList<String> customerNames = FXCollections.observableArrayList();
+            String customerName;
+            ObservableList<String> customerNames = FXCollections.observableArrayList();
 
-        while(rs.next()){  //rs will read line by line through the results returned
-            customerName = rs.getString("Customer_Name"); // fetch specified data from current row
-            customerNames.add(customerName);
-        }
+            while(rs.next()){  //rs will read line by line through the results returned
+                customerName = rs.getString("Customer_Name"); // fetch specified data from current row
+                customerNames.add(customerName);
+            }
 
-        return customerNames;
+            return customerNames;
+        });
     }
 
 
@@ -133,19 +184,18 @@ public class CustomerQuery {
     public static ObservableList<String> fetchAllNameIdPairs() throws SQLException {
 
         // Using ORDER_BY is important since certain methods rely on sorting being consistent
-        String sql = "SELECT Customer_Name FROM customers ORDER BY Customer_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        // ID is selected along with the name, looking it up by name would cost a query per customer
+        String sql = "SELECT Customer_ID, Customer_Name FROM customers ORDER BY Customer_ID;";
+        return JDBC.query(sql, null, rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        String customerName;
-        ObservableList<String> customerNames = FXCollections.observableArrayList();
+            ObservableList<String> customerNames = FXCollections.observableArrayList();
 
-        while(rs.next()){  //rs will read line by line through the results returned
-            customerName = rs.getString("Customer_Name"); // fetch specified data from current row
-            customerNames.add("(" + fetchId(customerName) + ") " + customerName);
-        }
+            while(rs.next()){  //rs will read line by line through the results returned
+                customerNames.add(NameIdModel.label(rs.getInt("Customer_ID"), rs.getString("Customer_Name")));
+            }
 
-        return customerNames;
+            return customerNames;
+        });
     }
 
 
@@ -157,20 +207,16 @@ public class CustomerQuery {
      */
     public static String fetchAllNameIdPair(int customerId) throws SQLException {
         String sql = "SELECT Customer_Name FROM customers WHERE Customer_ID = ?;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, customerId);
+        return JDBC.query(sql, ps -> ps.setInt(1, customerId), rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+            String nameIdPair = "";
 
-        String customerName;
-        String nameIdPair = "";
+            while(rs.next()){  //rs will read line by line through the results returned
+                nameIdPair = NameIdModel.label(customerId, rs.getString("Customer_Name"));
+            }
 
-        while(rs.next()){  //rs will read line by line through the results returned
-            customerName = rs.getString("Customer_Name"); // fetch specified data from current row
-            nameIdPair = "(" + fetchId(customerName) + ") " + customerName;
-        }
-
-        return nameIdPair;
+            return nameIdPair;
+        });
     }
 
 
@@ -184,16 +230,15 @@ public class CustomerQuery {
 
         String sql = "SELECT Customer_Id FROM customers WHERE Customer_Name = ?;";
 
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setString(1, customerName);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        return JDBC.query(sql, ps -> ps.setString(1, customerName), rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        int customerId = -1;  // Temp value
-        while(rs.next()){  //rs will read line by line through the results returned
-            customerId = rs.getInt("Customer_ID"); // fetch specified data from current row
-        }
+            int customerId = -1;  // Temp value
+            while(rs.next()){  //rs will read line by line through the results returned
+                customerId = rs.getInt("Customer_ID"); // fetch specified data from current row
+            }
 
-        return customerId;
+            return customerId;
+        });
     }
 
 
@@ -204,64 +249,160 @@ public class CustomerQuery {
      */
     public static boolean checkCustomerIdExists(int id) throws SQLException {
 
-        String sql = "SELECT Customer_ID FROM customers ORDER BY Customer_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        String sql = "SELECT 1 FROM customers WHERE Customer_ID = ? LIMIT 1;";  // Primary key lookup, no table scan
+        return JDBC.query(sql, ps -> ps.setInt(1, id), rs -> rs.next());
+    }
 
-        List<Integer> allCustomerId = new ArrayList<>();
 
-        while(rs.next()){  //rs will read line by line through the results returned
+    /**
+     * Writes many new customers to database at once.
+     * Customers are sent in batches, each batch being committed together.
+     * @param customers The customer objects to be written to database.
+     * @return Amount of customers written.
+     */
+    public static int writeCustomers(List<Customer> customers) throws SQLException {
 
-            // fetch customer_id and add it to list containing all customer
-            allCustomerId.add(rs.getInt("Customer_ID"));
+        if (Globals.writeToDatabase) {
+            return JDBC.batch(insertSql, customers, CustomerQuery::bindCustomer, "customers");
         }
+        return 0;
+    }
 
 
-        return allCustomerId.contains(id);
+    /**
+     * Sets the parameters of a customer INSERT.
+     * @param ps Statement created from insertSql.
+     * @param customer Customer being written.
+     */
+    private static void bindCustomer(PreparedStatement ps, Customer customer) throws SQLException {
+        ps.setInt(1, customer.getCustomerId());
+        ps.setString(2, customer.getCustomerName());
+        ps.setString(3, customer.getCustomerAddress());
+        ps.setString(4, customer.getPostalCode());
+        ps.setString(5, customer.getPhoneNumber());
+        ps.setTimestamp(6, customer.getCreationDateTimestamp());
+        ps.setString(7, customer.getCreatedBy());
+        ps.setTimestamp(8, customer.getLastUpdateTimestamp());
+        ps.setString(9, customer.getLastUpdatedBy());
+        ps.setInt(10, customer.getDivisionId());
     }
 
 
     /**
-     * Writes new customer to database.
-     * @param customer The customer object to be written to database.
+     * Updates many customers in one transaction, only columns that changed are written.
+     * An update is only applied if the row still has the last update time of the original,
+     * otherwise someone else changed or deleted the customer since it was loaded (a conflict).
+     * @param originals The customers as they were loaded from database.
+     * @param updates The customers with changes applied, in the same order as originals.
+     * @return IDs of customers not updated because of a conflict.
      */
-    public static void writeCustomer(Customer customer) throws SQLException {
-        if (Globals.writeToDatabase) {
-            String sql = "INSERT INTO customers values(?,?,?,?,?,?,?,?,?,?);";
-            PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-            ps.setInt(1, customer.getCustomerId());
-            ps.setString(2, customer.getCustomerName());
-            ps.setString(3, customer.getCustomerAddress());
-            ps.setString(4, customer.getPostalCode());
-            ps.setString(5, customer.getPhoneNumber());
-            ps.setTimestamp(6, customer.getCreationDateTimestamp());
-            ps.setString(7, customer.getCreatedBy());
-            ps.setTimestamp(8, customer.getLastUpdateTimestamp());
-            ps.setString(9, customer.getLastUpdatedBy());
-            ps.setInt(10, customer.getDivisionId());
+    public static List<Integer> updateCustomers(List<Customer> originals, List<Customer> updates) throws SQLException {
+
+        List<Integer> conflicts = new ArrayList<>();
+
+        if (!Globals.writeToDatabase) {
+            return conflicts;
+        }
+
+        // Updates changing the same columns share a statement, so they can be sent as one batch
+        Map<EnumSet<Customer.Field>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            EnumSet<Customer.Field> changes = updates.get(i).changesFrom(originals.get(i));
+            if (!changes.isEmpty()) {
+                groups.computeIfAbsent(changes, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        JDBC.transaction(connection -> {
+
+            for (Map.Entry<EnumSet<Customer.Field>, List<Integer>> group : groups.entrySet()) {
 
+                // Last_Update is compared within a second, DATETIME columns drop the fraction of a second
+                String sql = updateSql(group.getKey()) + " AND Last_Update BETWEEN ? AND ?;";
 
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
 
-            ps.executeUpdate();
+                    for (int i : group.getValue()) {
+                        int parameter = bindUpdate(ps, group.getKey(), updates.get(i));
+                        long loadedUpdate = originals.get(i).getLastUpdateMillis();
+                        ps.setTimestamp(parameter++, new Timestamp(loadedUpdate - 1000));
+                        ps.setTimestamp(parameter, new Timestamp(loadedUpdate + 1000));
+                        ps.addBatch();
+                    }
+
+                    int[] counts = ps.executeBatch();
+                    for (int j = 0; j < counts.length; j++) {
+                        if (counts[j] == 0) {  // Row no longer matches, SUCCESS_NO_INFO is taken as applied
+                            conflicts.add(updates.get(group.getValue().get(j)).getCustomerId());
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+
+        return conflicts;
+    }
 
+
+    /**
+     * @return UPDATE statement setting given columns along with the last update columns, without a closing semicolon.
+     */
+    private static String updateSql(EnumSet<Customer.Field> changes) {
+
+        StringBuilder sql = new StringBuilder("UPDATE customers SET ");
+        for (Customer.Field field : changes) {
+            sql.append(columnOf(field)).append(" = ?, ");
         }
+        sql.append("Last_Update = ?, Last_Updated_By = ? WHERE Customer_ID = ?");
+
+        return sql.toString();
     }
 
 
     /**
-     * Updates customer in database, by overwriting old customer with new one.
-     * @param newCustomer The new customer to be written to database.
-     * @param customerId The ID of the customer to be overwritten.
+     * Sets the parameters of a statement created by updateSql().
+     * @return Index of the next unused parameter.
      */
-    public static void updateCustomer(Customer newCustomer, int customerId) throws SQLException {
+    private static int bindUpdate(PreparedStatement ps, EnumSet<Customer.Field> changes, Customer updated) throws SQLException {
 
-        String sql = "DELETE FROM customers WHERE Customer_ID = ?;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, customerId);
+        int parameter = 1;
+        for (Customer.Field field : changes) {
+            bindField(ps, parameter++, field, updated);
+        }
+        ps.setTimestamp(parameter++, updated.getLastUpdateTimestamp());
+        ps.setString(parameter++, updated.getLastUpdatedBy());
+        ps.setInt(parameter++, updated.getCustomerId());
+
+        return parameter;
+    }
 
-        ps.executeUpdate();
 
-        writeCustomer(newCustomer);
+    /**
+     * @return Database column holding given field.
+     */
+    private static String columnOf(Customer.Field field) {
+        return switch (field) {
+            case NAME -> "Customer_Name";
+            case ADDRESS -> "Address";
+            case POSTAL_CODE -> "Postal_Code";
+            case PHONE -> "Phone";
+            case DIVISION_ID -> "Division_ID";
+        };
+    }
+
+
+    /**
+     * Sets a single UPDATE parameter to the value of given field.
+     */
+    private static void bindField(PreparedStatement ps, int parameter, Customer.Field field, Customer customer) throws SQLException {
+        switch (field) {
+            case NAME -> ps.setString(parameter, customer.getCustomerName());
+            case ADDRESS -> ps.setString(parameter, customer.getCustomerAddress());
+            case POSTAL_CODE -> ps.setString(parameter, customer.getPostalCode());
+            case PHONE -> ps.setString(parameter, customer.getPhoneNumber());
+            case DIVISION_ID -> ps.setInt(parameter, customer.getDivisionId());
+        }
     }
 
 
@@ -272,85 +413,63 @@ public class CustomerQuery {
      */
     public static ObservableList<Customer> fetchAllCustomersByCountry(String countryNameInput) throws SQLException {
 
-        ObservableList<Customer> customers = FXCollections.observableArrayList();
-        int countryId = CountriesQuery.fetchCountryId(countryNameInput);
-
-        String sql = "SELECT cust.*, cn.Country " +
+        String sql = "SELECT cust.*, fld.Division, cn.Country " +
                      "FROM customers cust " +
                      "INNER JOIN first_level_divisions fld " +
                      "ON cust.Division_ID = fld.Division_ID " +
                      "INNER JOIN countries cn " +
-                     "ON fld.Country_ID = cn.Country_ID WHERE cn.Country_ID = ?;";
-
-
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, countryId);
-
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-
-        int customerId;
-        int divisionId;
-
-        String customerName;
-        String address;
-        String country;
-        String postalCode;
-        String phoneNumber;
-        String createdBy;
-        String lastUpdatedBy;
-
-        LocalDateTime creationDate;
-        LocalDateTime lastUpdate;
-
-
-
+                     "ON fld.Country_ID = cn.Country_ID WHERE cn.Country = ? " +
+                     "ORDER BY cust.Customer_ID;";
 
 
-        while(rs.next()){  //rs will read line by line through the results returned
+        List<Customer> customers = JDBC.query(sql, ps -> {
+            ps.setString(1, countryNameInput);
+            ps.setFetchSize(Integer.MIN_VALUE);  // Stream rows, see fetchAllCustomers()
+        }, rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-            // fetch data from current row
-            customerId = rs.getInt("Customer_ID");
-            divisionId = rs.getInt("Division_ID");
+            List<Customer> results = new ArrayList<>();
 
-            // This data isn't relevant when storing customer to DB, but is used for certain reporting views
-            country = rs.getString("Country");
+            while(rs.next()){  //rs will read line by line through the results returned
+                results.add(readCustomer(rs));
+            }
 
-            customerName = rs.getString("Customer_Name");
-            address = rs.getString("Address");
-            postalCode = rs.getString("Postal_Code");
-            phoneNumber = rs.getString("Phone");
-            createdBy = rs.getString("Created_By");
-            lastUpdatedBy = rs.getString("Last_Updated_By");
+            return results;
+        });
 
-            creationDate = rs.getTimestamp("Create_Date").toLocalDateTime();  // This will convert UTC to local time
-            lastUpdate = rs.getTimestamp("Last_Update").toLocalDateTime();
+        return FXCollections.observableArrayList(customers);
+    }
 
-            Customer customer = new Customer(customerId, divisionId, postalCode, customerName, address, phoneNumber, creationDate, lastUpdate, createdBy, lastUpdatedBy);
 
-            // Set data needed for GUI operations, this data does not get stored in DB
-            customer.setCountry(country);
-            customer.setDivisionName(FirstLevelDivisionQuery.fetchDivisionName(customer.getDivisionId()));
+    /**
+     * Deletes customer in database along with all of their appointments.
+     * Both deletes run in one transaction, if either fails nothing is deleted. Tombstones are left for other clients.
+     * @param customerId The ID of customer to be deleted.
+     * @return Amount of appointments deleted, 0 if nothing is written to database.
+     */
+    public static int deleteCustomerCascade(int customerId) throws SQLException {
 
-            customers.add(customer);
+        if (!Globals.writeToDatabase) {
+            return 0;
         }
 
-        return customers;
-    }
+        return JDBC.transaction(connection -> {
 
+            int appointmentsDeleted;
 
-    /**
-     * Deletes customer in database.
-     * @param customerId The ID of customer to be deleted.
-     */
-    public static void deleteCustomer(int customerId) throws SQLException {
+            TombstoneQuery.writeCustomerAppointments(connection, customerId);
+            TombstoneQuery.write(connection, TombstoneQuery.CUSTOMERS, customerId);
 
-        if (Globals.writeToDatabase){
-            String sql = "DELETE from customers WHERE Customer_ID = ?;";
-            PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-            ps.setInt(1, customerId);
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM appointments WHERE Customer_ID = ?;")) {
+                ps.setInt(1, customerId);
+                appointmentsDeleted = ps.executeUpdate();
+            }
 
-            ps.executeUpdate();
-        }
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM customers WHERE Customer_ID = ?;")) {
+                ps.setInt(1, customerId);
+                ps.executeUpdate();
+            }
+
+            return appointmentsDeleted;
+        });
     }
 }
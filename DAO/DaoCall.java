@@ -0,0 +1,9 @@
+package DAO;
+
+import java.sql.SQLException;
+
+// A single DAO method call run in the background, such as CustomerQuery::fetchAllId
+// See AsyncDao.supply() for implementation
+public interface DaoCall<T> {
+    T call() throws SQLException;
+}
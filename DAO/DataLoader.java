@@ -0,0 +1,357 @@
+package DAO;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import model.Appointment;
+import model.CountriesAndDivisions;
+import model.Customer;
+import model.Globals;
+import model.StringPool;
+import model.TimeAndDate;
+import model.Tools;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+
+/**
+ *  Loads customers, countries and appointments into memory while the login screen is showing.
+ *  The loads run in parallel, each one on its own pooled connection, and build plain lists.
+ *  Each list is then published to its static observable list in a single change on the JavaFX application thread,
+ *  so listeners of those lists and the screens showing them only ever run on that thread.
+ *  Screens never wait for the data, they continue once the readiness future of the data they need completes.
+ *
+ *  If a snapshot was saved when the application last closed, the lists are restored from it
+ *  and only rows updated since are fetched, see ModelSnapshot.
+ */
+public class DataLoader {
+
+    private static final long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();  // Milestones are measured from process start
+    private static final Set<String> loggedMilestones = ConcurrentHashMap.newKeySet();
+
+    private static CompletableFuture<Void> customersReady = new CompletableFuture<>();
+    private static CompletableFuture<Void> countriesReady = new CompletableFuture<>();
+    private static CompletableFuture<Void> appointmentsReady = new CompletableFuture<>();
+    private static final CompletableFuture<Void> guiStarted = new CompletableFuture<>();  // Lists are published once the JavaFX application thread runs
+
+    private static volatile boolean loadFailed = false;  // Lists are incomplete, no snapshot is saved
+    private static final AtomicBoolean snapshotSaved = new AtomicBoolean(false);
+
+
+    /**
+     *  Starts loading all data in the background and returns immediately.
+     */
+    public static void startLoading() {
+
+        ExecutorService executor = Executors.newFixedThreadPool(Globals.startupLoaderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "startup-loader");
+            thread.setDaemon(true);  // Never keeps the application open
+            return thread;
+        });
+
+        // Snapshot is read once, each list then either restores from it or loads everything from the database
+        CompletableFuture<ModelSnapshot> snapshot = CompletableFuture.supplyAsync(DataLoader::readSnapshot, executor);
+
+        customersReady = snapshot.thenCompose(restored -> restored == null ?
+                load("customers", executor, Customer.allCustomers, CustomerQuery::fetchAllCustomers) :
+                load("customers (snapshot)", executor, Customer.allCustomers, () -> restoreCustomers(restored)));
+
+        countriesReady = snapshot.thenCompose(restored -> restored == null ?
+                load("countries", executor, CountriesAndDivisions.countries, CountriesQuery::createCountryDivisionPairs) :
+                load("countries (snapshot)", executor, CountriesAndDivisions.countries, () -> {
+                    preloadReferenceData();
+                    return restored.getCountries();  // Countries and divisions are fixed, they are not fetched again
+                }));
+
+        appointmentsReady = snapshot.thenCompose(restored -> restored == null ?
+                load("appointments", executor, Appointment.allAppointments, AppointmentQuery::fetchAllAppointments) :
+                load("appointments (snapshot)", executor, Appointment.allAppointments, () -> restoreAppointments(restored)));
+
+        CompletableFuture.allOf(customersReady, countriesReady, appointmentsReady).whenComplete((ignored, e) -> {
+            executor.shutdown();
+            logMilestone("All data loaded");
+            Tools.consoleMessage(Tools.MsgType.INFO, "Distinct values, " + StringPool.summary(), "DataLoader.startLoading()");
+        });
+    }
+
+
+    /**
+     *  Runs a single load on the executor, then publishes the loaded rows on the JavaFX application thread.
+     *  Logs how long loading and publishing took. A failed load is logged and publishes nothing, the list is left empty.
+     *  @param name Name of the data being loaded, used for logging.
+     *  @param executor Executor running the load.
+     *  @param target List the rows are published to, replacing anything in it.
+     *  @param task Load to run, returns the rows loaded.
+     *  @return Future completing once the rows are in the target list.
+     */
+    private static <T> CompletableFuture<Void> load(String name, ExecutorService executor, ObservableList<T> target, LoadTask<T> task) {
+
+        return CompletableFuture.supplyAsync(() -> {
+
+            long start = System.nanoTime();
+
+            try {
+                List<T> rows = task.load();
+                Tools.consoleMessage(Tools.MsgType.INFO, "Found " + rows.size() + " " + name + " in DB (" + elapsedMs(start) + " ms)", "DataLoader.load()");
+                return rows;
+            }
+            catch (Exception e) {
+                loadFailed = true;
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to load " + name + ": " + e.getMessage(), "DataLoader.load()");
+                return null;
+            }
+        }, executor).thenCompose(rows -> rows == null ? CompletableFuture.completedFuture(null) : publish(name, target, rows));
+    }
+
+
+    /**
+     *  Replaces the contents of a list with loaded rows on the JavaFX application thread, in a single list change.
+     *  Waits for the GUI to be started first, loads finishing before that are published as soon as it is.
+     *  @return Future completing once the rows are in the list.
+     */
+    private static <T> CompletableFuture<Void> publish(String name, ObservableList<T> target, List<T> rows) {
+
+        CompletableFuture<Void> published = new CompletableFuture<>();
+
+        guiStarted.thenRun(() -> Platform.runLater(() -> {
+
+            long start = System.nanoTime();
+
+            try {
+                target.setAll(rows);
+                Tools.consoleMessage(Tools.MsgType.INFO, "Published " + rows.size() + " " + name + " (" + elapsedMs(start) + " ms)", "DataLoader.publish()");
+            }
+            catch (RuntimeException e) {
+                loadFailed = true;
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to publish " + name + ": " + e.getMessage(), "DataLoader.publish()");
+            }
+
+            published.complete(null);
+        }));
+
+        return published;
+    }
+
+
+    /**
+     *  Lets loaded lists be published, must be called on the JavaFX application thread once the GUI has started.
+     */
+    public static void guiStarted() {
+        guiStarted.complete(null);
+    }
+
+
+    /**
+     *  Reads reference data now rather than when the first form needs it.
+     *  Used when countries come from the snapshot, otherwise loading countries reads it.
+     *  The snapshot is usable without it, so failing is only logged.
+     */
+    private static void preloadReferenceData() {
+        try {
+            ReferenceData.get();
+        }
+        catch (SQLException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Could not load reference data: " + e.getMessage(), "DataLoader.preloadReferenceData()");
+        }
+    }
+
+
+    /**
+     *  @return Snapshot saved when the application last closed, null if there is none or it cannot be used.
+     */
+    private static ModelSnapshot readSnapshot() {
+
+        if (!Globals.generateFiles) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            ModelSnapshot snapshot = ModelSnapshot.read(Paths.get(Globals.SNAPSHOT_PATH));
+            if (snapshot != null) {
+                Tools.consoleMessage(Tools.MsgType.INFO, "Read snapshot (" + elapsedMs(start) + " ms)", "DataLoader.readSnapshot()");
+            }
+            return snapshot;
+        }
+        catch (IOException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to read snapshot: " + e.getMessage(), "DataLoader.readSnapshot()");
+            return null;
+        }
+    }
+
+
+    /**
+     *  Takes customers from snapshot, then fetches customers updated since and drops customers deleted since.
+     *  If the database cannot be reached the snapshot is used as is.
+     *  @return Customers loaded.
+     */
+    private static List<Customer> restoreCustomers(ModelSnapshot snapshot) {
+
+        Map<Integer, Customer> customers = byId(snapshot.getCustomers(), Customer::getCustomerId);
+
+        try {
+            List<Customer> updated = CustomerQuery.fetchCustomersUpdatedSince(since(snapshot.getCustomerWatermark()));
+            for (Customer customer : updated) {
+                customers.put(customer.getCustomerId(), customer);
+            }
+
+            int removed = 0;
+            if (WriteBehindQueue.pendingCount() == 0 && CustomerQuery.countCustomers() != customers.size()) {
+                removed = customers.size();
+                customers.keySet().retainAll(new HashSet<>(CustomerQuery.fetchAllId()));  // Some were deleted since the snapshot
+                removed -= customers.size();
+            }
+
+            Tools.consoleMessage(Tools.MsgType.INFO, "Customers since snapshot: " + updated.size() + " updated, " + removed + " deleted", "DataLoader.restoreCustomers()");
+        }
+        catch (SQLException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Could not fetch customers updated since snapshot, using snapshot: " + e.getMessage(), "DataLoader.restoreCustomers()");
+        }
+
+        return new ArrayList<>(customers.values());
+    }
+
+
+    /**
+     *  Takes appointments from snapshot, then fetches appointments updated since and drops appointments deleted since.
+     *  If the database cannot be reached the snapshot is used as is.
+     *  @return Appointments loaded.
+     */
+    private static List<Appointment> restoreAppointments(ModelSnapshot snapshot) {
+
+        Map<Integer, Appointment> appointments = byId(snapshot.getAppointments(), Appointment::getAppointmentId);
+
+        try {
+            List<Appointment> updated = AppointmentQuery.fetchAppointmentsUpdatedSince(since(snapshot.getAppointmentWatermark()));
+            for (Appointment appointment : updated) {
+                appointments.put(appointment.getAppointmentId(), appointment);
+            }
+
+            int removed = 0;
+            if (WriteBehindQueue.pendingCount() == 0 && AppointmentQuery.countAppointments() != appointments.size()) {
+                removed = appointments.size();
+                appointments.keySet().retainAll(new HashSet<>(AppointmentQuery.fetchAllId()));  // Some were deleted since the snapshot
+                removed -= appointments.size();
+            }
+
+            Tools.consoleMessage(Tools.MsgType.INFO, "Appointments since snapshot: " + updated.size() + " updated, " + removed + " deleted", "DataLoader.restoreAppointments()");
+        }
+        catch (SQLException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Could not fetch appointments updated since snapshot, using snapshot: " + e.getMessage(), "DataLoader.restoreAppointments()");
+        }
+
+        return new ArrayList<>(appointments.values());
+    }
+
+
+    /**
+     *  @return Rows by ID, in the order given.
+     */
+    private static <T> Map<Integer, T> byId(List<T> rows, ToIntFunction<T> idOf) {
+
+        Map<Integer, T> byId = new LinkedHashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.applyAsInt(row), row);
+        }
+        return byId;
+    }
+
+
+    /**
+     *  @return Time to fetch rows updated after in epoch milliseconds, a little before the watermark since other users' clocks may differ.
+     */
+    private static long since(long watermark) {
+        return watermark == TimeAndDate.NO_TIME ? 86400000L : watermark - Globals.snapshotWatermarkMarginSec * 1000L;  // 1970-01-02 in UTC fits every DATETIME and TIMESTAMP column
+    }
+
+
+    /**
+     *  Saves the local lists to a snapshot, used to start faster next time.
+     *  Skipped if loading failed, or if saves could not be written to database (the database is then newer than the snapshot watermark suggests).
+     *  Only the first call saves, it is called both when the GUI closes and from a shutdown hook.
+     */
+    public static void saveSnapshot() {
+
+        if (!Globals.generateFiles || !Globals.writeToDatabase || !snapshotSaved.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (!CompletableFuture.allOf(customersReady, countriesReady, appointmentsReady).isDone() || loadFailed) {
+            Tools.consoleMessage(Tools.MsgType.INFO, "Data not fully loaded, snapshot not saved", "DataLoader.saveSnapshot()");
+            return;
+        }
+        if (WriteBehindQueue.pendingCount() > 0 || !WriteBehindQueue.getConflicts().isEmpty()) {
+            Tools.consoleMessage(Tools.MsgType.INFO, "Unsaved changes remain, snapshot not saved", "DataLoader.saveSnapshot()");
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            ModelSnapshot.write(Paths.get(Globals.SNAPSHOT_PATH), CountriesAndDivisions.countries, Customer.allCustomers, Appointment.allAppointments);
+            Tools.consoleMessage(Tools.MsgType.INFO, "Saved snapshot (" + elapsedMs(start) + " ms)", "DataLoader.saveSnapshot()");
+        }
+        catch (IOException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to save snapshot: " + e.getMessage(), "DataLoader.saveSnapshot()");
+        }
+    }
+
+
+    /**
+     * @return Future completing once customers are in Customer.allCustomers, it completes on the JavaFX application thread.
+     */
+    public static CompletableFuture<Void> customersReady() {return customersReady;}
+
+
+    /**
+     * @return Future completing once countries are in CountriesAndDivisions.countries, it completes on the JavaFX application thread.
+     */
+    public static CompletableFuture<Void> countriesReady() {return countriesReady;}
+
+
+    /**
+     * @return Future completing once appointments are in Appointment.allAppointments, it completes on the JavaFX application thread.
+     */
+    public static CompletableFuture<Void> appointmentsReady() {return appointmentsReady;}
+
+
+    /**
+     *  Logs how long it took since startup to reach a milestone, such as the login screen being shown.
+     *  Each milestone is only logged the first time it is reached.
+     *  @param milestone Name of the milestone.
+     */
+    public static void logMilestone(String milestone) {
+        if (loggedMilestones.add(milestone)) {
+            Tools.consoleMessage(Tools.MsgType.INFO, milestone + " after " + (System.currentTimeMillis() - jvmStartTime) + " ms", "DataLoader.logMilestone()");
+        }
+    }
+
+
+    /**
+     *  @return Milliseconds passed since given System.nanoTime() value.
+     */
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+
+    // Used to run a single startup query, returning the rows loaded
+    private interface LoadTask<T> {
+        List<T> load() throws Exception;
+    }
+}
@@ -0,0 +1,298 @@
+package DAO;
+
+import model.Appointment;
+import model.Customer;
+import model.Globals;
+import model.Tools;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
+
+
+/**
+ *  Hands out unique appointment and customer IDs.
+ *  IDs are reserved from the database in blocks (hi/lo), so creating a record normally needs no query at all.
+ *  Blocks are reserved with a single atomic UPDATE, which keeps IDs unique when several clients are running.
+ *  The next block is reserved in the background once Globals.idReserveAheadAt IDs are left in the current one,
+ *  so handing out an ID never waits for the database unless IDs are used faster than blocks can be reserved.
+ *  When Globals.writeToDatabase is false nothing is reserved, IDs simply continue from the highest local ID.
+ *
+ *  Reservations are kept in the id_allocation table, created by Globals.CLIENT_TABLES_SCRIPT along with the database.
+ *  The table is never created at runtime, if it is missing no records can be created and the error says so.
+ *
+ *  Along with the first block a spare block of Globals.offlineIdBlockSize IDs is reserved, records created while the
+ *  database cannot be reached take their IDs from it. Those IDs belong to this client alone, so offline records never
+ *  collide with records other clients create meanwhile. Once the spare block is used up, no records can be created
+ *  until the database is back and a new spare block is reserved.
+ */
+public class IdAllocator {
+
+    private static final Sequence appointments = new Sequence("appointments", "Appointment_ID", Appointment.allAppointments, Appointment::getAppointmentId);
+    private static final Sequence customers = new Sequence("customers", "Customer_ID", Customer.allCustomers, Customer::getCustomerId);
+
+
+    /**
+     * @return Unused appointment ID.
+     */
+    public static int nextAppointmentId() throws SQLException {return appointments.next();}
+
+
+    /**
+     * @return Unused customer ID.
+     */
+    public static int nextCustomerId() throws SQLException {return customers.next();}
+
+
+    /**
+     *  Starts reserving the first block of every table in the background, along with the spare block used while offline.
+     *  Called at startup, so the spare blocks exist even if the database is lost before anything is created.
+     *  Failures are logged, the block is then reserved again when the first ID is needed.
+     */
+    public static void reserveAhead() {
+
+        if (!Globals.writeToDatabase || !JDBC.isOnline()) {
+            return;
+        }
+
+        appointments.reserveAhead();
+        customers.reserveAhead();
+    }
+
+
+    /**
+     *  The IDs of a single table, along with the block currently being handed out.
+     */
+    private static class Sequence {
+
+        private final String tableName;
+        private final String idColumn;
+        private final List<?> localList;
+        private final ToIntFunction<Object> idOf;
+
+        private int next = 0;  // Next ID to hand out
+        private int end = 0;  // First ID outside the reserved block
+        private int spareNext = 0;  // First ID of the spare block, used while offline
+        private int spareEnd = 0;  // First ID outside the spare block, equal to spareNext when there is none
+        private CompletableFuture<Block> reserving;  // Next block being reserved in the background, null if none
+
+
+        @SuppressWarnings("unchecked")
+        <T> Sequence(String tableName, String idColumn, List<T> localList, ToIntFunction<T> idOf) {
+            this.tableName = tableName;
+            this.idColumn = idColumn;
+            this.localList = localList;
+            this.idOf = (ToIntFunction<Object>) idOf;
+        }
+
+
+        /**
+         * @return Next unused ID, switching to the next block when the current one runs out.
+         */
+        synchronized int next() throws SQLException {
+
+            if (next >= end) {
+                if (!Globals.writeToDatabase) {
+                    continueFromLocal();
+                }
+                else {
+                    nextBlock();
+                }
+            }
+
+            int id = next++;
+
+            if (Globals.writeToDatabase && end - next <= Globals.idReserveAheadAt && reserving == null) {
+                reserveAhead();
+            }
+
+            return id;
+        }
+
+
+        /**
+         *  Starts handing out the block reserved in the background, only waiting for it if it is not reserved yet.
+         *  A reservation that already failed is started again, unless the database is offline.
+         */
+        private void nextBlock() throws SQLException {
+
+            if (reserving == null || reserving.isCompletedExceptionally()) {
+                if (!JDBC.isOnline()) {
+                    reserving = null;
+                    continueOffline();
+                    return;
+                }
+                reserveAhead();
+            }
+
+            CompletableFuture<Block> block = reserving;
+            reserving = null;
+
+            try {
+                takeBlock(await(block));
+            }
+            catch (SQLException e) {
+                if (JDBC.reconnect()) {  // Logs by itself when the database went offline
+                    throw e;
+                }
+                continueOffline();
+            }
+        }
+
+
+        /**
+         *  Starts reserving the next block in the background, along with the spare block if there is none.
+         *  Must be called holding the lock, the reservation itself runs without it.
+         */
+        private void reserveAhead() {
+
+            if (reserving != null) {
+                return;
+            }
+
+            int spareSize = spareNext >= spareEnd ? Globals.offlineIdBlockSize : 0;
+            reserving = AsyncDao.supply("IdAllocator.reserve", () -> new Block(reserve(Globals.idBlockSize + spareSize), spareSize));
+
+            reserving.whenComplete((block, e) -> {
+                if (e != null) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to reserve " + tableName + " IDs ahead: " + cause.getMessage(), "IdAllocator.reserveAhead()");
+                }
+            });
+        }
+
+
+        /**
+         *  Waits for a block reserved in the background, at most as long as a reservation may wait for a connection.
+         */
+        private Block await(CompletableFuture<Block> block) throws SQLException {
+
+            try {
+                return block.get(Globals.connectionTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            catch (ExecutionException e) {
+                throw e.getCause() instanceof SQLException cause ? cause : new SQLException("Failed to reserve " + tableName + " IDs", e.getCause());
+            }
+            catch (TimeoutException e) {
+                throw new SQLException("Timed out reserving " + tableName + " IDs", e);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while reserving " + tableName + " IDs", e);
+            }
+        }
+
+
+        /**
+         *  Starts handing out a reserved block, keeping the spare block reserved along with it.
+         */
+        private void takeBlock(Block block) {
+
+            next = block.first;
+            end = block.first + Globals.idBlockSize;
+
+            if (block.spareSize > 0) {
+                spareNext = end;
+                spareEnd = end + block.spareSize;
+            }
+        }
+
+
+        /**
+         *  Reserves a block of IDs in the database, without holding the lock of the sequence.
+         *  The block never starts below the highest ID in the table, so rows added by older clients are skipped.
+         *  @param blockSize Amount of IDs to reserve.
+         *  @return First ID of the block.
+         */
+        private int reserve(int blockSize) throws SQLException {
+
+            int first;
+            String highestId = "(SELECT COALESCE(MAX(" + idColumn + "), 0) + 1 FROM " + tableName + ")";
+
+            // LAST_INSERT_ID() is kept per connection, so the whole reservation must use the same connection
+            try (Connection connection = JDBC.getConnection()) {
+
+                // First use, start counting from the highest existing ID
+                try (PreparedStatement ps = connection.prepareStatement("INSERT IGNORE INTO id_allocation (Table_Name, Next_Id) SELECT ?, " + highestId + ";")) {
+                    ps.setString(1, tableName);
+                    ps.executeUpdate();
+                }
+
+                // Moves Next_Id forward by one block, the row lock makes this safe across clients
+                try (PreparedStatement ps = connection.prepareStatement("UPDATE id_allocation SET Next_Id = LAST_INSERT_ID(GREATEST(Next_Id, " + highestId + ") + ?) WHERE Table_Name = ?;")) {
+                    ps.setInt(1, blockSize);
+                    ps.setString(2, tableName);
+                    ps.executeUpdate();
+                }
+
+                try (PreparedStatement ps = connection.prepareStatement("SELECT LAST_INSERT_ID();"); ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    first = rs.getInt(1) - blockSize;
+                }
+            }
+            catch (SQLException e) {
+                if ("42S02".equals(e.getSQLState())) {  // Table does not exist
+                    throw new SQLException("Table id_allocation is missing, create it with " + Globals.CLIENT_TABLES_SCRIPT + " before creating records", e.getSQLState(), e);
+                }
+                throw e;
+            }
+
+            Tools.consoleMessage(Tools.MsgType.INFO, "Reserved " + tableName + " IDs " + first + " to " + (first + blockSize - 1), "IdAllocator.reserve()");
+            return first;
+        }
+
+
+        /**
+         *  Used when nothing is written to the database, IDs continue from the highest ID held in memory.
+         */
+        private void continueFromLocal() {
+
+            int highest = 0;
+            for (Object entity : localList) {
+                highest = Math.max(highest, idOf.applyAsInt(entity));
+            }
+
+            next = Math.max(next, highest + 1);  // ID will never = 0
+            end = Integer.MAX_VALUE;  // No need to reserve again
+        }
+
+
+        /**
+         *  Used while offline, hands out the spare block. Its remaining IDs are still used once back online.
+         */
+        private void continueOffline() throws SQLException {
+
+            if (spareNext >= spareEnd) {
+                throw new SQLException("Working offline and all IDs reserved for new " + tableName + " are used, they can be created again once the database is back");
+            }
+
+            next = spareNext;
+            end = spareEnd;
+            spareNext = spareEnd;  // Reserved again along with the next block once back online
+
+            Tools.consoleMessage(Tools.MsgType.INFO, "Offline, using spare " + tableName + " IDs " + next + " to " + (end - 1), "IdAllocator.continueOffline()");
+        }
+    }
+
+
+    /**
+     *  A reserved block, followed by a spare block if one was reserved along with it.
+     */
+    private static class Block {
+
+        final int first;
+        final int spareSize;  // Zero if no spare block was reserved
+
+        Block(int first, int spareSize) {
+            this.first = first;
+            this.spareSize = spareSize;
+        }
+    }
+}
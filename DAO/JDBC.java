@@ -3,10 +3,14 @@ import model.Globals;
 import model.Tools;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 
 /**
  *  This class used for opening and closing connection to database.
+ *  Connections are handed out by a pool, so several screens and background tasks can query at the same time.
  */
 public abstract class JDBC {
 
@@ -15,21 +19,26 @@ public abstract class JDBC {
     private static final String vendor = ":mysql:";
     private static final String location = "//localhost/";
     private static final String databaseName = "client_schedule";
-    private static final String jdbcUrl = protocol + vendor + location + databaseName + "?serverTimezone=UTC";
+    private static final String jdbcUrl = protocol + vendor + location + databaseName + "?serverTimezone=UTC&rewriteBatchedStatements=true";  // Batched inserts are sent as multi-row inserts
     private static final String driver = "com.mysql.cj.jdbc.Driver"; // Driver reference
     private static final String userName = Globals.databaseUsername; // Username
     private static final String password = Globals.databasePassword; // Password
-    public static Connection connection;  // Connection Interface
+    private static ConnectionPool pool;  // Hands out connections, see getConnection()
+    private static volatile boolean online = false;  // False while the database cannot be reached, see reconnect()
 
 
     /**
      *  Attempts to open connection to database.
+     *  Sets up the connection pool and verifies the database can be reached.
      */
     public static void openConnection()
     {
         try {
             Class.forName(driver); // Locate Driver
-            connection = DriverManager.getConnection(jdbcUrl, userName, password); // Reference Connection object
+            pool = new ConnectionPool(jdbcUrl, userName, password, Globals.databasePoolSize, Globals.connectionTimeoutMs,
+                    Globals.idleValidationMs, Globals.maxConnectionLifetimeMs, Globals.leakDetectionThresholdMs, Globals.statementCacheSize);
+            pool.warmUp();  // Opens the first connection
+            online = true;
             Tools.consoleMessage(Tools.MsgType.INFO, "Connected to DB", "JDBC.openConnection()");
         }
         catch(Exception e)
@@ -42,12 +51,222 @@ public abstract class JDBC {
     }
 
 
+    /**
+     * @return False if the database could not be reached the last time it was checked.
+     */
+    public static boolean isOnline() {return online;}
+
+
+    /**
+     *  Checks whether the database can be reached, opening the connection pool if that failed at startup.
+     *  Logs when the database goes offline or comes back.
+     *  @return True if the database can be reached.
+     */
+    public static synchronized boolean reconnect() {
+
+        boolean wasOnline = online;
+
+        if (pool == null) {
+            openConnection();
+        }
+        else {
+            try {
+                pool.warmUp();
+                online = true;
+            }
+            catch (SQLException e) {
+                online = false;
+            }
+        }
+
+        if (online != wasOnline) {
+            Tools.consoleMessage(online ? Tools.MsgType.INFO : Tools.MsgType.ERROR,
+                    online ? "Database reachable again" : "Database unreachable, working offline", "JDBC.reconnect()");
+        }
+
+        return online;
+    }
+
+
+    /**
+     *  Leases a connection from the pool.
+     *  Always use with try-with-resources, closing the connection returns it to the pool.
+     *  @return A connection reserved for the caller until it is closed.
+     */
+    public static Connection getConnection() throws SQLException {
+
+        if (pool == null) {
+            throw new SQLException("Database connection has not been opened");
+        }
+
+        return pool.lease();
+    }
+
+
+    /**
+     *  Runs a query and reads its results.
+     *  The statement comes from the connection's statement cache, the result set is always closed
+     *  and the connection is returned to the pool, even if reading fails.
+     *  @param sql Query to run.
+     *  @param binder Sets the query parameters, can be null if there are none.
+     *  @param reader Reads the result set, it is only valid while reader is running.
+     *  @return Value created by reader.
+     */
+    public static <T> T query(String sql, StatementBinder binder, ResultReader<T> reader) throws SQLException {
+
+        try (Connection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            if (binder != null) {
+                binder.bind(ps);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return reader.read(rs);
+            }
+        }
+    }
+
+
+    /**
+     *  Runs an INSERT, UPDATE or DELETE statement.
+     *  @param sql Statement to run.
+     *  @param binder Sets the statement parameters, can be null if there are none.
+     *  @return Amount of rows affected.
+     */
+    public static int update(String sql, StatementBinder binder) throws SQLException {
+
+        try (Connection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            if (binder != null) {
+                binder.bind(ps);
+            }
+
+            return ps.executeUpdate();
+        }
+    }
+
+
+    /**
+     *  Runs several statements in one transaction, either all of them are committed or none are.
+     *  Anything thrown by work rolls the transaction back, not only SQLException.
+     *  @param work Statements to run, using the given connection.
+     *  @return Value returned by work.
+     */
+    public static <T> T transaction(TransactionWork<T> work) throws SQLException {
+
+        try (Connection connection = getConnection()) {
+
+            connection.setAutoCommit(false);
+            boolean committed = false;
+
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                committed = true;
+                return result;
+            }
+            catch (SQLException | RuntimeException e) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Transaction rolled back: " + e, "JDBC.transaction()");
+                throw e;
+            }
+            finally {
+                if (!committed) {
+                    connection.rollback();  // Must happen before auto-commit is switched back on, which would commit the open transaction
+                }
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+
+    /**
+     *  Runs a statement once for every row, sending rows to the database in batches.
+     *  Each batch is committed in its own transaction, so a failure only rolls back the batch it happened in.
+     *  Rows written in earlier batches stay written.
+     *  @param sql Statement to run, usually an INSERT.
+     *  @param rows Rows to write.
+     *  @param binder Sets the statement parameters for a row.
+     *  @param label Name of the rows, used for logging.
+     *  @return Amount of rows written.
+     */
+    public static <T> int batch(String sql, List<? extends T> rows, RowBinder<T> binder, String label) throws SQLException {
+
+        int batchSize = Globals.writeBatchSize;
+        int written = 0;
+        long totalStart = System.nanoTime();
+
+        try (Connection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            connection.setAutoCommit(false);
+
+            for (int from = 0; from < rows.size(); from += batchSize) {
+
+                int to = Math.min(from + batchSize, rows.size());
+                long batchStart = System.nanoTime();
+
+                try {
+                    for (T row : rows.subList(from, to)) {
+                        binder.bind(ps, row);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    connection.commit();
+                }
+                catch (SQLException e) {
+                    connection.rollback();
+                    ps.clearBatch();
+                    Tools.consoleMessage(Tools.MsgType.ERROR, "Batch of " + label + " " + from + "-" + (to - 1) + " rolled back: " + e.getMessage(), "JDBC.batch()");
+                    throw e;
+                }
+
+                written += to - from;
+                logThroughput("Wrote " + label + " " + from + "-" + (to - 1), to - from, batchStart);
+            }
+
+            connection.setAutoCommit(true);
+        }
+
+        logThroughput("Wrote " + written + " " + label, written, totalStart);
+        return written;
+    }
+
+
+    /**
+     *  Logs how long writing took, along with rows written per second.
+     */
+    private static void logThroughput(String message, int rows, long startNanos) {
+        double ms = (System.nanoTime() - startNanos) / 1_000_000.0;
+        double rowsPerSecond = ms == 0 ? 0 : rows * 1000 / ms;
+        Tools.consoleMessage(Tools.MsgType.INFO, String.format("%s in %.1f ms (%.0f rows/s)", message, ms, rowsPerSecond), "JDBC.batch()");
+    }
+
+
+    /**
+     * @return Statement cache statistics, such as hits and misses, for all pooled connections.
+     */
+    public static String getStatementCacheSummary() {
+        return StatementCache.getSummary();
+    }
+
+
+    /**
+     * @return Current connection pool statistics, such as active/idle counts and wait times.
+     */
+    public static ConnectionPool.Metrics getPoolMetrics() {
+        return pool == null ? null : pool.getMetrics();
+    }
+
+
     /**
      *  Attempts to close connection to database.
+     *  Closes every pooled connection.
      */
     public static void closeConnection() {
         try {
-            connection.close();
+            Tools.consoleMessage(Tools.MsgType.INFO, "Connection pool " + pool.getMetrics(), "JDBC.closeConnection()" );
+            Tools.consoleMessage(Tools.MsgType.INFO, "Statement cache " + StatementCache.getSummary(), "JDBC.closeConnection()" );
+            Tools.consoleMessage(Tools.MsgType.INFO, "Background query latency\n" + AsyncDao.getLatencySummary().strip(), "JDBC.closeConnection()" );
+            pool.close();
             Tools.consoleMessage(Tools.MsgType.INFO, "Connection closed", "JDBC.closeConnection()" );
         }
         catch(Exception e)
@@ -55,4 +274,4 @@ public abstract class JDBC {
             Tools.consoleMessage(Tools.MsgType.ERROR, e.getMessage(), "JDBC.closeConnection()" );
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,480 @@
+package DAO;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.Appointment;
+import model.AppointmentStore;
+import model.CountriesAndDivisions;
+import model.Customer;
+import model.TimeAndDate;
+import model.Tools;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ *  A binary copy of the local country, customer and appointment lists, written when the application closes.
+ *  At startup the lists are restored from it instead of loading every row, only rows updated since are fetched (see DataLoader).
+ *
+ *  Layout: [header][string table][countries][customers][appointments][CRC32 of everything before it].
+ *  Every string is stored once in the string table, records refer to it by index (-1 for null).
+ *  Customer and appointment times and the watermarks are stored as epoch milliseconds in UTC, as they are kept in memory,
+ *  so a snapshot stays valid when the time zone changes.
+ *  A snapshot with another format version or a bad checksum is ignored, the lists are then loaded from the database.
+ */
+public class ModelSnapshot {
+
+    private static final int MAGIC = 0x41505353;  // "APSS"
+    private static final short FORMAT_VERSION = 3;  // Increase when the layout changes, older snapshots are then ignored
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int NULL_STRING = -1;
+
+    private final List<CountriesAndDivisions> countries;
+    private final List<Customer> customers;
+    private final List<Appointment> appointments;
+    private final long customerWatermark;
+    private final long appointmentWatermark;
+
+
+    private ModelSnapshot(List<CountriesAndDivisions> countries, List<Customer> customers, List<Appointment> appointments, long customerWatermark, long appointmentWatermark) {
+        this.countries = countries;
+        this.customers = customers;
+        this.appointments = appointments;
+        this.customerWatermark = customerWatermark;
+        this.appointmentWatermark = appointmentWatermark;
+    }
+
+
+    /**
+     * @return Countries stored in snapshot.
+     */
+    public List<CountriesAndDivisions> getCountries() {return countries;}
+
+
+    /**
+     * @return Customers stored in snapshot.
+     */
+    public List<Customer> getCustomers() {return customers;}
+
+
+    /**
+     * @return Appointments stored in snapshot.
+     */
+    public List<Appointment> getAppointments() {return appointments;}
+
+
+    /**
+     * @return Latest last update of the stored customers in epoch milliseconds, TimeAndDate.NO_TIME if there are none.
+     */
+    public long getCustomerWatermark() {return customerWatermark;}
+
+
+    /**
+     * @return Latest last update of the stored appointments in epoch milliseconds, TimeAndDate.NO_TIME if there are none.
+     */
+    public long getAppointmentWatermark() {return appointmentWatermark;}
+
+
+    /**
+     *  Writes a snapshot of the given lists. The file is written next to the old one and then moved over it,
+     *  so a crash while writing never leaves a half written snapshot behind.
+     * @param file Snapshot file.
+     * @param countries Countries to store.
+     * @param customers Customers to store.
+     * @param appointments Appointments to store.
+     */
+    public static void write(Path file, List<CountriesAndDivisions> countries, List<Customer> customers, List<Appointment> appointments) throws IOException {
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new Writer(channel).writeAll(countries, customers, appointments);
+            channel.force(false);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     *  Reads a snapshot written by write().
+     * @param file Snapshot file.
+     * @return Snapshot, null if there is none or it cannot be used.
+     */
+    public static ModelSnapshot read(Path file) throws IOException {
+
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (data.capacity() < 4 + 2 + 4 || data.getInt() != MAGIC) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Not a snapshot file: " + file, "ModelSnapshot.read()");
+                return null;
+            }
+
+            short version = data.getShort();
+            if (version != FORMAT_VERSION) {
+                Tools.consoleMessage(Tools.MsgType.INFO, "Snapshot format " + version + " is outdated, loading from database", "ModelSnapshot.read()");
+                return null;
+            }
+
+            // Checksum covers everything before it
+            CRC32 crc = new CRC32();
+            ByteBuffer content = data.duplicate();
+            content.position(0).limit(data.capacity() - 4);
+            crc.update(content);
+            if ((int) crc.getValue() != data.getInt(data.capacity() - 4)) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Snapshot is damaged, loading from database", "ModelSnapshot.read()");
+                return null;
+            }
+
+            data.limit(data.capacity() - 4);
+            return new Reader(data).readAll();
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Snapshot is damaged, loading from database", "ModelSnapshot.read()");
+            return null;
+        }
+    }
+
+
+    /**
+     *  Writes the snapshot through a fixed size buffer, strings are collected in a first pass over the lists.
+     */
+    private static class Writer {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> stringTable = new ArrayList<>();
+
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+
+        void writeAll(List<CountriesAndDivisions> countries, List<Customer> customers, List<Appointment> appointments) throws IOException {
+
+            collectStrings(countries, customers, appointments);
+
+            putInt(MAGIC);
+            putShort(FORMAT_VERSION);
+
+            long customerWatermark = TimeAndDate.NO_TIME;  // Smaller than any time, also stands for no customers
+            for (Customer customer : customers) {
+                customerWatermark = Math.max(customerWatermark, customer.getLastUpdateMillis());
+            }
+            long appointmentWatermark = TimeAndDate.NO_TIME;
+            for (Appointment appointment : appointments) {
+                appointmentWatermark = Math.max(appointmentWatermark, appointment.getLastUpdateMillis());
+            }
+            putLong(customerWatermark);
+            putLong(appointmentWatermark);
+
+            putInt(stringTable.size());
+            for (String value : stringTable) {
+                putBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            putInt(countries.size());
+            for (CountriesAndDivisions country : countries) {
+                putString(country.getCountryName());
+
+                List<String> divisionNames = country.getAllDivisionNames();
+                putInt(divisionNames.size());
+                for (String divisionName : divisionNames) {
+                    putString(divisionName);
+                }
+
+                List<Integer> divisionIds = country.getAllDivisionIds();
+                putInt(divisionIds == null ? 0 : divisionIds.size());
+                if (divisionIds != null) {
+                    for (int divisionId : divisionIds) {
+                        putInt(divisionId);
+                    }
+                }
+            }
+
+            putInt(customers.size());
+            for (Customer customer : customers) {
+                putInt(customer.getCustomerId());
+                putInt(customer.getDivisionId());
+                putString(customer.getCustomerName());
+                putString(customer.getCustomerAddress());
+                putString(customer.getPostalCode());
+                putString(customer.getPhoneNumber());
+                putString(customer.getCreatedBy());
+                putString(customer.getLastUpdatedBy());
+                putString(customer.getDivisionName());
+                putString(customer.getCountry());
+                putLong(customer.getCreationMillis());
+                putLong(customer.getLastUpdateMillis());
+            }
+
+            putInt(appointments.size());
+            for (Appointment appointment : appointments) {
+                putInt(appointment.getAppointmentId());
+                putInt(appointment.getCustomerId());
+                putInt(appointment.getContactId());
+                putInt(appointment.getUserId());
+                putString(appointment.getTitle());
+                putString(appointment.getDescription());
+                putString(appointment.getLocation());
+                putString(appointment.getType());
+                putString(appointment.getContactName());
+                putString(appointment.getCreatedBy());
+                putString(appointment.getLastUpdatedBy());
+                putLong(appointment.getStartMillis());
+                putLong(appointment.getEndMillis());
+                putLong(appointment.getCreationMillis());
+                putLong(appointment.getLastUpdateMillis());
+            }
+
+            // Checksum is written last and not included in itself
+            drain();
+            ByteBuffer checksum = ByteBuffer.allocate(4).putInt((int) crc.getValue());
+            checksum.flip();
+            while (checksum.hasRemaining()) {
+                channel.write(checksum);
+            }
+        }
+
+
+        private void collectStrings(List<CountriesAndDivisions> countries, List<Customer> customers, List<Appointment> appointments) {
+
+            for (CountriesAndDivisions country : countries) {
+                collect(country.getCountryName());
+                for (String divisionName : country.getAllDivisionNames()) {
+                    collect(divisionName);
+                }
+            }
+
+            for (Customer customer : customers) {
+                collect(customer.getCustomerName());
+                collect(customer.getCustomerAddress());
+                collect(customer.getPostalCode());
+                collect(customer.getPhoneNumber());
+                collect(customer.getCreatedBy());
+                collect(customer.getLastUpdatedBy());
+                collect(customer.getDivisionName());
+                collect(customer.getCountry());
+            }
+
+            for (Appointment appointment : appointments) {
+                collect(appointment.getTitle());
+                collect(appointment.getDescription());
+                collect(appointment.getLocation());
+                collect(appointment.getType());
+                collect(appointment.getContactName());
+                collect(appointment.getCreatedBy());
+                collect(appointment.getLastUpdatedBy());
+            }
+        }
+
+
+        private void collect(String value) {
+            if (value != null && !strings.containsKey(value)) {
+                strings.put(value, stringTable.size());
+                stringTable.add(value);
+            }
+        }
+
+
+        private void putString(String value) throws IOException {
+            putInt(value == null ? NULL_STRING : strings.get(value));
+        }
+
+
+        private void putBytes(byte[] bytes) throws IOException {
+
+            putInt(bytes.length);
+
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+
+        private void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+
+        private void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+
+        private void putShort(short value) throws IOException {
+            ensure(2);
+            buffer.putShort(value);
+        }
+
+
+        /**
+         *  Writes the buffer to the file if it has less than the given amount of bytes left.
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+
+        private void drain() throws IOException {
+
+            buffer.flip();
+            crc.update(buffer.duplicate());
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            buffer.clear();
+        }
+    }
+
+
+    /**
+     *  Reads the snapshot straight from the mapped file.
+     */
+    private static class Reader {
+
+        private final ByteBuffer data;
+        private String[] strings;
+
+
+        Reader(ByteBuffer data) {
+            this.data = data;
+        }
+
+
+        ModelSnapshot readAll() {
+
+            long customerWatermark = data.getLong();
+            long appointmentWatermark = data.getLong();
+
+            strings = new String[data.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = new String(getBytes(), StandardCharsets.UTF_8);
+            }
+
+            int countryCount = data.getInt();
+            List<CountriesAndDivisions> countries = new ArrayList<>(countryCount);
+            for (int i = 0; i < countryCount; i++) {
+
+                CountriesAndDivisions country = new CountriesAndDivisions(getString());
+
+                int divisionCount = data.getInt();
+                ObservableList<String> divisionNames = FXCollections.observableArrayList();
+                for (int j = 0; j < divisionCount; j++) {
+                    divisionNames.add(getString());
+                }
+                country.addAllDivisions(divisionNames);
+
+                int divisionIdCount = data.getInt();
+                List<Integer> divisionIds = new ArrayList<>(divisionIdCount);
+                for (int j = 0; j < divisionIdCount; j++) {
+                    divisionIds.add(data.getInt());
+                }
+                country.addAllDivisionIds(divisionIds);
+
+                countries.add(country);
+            }
+
+            int customerCount = data.getInt();
+            List<Customer> customers = new ArrayList<>(customerCount);
+            for (int i = 0; i < customerCount; i++) {
+
+                int customerId = data.getInt();
+                int divisionId = data.getInt();
+                String customerName = getString();
+                String address = getString();
+                String postalCode = getString();
+                String phoneNumber = getString();
+                String createdBy = getString();
+                String lastUpdatedBy = getString();
+                String divisionName = getString();
+                String country = getString();
+                long creationDate = data.getLong();
+                long lastUpdate = data.getLong();
+
+                Customer customer = new Customer(customerId, divisionId, postalCode, customerName, address, phoneNumber, creationDate, lastUpdate, createdBy, lastUpdatedBy);
+                customer.setDivisionName(divisionName);
+                customer.setCountry(country);
+                customers.add(customer);
+            }
+
+            int appointmentCount = data.getInt();
+            List<Appointment> appointments = new ArrayList<>(appointmentCount);
+            AppointmentStore rows = new AppointmentStore(appointmentCount);
+            for (int i = 0; i < appointmentCount; i++) {
+
+                int appointmentId = data.getInt();
+                int customerId = data.getInt();
+                int contactId = data.getInt();
+                int userId = data.getInt();
+                String title = getString();
+                String description = getString();
+                String location = getString();
+                String type = getString();
+                String contactName = getString();
+                String createdBy = getString();
+                String lastUpdatedBy = getString();
+                long startDate = data.getLong();
+                long endDate = data.getLong();
+                long creationDate = data.getLong();
+                long lastUpdate = data.getLong();
+
+                appointments.add(rows.add(startDate, endDate, customerId, appointmentId, contactId, contactName, title, description, location, type, creationDate, lastUpdate, createdBy, lastUpdatedBy, userId));
+            }
+
+            return new ModelSnapshot(countries, customers, appointments, customerWatermark, appointmentWatermark);
+        }
+
+
+        private String getString() {
+            int index = data.getInt();
+            return index == NULL_STRING ? null : strings[index];
+        }
+
+
+        private byte[] getBytes() {
+            byte[] bytes = new byte[data.getInt()];
+            data.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package DAO;
+
+import model.Tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+
+/**
+ *  An append-only journal of changes not yet written to the database, kept in memory-mapped segment files.
+ *  Appending only copies bytes into mapped memory, the operating system writes them to disk.
+ *  sync() forces written records to disk, callers group many appends per sync (fsync batching).
+ *
+ *  Every record is stored as [length][CRC32][kind][payload], a record cut short by a crash fails its checksum and ends the journal.
+ *  checkpoint() starts a new segment holding only the records still needed, older segments are then deleted.
+ *  Recovery starts at the newest segment beginning with a checkpoint, so records are never read twice,
+ *  even if the application stopped before older segments could be deleted.
+ *  The checkpoint marker at the head of a segment is written last, once the records after it are forced to disk.
+ *  Mapped pages may reach the disk in any order, a crash during a checkpoint leaves a segment without a marker
+ *  and recovery reads the older segments instead.
+ */
+public class MutationJournal {
+
+    private static final byte CHECKPOINT = 0;  // First record of a segment written by checkpoint()
+    private static final byte DATA = 1;
+    private static final int HEADER_BYTES = 8;  // Length and checksum
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;  // Current segment, written at its position
+    private long segmentNumber = 0;
+    private int unsynced = 0;  // Records appended since the last sync
+    private final CRC32 crc = new CRC32();
+
+
+    /**
+     * @param directory Folder holding the segment files, created if missing.
+     * @param segmentBytes Size of a segment file.
+     */
+    public MutationJournal(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+
+    /**
+     *  Reads all records written since the last checkpoint.
+     *  Must be called before appending, the records should then be passed to checkpoint().
+     *  @return Payloads in the order they were appended.
+     */
+    public synchronized List<byte[]> recover() throws IOException {
+
+        Files.createDirectories(directory);
+
+        TreeMap<Long, Path> segments = listSegments();
+        List<byte[]> records = new ArrayList<>();
+
+        if (segments.isEmpty()) {
+            return records;
+        }
+
+        segmentNumber = segments.lastKey();
+
+        // Find the newest segment starting with a checkpoint, segments before it are no longer needed
+        Long first = segments.firstKey();
+        for (Long number : segments.descendingKeySet()) {
+            if (startsWithCheckpoint(segments.get(number))) {
+                first = number;
+                break;
+            }
+        }
+
+        for (Path segment : segments.tailMap(first, true).values()) {
+            if (!readSegment(segment, records)) {
+                break;  // Torn record, nothing after it can be trusted
+            }
+        }
+
+        return records;
+    }
+
+
+    /**
+     *  Appends a record. It is only guaranteed to be on disk after the next sync().
+     *  @param payload Bytes to store.
+     *  @return Records appended since the last sync, including this one.
+     */
+    public synchronized int append(byte[] payload) throws IOException {
+        write(DATA, payload);
+        return ++unsynced;
+    }
+
+
+    /**
+     *  Forces appended records to disk, does nothing if there are none.
+     */
+    public synchronized void sync() {
+        if (buffer != null && unsynced > 0) {
+            buffer.force();
+            unsynced = 0;
+        }
+    }
+
+
+    /**
+     *  Replaces the journal with a new segment holding only the given records, then deletes older segments.
+     *  @param payloads Records still needed, usually changes not yet written to database.
+     */
+    public synchronized void checkpoint(List<byte[]> payloads) throws IOException {
+
+        sync();
+        long oldestKept = segmentNumber + 1;
+
+        int size = HEADER_BYTES + 1;
+        for (byte[] payload : payloads) {
+            size += HEADER_BYTES + 1 + payload.length;
+        }
+
+        openSegment(Math.max(segmentBytes, size));  // Large enough for all records, the marker must cover every one of them
+        buffer.position(HEADER_BYTES + 1);  // Room for the marker, left as zeros (end of journal) until the records are on disk
+        for (byte[] payload : payloads) {
+            write(DATA, payload);
+        }
+        buffer.force();
+
+        crc.reset();
+        crc.update(CHECKPOINT);
+        buffer.putInt(0, 1);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.put(8, CHECKPOINT);
+        buffer.force();
+        unsynced = 0;
+
+        for (Long number : listSegments().headMap(oldestKept, false).keySet()) {
+            try {
+                Files.deleteIfExists(segmentPath(number));
+            }
+            catch (IOException e) {
+                // A segment may still be mapped (Windows), it is skipped by recovery and deleted by a later checkpoint
+            }
+        }
+    }
+
+
+    /**
+     *  Forces remaining records to disk and closes the current segment.
+     */
+    public synchronized void close() {
+
+        sync();
+
+        if (channel != null) {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to close journal segment: " + e.getMessage(), "MutationJournal.close()");
+            }
+            channel = null;
+            buffer = null;
+        }
+    }
+
+
+    private void write(byte kind, byte[] payload) throws IOException {
+
+        int length = 1 + payload.length;
+
+        if (buffer == null || buffer.remaining() < HEADER_BYTES + length) {
+            sync();
+            openSegment(Math.max(segmentBytes, HEADER_BYTES + length));
+        }
+
+        crc.reset();
+        crc.update(kind);
+        crc.update(payload);
+
+        buffer.putInt(length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(kind);
+        buffer.put(payload);
+    }
+
+
+    /**
+     *  Maps the next segment file, the file is filled with zeros so unused space reads as the end of the journal.
+     */
+    private void openSegment(int size) throws IOException {
+
+        close();
+        segmentNumber++;
+
+        channel = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+
+    /**
+     *  Adds the data records of a segment to records.
+     *  @return False if reading stopped at a damaged record.
+     */
+    private boolean readSegment(Path segment, List<byte[]> records) throws IOException {
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+
+        while (data.remaining() >= HEADER_BYTES) {
+
+            int length = data.getInt();
+            int checksum = data.getInt();
+
+            if (length == 0) {
+                return true;  // Unused space, end of segment
+            }
+            if (length < 1 || length > data.remaining()) {
+                return false;
+            }
+
+            byte[] record = new byte[length];
+            data.get(record);
+
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Damaged journal record in " + segment.getFileName() + ", later records are ignored", "MutationJournal.readSegment()");
+                return false;
+            }
+
+            if (record[0] == DATA) {
+                byte[] payload = new byte[length - 1];
+                System.arraycopy(record, 1, payload, 0, payload.length);
+                records.add(payload);
+            }
+        }
+
+        return true;
+    }
+
+
+    private boolean startsWithCheckpoint(Path segment) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 1);
+            file.read(header, 0);
+            header.flip();
+
+            if (header.remaining() < HEADER_BYTES + 1) {
+                return false;
+            }
+
+            int length = header.getInt();
+            int checksum = header.getInt();
+            byte kind = header.get();
+
+            crc.reset();
+            crc.update(kind);
+            return length == 1 && kind == CHECKPOINT && (int) crc.getValue() == checksum;
+        }
+    }
+
+
+    /**
+     * @return Segment files by number.
+     */
+    private TreeMap<Long, Path> listSegments() throws IOException {
+
+        TreeMap<Long, Path> segments = new TreeMap<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                }
+                catch (NumberFormatException e) {
+                    // Not a segment written by this class
+                }
+            }
+        }
+
+        return segments;
+    }
+
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%09d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
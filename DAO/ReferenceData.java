@@ -0,0 +1,334 @@
+package DAO;
+
+import model.Tools;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ *  Countries, divisions, contacts and users held in memory, so name and ID lookups never query the database.
+ *  The tables are small and rarely change, they are read once and then refreshed every Globals.referenceRefreshMs.
+ *
+ *  An instance is never changed after it is built. A refresh builds a new instance and swaps it in,
+ *  increasing the version only if something changed. Readers simply use whichever instance get() returns,
+ *  they never see a half refreshed dictionary and never wait for a lock.
+ *  Passwords are not kept here, logging in still checks them against the database.
+ */
+public class ReferenceData {
+
+    private static volatile ReferenceData current;
+
+    private final long version;
+    private final NameTable countries;
+    private final NameTable divisions;  // Parent is the division's country
+    private final NameTable contacts;
+    private final NameTable users;
+
+
+    private ReferenceData(long version, NameTable countries, NameTable divisions, NameTable contacts, NameTable users) {
+        this.version = version;
+        this.countries = countries;
+        this.divisions = divisions;
+        this.contacts = contacts;
+        this.users = users;
+    }
+
+
+    /**
+     *  Returns the current reference data, reading it from the database the first time.
+     * @return Current reference data.
+     */
+    public static ReferenceData get() throws SQLException {
+
+        ReferenceData data = current;
+
+        if (data == null) {
+            synchronized (ReferenceData.class) {
+                if (current == null) {
+                    current = read(1);
+                    Tools.consoleMessage(Tools.MsgType.INFO, "Reference data loaded: " + current, "ReferenceData.get()");
+                }
+                data = current;
+            }
+        }
+
+        return data;
+    }
+
+
+    /**
+     *  Reads reference data again and swaps it in if anything changed.
+     *  Failures are logged, the data already loaded stays in use.
+     */
+    public static void refresh() {
+
+        synchronized (ReferenceData.class) {
+
+            if (current == null) {
+                return;  // Nothing loaded yet, get() reads everything when first needed
+            }
+
+            try {
+                ReferenceData fresh = read(current.version + 1);
+                if (!fresh.sameAs(current)) {
+                    current = fresh;
+                    Tools.consoleMessage(Tools.MsgType.INFO, "Reference data refreshed: " + fresh, "ReferenceData.refresh()");
+                }
+            }
+            catch (SQLException e) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Reference data refresh failed: " + e.getMessage(), "ReferenceData.refresh()");
+            }
+        }
+    }
+
+
+    private static ReferenceData read(long version) throws SQLException {
+
+        NameTable countries = JDBC.query("SELECT Country_ID, Country FROM countries ORDER BY Country_ID;", null,
+                rs -> NameTable.read(rs, "Country_ID", "Country", null));
+
+        NameTable divisions = JDBC.query("SELECT Division_ID, Division, Country_ID FROM first_level_divisions ORDER BY Division_ID;", null,
+                rs -> NameTable.read(rs, "Division_ID", "Division", "Country_ID"));
+
+        NameTable contacts = JDBC.query("SELECT Contact_ID, Contact_Name FROM contacts ORDER BY Contact_ID;", null,
+                rs -> NameTable.read(rs, "Contact_ID", "Contact_Name", null));
+
+        NameTable users = JDBC.query("SELECT User_ID, User_Name FROM users ORDER BY User_ID;", null,
+                rs -> NameTable.read(rs, "User_ID", "User_Name", null));
+
+        return new ReferenceData(version, countries, divisions, contacts, users);
+    }
+
+
+    /**
+     * @return Version of this data, increased by every refresh that changed something.
+     */
+    public long getVersion() {return version;}
+
+
+    /**
+     * @return Countries by ID.
+     */
+    public NameTable getCountries() {return countries;}
+
+
+    /**
+     * @return Divisions by ID, the parent of a division is its country ID.
+     */
+    public NameTable getDivisions() {return divisions;}
+
+
+    /**
+     * @return Contacts by ID.
+     */
+    public NameTable getContacts() {return contacts;}
+
+
+    /**
+     * @return Users by ID.
+     */
+    public NameTable getUsers() {return users;}
+
+
+    private boolean sameAs(ReferenceData other) {
+        return countries.sameAs(other.countries) && divisions.sameAs(other.divisions) && contacts.sameAs(other.contacts) && users.sameAs(other.users);
+    }
+
+
+    @Override
+    public String toString() {
+        return "version " + version + ", " + countries.size() + " countries, " + divisions.size() + " divisions, " +
+               contacts.size() + " contacts, " + users.size() + " users";
+    }
+
+
+    /**
+     *  An immutable table of IDs and names, looked up in both directions.
+     *  Rows are kept in ID order in plain arrays. IDs are usually small and close together,
+     *  so the position of an ID is found in an array indexed by ID, otherwise in a map.
+     */
+    public static class NameTable {
+
+        private static final int NOT_FOUND = -1;
+
+        private final int[] ids;
+        private final String[] names;
+        private final int[] parents;  // Null if rows have no parent
+        private final int[] positionById;  // Null when IDs are too sparse, positionMap is then used
+        private final Map<Integer, Integer> positionMap;
+        private final Map<String, Integer> positionByName;
+        private final Map<Integer, int[]> positionsByParent;  // Sorted by name
+
+
+        private NameTable(int[] ids, String[] names, int[] parents) {
+
+            this.ids = ids;
+            this.names = names;
+            this.parents = parents;
+
+            int maxId = 0;
+            int minId = 0;
+            for (int id : ids) {
+                maxId = Math.max(maxId, id);
+                minId = Math.min(minId, id);
+            }
+
+            if (minId >= 0 && maxId <= ids.length * 4 + 64) {
+                positionById = new int[maxId + 1];
+                Arrays.fill(positionById, NOT_FOUND);
+                for (int i = 0; i < ids.length; i++) {
+                    positionById[ids[i]] = i;
+                }
+                positionMap = null;
+            }
+            else {
+                positionById = null;
+                positionMap = new HashMap<>();
+                for (int i = 0; i < ids.length; i++) {
+                    positionMap.put(ids[i], i);
+                }
+            }
+
+            // Same as the queries this replaces, a name used twice finds the row with the highest ID
+            positionByName = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                positionByName.put(names[i], i);
+            }
+
+            positionsByParent = new HashMap<>();
+            if (parents != null) {
+                Map<Integer, List<Integer>> grouped = new HashMap<>();
+                for (int i = 0; i < ids.length; i++) {
+                    grouped.computeIfAbsent(parents[i], parent -> new ArrayList<>()).add(i);
+                }
+                for (Map.Entry<Integer, List<Integer>> group : grouped.entrySet()) {
+                    group.getValue().sort(Comparator.comparing(position -> names[position], String.CASE_INSENSITIVE_ORDER));  // Like ORDER BY in MySQL
+                    positionsByParent.put(group.getKey(), group.getValue().stream().mapToInt(Integer::intValue).toArray());
+                }
+            }
+        }
+
+
+        private static NameTable read(ResultSet rs, String idColumn, String nameColumn, String parentColumn) throws SQLException {
+
+            List<Integer> ids = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<Integer> parents = new ArrayList<>();
+
+            while (rs.next()) {
+                ids.add(rs.getInt(idColumn));
+                names.add(rs.getString(nameColumn));
+                if (parentColumn != null) {
+                    parents.add(rs.getInt(parentColumn));
+                }
+            }
+
+            return new NameTable(ids.stream().mapToInt(Integer::intValue).toArray(), names.toArray(new String[0]),
+                    parentColumn == null ? null : parents.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+
+        private int positionOf(int id) {
+
+            if (positionById != null) {
+                return id >= 0 && id < positionById.length ? positionById[id] : NOT_FOUND;
+            }
+
+            Integer position = positionMap.get(id);
+            return position == null ? NOT_FOUND : position;
+        }
+
+
+        /**
+         * @param id ID to look up.
+         * @return Name of row, null if there is no such ID.
+         */
+        public String nameOf(int id) {
+            int position = positionOf(id);
+            return position == NOT_FOUND ? null : names[position];
+        }
+
+
+        /**
+         * @param name Name to look up.
+         * @return ID of row, -1 if there is no such name.
+         */
+        public int idOf(String name) {
+            Integer position = positionByName.get(name);
+            return position == null ? NOT_FOUND : ids[position];
+        }
+
+
+        /**
+         * @param id ID to look up.
+         * @return Parent ID of row, -1 if there is no such ID or rows have no parent.
+         */
+        public int parentOf(int id) {
+            int position = positionOf(id);
+            return position == NOT_FOUND || parents == null ? NOT_FOUND : parents[position];
+        }
+
+
+        /**
+         * @return All IDs, in ID order.
+         */
+        public List<Integer> ids() {
+            List<Integer> list = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                list.add(id);
+            }
+            return list;
+        }
+
+
+        /**
+         * @return All names, in ID order.
+         */
+        public List<String> names() {return Collections.unmodifiableList(Arrays.asList(names));}
+
+
+        /**
+         * @param parentId Parent ID, such as a country ID.
+         * @return IDs of rows with given parent, sorted by name.
+         */
+        public List<Integer> idsWithParent(int parentId) {
+            List<Integer> list = new ArrayList<>();
+            for (int position : positionsByParent.getOrDefault(parentId, new int[0])) {
+                list.add(ids[position]);
+            }
+            return list;
+        }
+
+
+        /**
+         * @param parentId Parent ID, such as a country ID.
+         * @return Names of rows with given parent, sorted by name.
+         */
+        public List<String> namesWithParent(int parentId) {
+            List<String> list = new ArrayList<>();
+            for (int position : positionsByParent.getOrDefault(parentId, new int[0])) {
+                list.add(names[position]);
+            }
+            return list;
+        }
+
+
+        /**
+         * @return Amount of rows.
+         */
+        public int size() {return ids.length;}
+
+
+        private boolean sameAs(NameTable other) {
+            return Arrays.equals(ids, other.ids) && Arrays.equals(names, other.names) && Arrays.equals(parents, other.parents);
+        }
+    }
+}
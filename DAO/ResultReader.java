@@ -0,0 +1,10 @@
+package DAO;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Used to turn the rows of a result set into a value, the result set is closed afterwards
+// See JDBC.query() for implementation
+public interface ResultReader<T> {
+    T read(ResultSet rs) throws SQLException;
+}
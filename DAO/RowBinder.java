@@ -0,0 +1,10 @@
+package DAO;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Used to set the parameters of a prepared statement from one row of a batch
+// See JDBC.batch() for implementation
+public interface RowBinder<T> {
+    void bind(PreparedStatement ps, T row) throws SQLException;
+}
@@ -0,0 +1,10 @@
+package DAO;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Used to set the parameters of a prepared statement before it is executed
+// See JDBC.query() and JDBC.update() for implementation
+public interface StatementBinder {
+    void bind(PreparedStatement ps) throws SQLException;
+}
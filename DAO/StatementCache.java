@@ -0,0 +1,182 @@
+package DAO;
+
+import model.Tools;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *  Caches prepared statements for a single pooled connection, keyed by SQL text.
+ *  The least recently used statement is closed once the cache is full.
+ *  Statements handed out by the cache are not really closed when the caller closes them,
+ *  their parameters are cleared instead so the next caller with the same SQL can reuse them.
+ */
+class StatementCache {
+
+    // Shared by all connections, see getHits() and getMisses()
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+
+    private final Connection connection;  // Physical connection the statements belong to
+    private final Map<String, CachedStatement> statements;
+
+
+    /**
+     *  Creates an empty cache.
+     *  @param connection Physical connection used to prepare statements.
+     *  @param maxSize Maximum amount of statements kept open.
+     */
+    StatementCache(Connection connection, int maxSize) {
+
+        this.connection = connection;
+
+        // Access ordered map, iteration starts with the least recently used statement
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    eldest.getValue().closeQuietly();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    /**
+     *  Fetches the statement for given SQL, preparing it if it is not cached yet.
+     *  If the cached statement is already being used (nested use of the same SQL), an uncached statement is returned.
+     *  @param sql SQL text of the statement.
+     *  @return Statement that returns itself to the cache when closed.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+
+        CachedStatement cached = statements.get(sql);
+
+        if (cached != null && cached.inUse) {  // Rare, fall back to a plain statement
+            misses.increment();
+            return connection.prepareStatement(sql);
+        }
+
+        if (cached == null || cached.statement.isClosed()) {
+            misses.increment();
+            cached = new CachedStatement(connection.prepareStatement(sql));
+            statements.put(sql, cached);
+        }
+        else {
+            hits.increment();
+        }
+
+        cached.inUse = true;
+        return cached.proxy;
+    }
+
+
+    /**
+     *  Closes every cached statement, used when the connection is retired.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closeQuietly();
+        }
+        statements.clear();
+    }
+
+
+    /**
+     * @return Amount of times a statement was reused.
+     */
+    static long getHits() {return hits.sum();}
+
+
+    /**
+     * @return Amount of times a statement had to be prepared.
+     */
+    static long getMisses() {return misses.sum();}
+
+
+    /**
+     * @return Amount of statements closed to make room for others.
+     */
+    static long getEvictions() {return evictions.sum();}
+
+
+    /**
+     * @return Summary of cache statistics, used for logging.
+     */
+    static String getSummary() {
+        long total = getHits() + getMisses();
+        double hitRatio = total == 0 ? 0 : 100.0 * getHits() / total;
+        return String.format("[hits=%d, misses=%d, evictions=%d, hitRatio=%.1f%%]", getHits(), getMisses(), getEvictions(), hitRatio);
+    }
+
+
+    /**
+     *  A prepared statement kept open between uses.
+     */
+    private static class CachedStatement implements InvocationHandler {
+
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+        boolean inUse = false;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+                case "close" -> {  // Keep the statement open, only reset it for the next caller
+                    if (inUse) {
+                        inUse = false;
+                        if (!statement.isClosed()) {
+                            statement.clearParameters();
+                            statement.clearBatch();
+                        }
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse || statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+            }
+
+            try {
+                return method.invoke(statement, args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            }
+            catch (SQLException e) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, e.getMessage(), "StatementCache.closeQuietly()");
+            }
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package DAO;
+
+import javafx.application.Platform;
+import model.Appointment;
+import model.Customer;
+import model.Globals;
+import model.TimeAndDate;
+import model.Tools;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+
+/**
+ *  Keeps the local appointment and customer lists up to date with changes made by other clients.
+ *  Also refreshes ReferenceData every Globals.referenceRefreshMs.
+ *  Every Globals.syncIntervalMs rows with a Last_Update after a watermark are fetched, along with tombstones of deleted rows
+ *  (see TombstoneQuery). Both are merged into the local lists on the JavaFX application thread, row by row,
+ *  so tables and indexes only see the rows that changed. Listeners are then told exactly what was added, updated and removed.
+ *
+ *  Watermarks are epoch milliseconds in UTC and follow the latest time fetched, each fetch starts Globals.snapshotWatermarkMarginSec earlier since other clients' clocks may differ.
+ *  Rows fetched again that did not change are skipped. Fetching waits until WriteBehindQueue has written its changes,
+ *  and results are dropped if a change was queued meanwhile, so a sync never undoes a save made in this client.
+ */
+public class SyncEngine {
+
+    private static final List<SyncListener> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService scheduler;
+
+    // Touched by the sync thread only
+    private static long customerWatermark;
+    private static long appointmentWatermark;
+    private static long tombstoneWatermark;
+    private static boolean failing = false;  // Failures are only logged once until a sync succeeds again
+
+
+    /**
+     *  Starts syncing once all data has been loaded.
+     *  Must be called before loading starts, changes made during loading are then fetched by the first sync.
+     */
+    public static void start() {
+
+        if (scheduler != null || !Globals.writeToDatabase) {
+            return;  // Without saving, local changes would be replaced by the database version
+        }
+
+        long now = System.currentTimeMillis();
+        customerWatermark = now;
+        appointmentWatermark = now;
+        tombstoneWatermark = now;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture.allOf(DataLoader.customersReady(), DataLoader.appointmentsReady()).thenRun(() ->
+                scheduler.scheduleWithFixedDelay(SyncEngine::sync, Globals.syncIntervalMs, Globals.syncIntervalMs, TimeUnit.MILLISECONDS));
+        scheduler.scheduleWithFixedDelay(ReferenceData::refresh, Globals.referenceRefreshMs, Globals.referenceRefreshMs, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     *  Stops syncing.
+     */
+    public static void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+
+    /**
+     *  Adds a listener notified after every sync that changed the local lists.
+     *  Screens should remove their listener when they are left.
+     * @param listener Listener to add.
+     */
+    public static void addListener(SyncListener listener) {listeners.add(listener);}
+
+
+    /**
+     * @param listener Listener to remove.
+     */
+    public static void removeListener(SyncListener listener) {listeners.remove(listener);}
+
+
+    /**
+     *  Fetches changes made since the watermarks and hands them to the application thread.
+     *  Never throws, an exception escaping a scheduled task would cancel all later syncs.
+     */
+    private static void sync() {
+
+        if (!JDBC.isOnline()) {
+            return;  // WriteBehindQueue reconnects, syncing resumes once it has
+        }
+
+        long changeCount = WriteBehindQueue.changeCount();
+
+        try {
+            Fetched fetched = WriteBehindQueue.readWhenIdle(SyncEngine::fetch);
+            if (fetched == null) {
+                return;  // Saves still being written, try again next time
+            }
+
+            if (failing) {
+                Tools.consoleMessage(Tools.MsgType.INFO, "Sync resumed", "SyncEngine.sync()");
+                failing = false;
+            }
+
+            // A failure on the application thread must complete the future too, or this thread waits until the timeout
+            CompletableFuture<Boolean> applied = new CompletableFuture<>();
+            Platform.runLater(() -> {
+                try {
+                    applied.complete(apply(fetched, changeCount));
+                }
+                catch (RuntimeException e) {
+                    applied.completeExceptionally(e);
+                }
+            });
+
+            // Waits at most one interval, a busy application thread may still apply later. Watermarks are then kept,
+            // the next sync fetches the same rows again and skips those already applied
+            if (applied.get(Globals.syncIntervalMs, TimeUnit.MILLISECONDS)) {
+                customerWatermark = fetched.customerWatermark;
+                appointmentWatermark = fetched.appointmentWatermark;
+                tombstoneWatermark = fetched.tombstoneWatermark;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // Stopped
+        }
+        catch (TimeoutException e) {
+            Tools.consoleMessage(Tools.MsgType.INFO, "Sync not applied within " + Globals.syncIntervalMs + " ms, will fetch again", "SyncEngine.sync()");
+        }
+        catch (ExecutionException e) {
+            failed(e.getCause());
+        }
+        catch (SQLException e) {
+            if (!failing) {
+                Tools.consoleMessage(Tools.MsgType.ERROR, "Sync failed, will retry: " + e.getMessage(), "SyncEngine.sync()");
+                failing = true;
+            }
+        }
+        catch (RuntimeException e) {
+            failed(e);
+        }
+    }
+
+
+    /**
+     *  Logs an unexpected failure with its stack trace, once until a sync succeeds again.
+     *  Applying or a listener failed, watermarks are kept so the same changes are fetched again.
+     */
+    private static void failed(Throwable cause) {
+
+        if (failing) {
+            return;
+        }
+
+        StringWriter stackTrace = new StringWriter();
+        cause.printStackTrace(new PrintWriter(stackTrace));
+        Tools.consoleMessage(Tools.MsgType.ERROR, "Sync failed, will retry: " + stackTrace, "SyncEngine.sync()");
+        failing = true;
+    }
+
+
+    /**
+     *  Reads changed rows and tombstones, runs while WriteBehindQueue is idle.
+     */
+    private static Fetched fetch() throws SQLException {
+
+        Fetched fetched = new Fetched();
+
+        long margin = Globals.snapshotWatermarkMarginSec * 1000L;
+
+        fetched.customers = CustomerQuery.fetchCustomersUpdatedSince(customerWatermark - margin);
+        fetched.appointments = AppointmentQuery.fetchAppointmentsUpdatedSince(appointmentWatermark - margin);
+
+        fetched.customerWatermark = customerWatermark;
+        for (Customer customer : fetched.customers) {
+            fetched.customerWatermark = Math.max(fetched.customerWatermark, customer.getLastUpdateMillis());
+        }
+        fetched.appointmentWatermark = appointmentWatermark;
+        for (Appointment appointment : fetched.appointments) {
+            fetched.appointmentWatermark = Math.max(fetched.appointmentWatermark, appointment.getLastUpdateMillis());
+        }
+
+        fetched.tombstoneWatermark = tombstoneWatermark;
+        if (TombstoneQuery.isAvailable()) {
+            long since = tombstoneWatermark - margin;
+            fetched.deletedCustomers = TombstoneQuery.fetchSince(TombstoneQuery.CUSTOMERS, since);
+            fetched.deletedAppointments = TombstoneQuery.fetchSince(TombstoneQuery.APPOINTMENTS, since);
+            for (long deletedAt : fetched.deletedCustomers.values()) {
+                fetched.tombstoneWatermark = Math.max(fetched.tombstoneWatermark, deletedAt);
+            }
+            for (long deletedAt : fetched.deletedAppointments.values()) {
+                fetched.tombstoneWatermark = Math.max(fetched.tombstoneWatermark, deletedAt);
+            }
+        }
+        else {
+            // No tombstones, deleted rows are found by comparing counts (see DataLoader.restoreCustomers())
+            // A count differing only because of rows added since the last sync costs one extra ID scan
+            if (CustomerQuery.countCustomers() != Customer.allCustomers.size()) {
+                fetched.customerIds = new HashSet<>(CustomerQuery.fetchAllId());
+            }
+            if (AppointmentQuery.countAppointments() != Appointment.allAppointments.size()) {
+                fetched.appointmentIds = new HashSet<>(AppointmentQuery.fetchAllId());
+            }
+        }
+
+        return fetched;
+    }
+
+
+    /**
+     *  Merges fetched rows into the local lists and notifies listeners, runs on the application thread.
+     * @return False if a change was queued since fetching, the fetched rows may be older than it and are dropped.
+     */
+    private static boolean apply(Fetched fetched, long changeCount) {
+
+        if (WriteBehindQueue.changeCount() != changeCount) {
+            return false;
+        }
+
+        Changes changes = new Changes();
+
+        // Customers first, appointments may refer to new customers
+        List<Customer> changedCustomers = new ArrayList<>();
+        for (Customer customer : fetched.customers) {
+            Customer local = Customer.findLocalCustomer(customer.getCustomerId());
+            if (local == null) {
+                changes.addedCustomers.add(customer);
+            }
+            else if (!customer.changesFrom(local).isEmpty() || customer.getLastUpdateMillis() != local.getLastUpdateMillis()) {
+                changes.updatedCustomers.add(customer);
+            }
+            else {
+                continue;  // Fetched again because of the margin, nothing changed
+            }
+            changedCustomers.add(customer);
+        }
+        Customer.mergeCustomers(changedCustomers);
+
+        List<Appointment> changedAppointments = new ArrayList<>();
+        for (Appointment appointment : fetched.appointments) {
+            Appointment local = Appointment.findLocalAppointment(appointment.getAppointmentId());
+            if (local == null) {
+                changes.addedAppointments.add(appointment);
+            }
+            else if (!appointment.changesFrom(local).isEmpty() || appointment.getLastUpdateMillis() != local.getLastUpdateMillis()) {
+                changes.updatedAppointments.add(appointment);
+            }
+            else {
+                continue;
+            }
+            changedAppointments.add(appointment);
+        }
+        Appointment.mergeAppointments(changedAppointments);
+
+        // Appointments before customers, the reverse of adding
+        if (fetched.deletedAppointments != null) {
+            changes.removedAppointments.addAll(Appointment.deleteAppointments(stillDeleted(fetched.deletedAppointments, Appointment::findLocalAppointment, Appointment::getLastUpdateMillis)));
+            changes.removedCustomers.addAll(Customer.deleteCustomers(stillDeleted(fetched.deletedCustomers, Customer::findLocalCustomer, Customer::getLastUpdateMillis)));
+        }
+        if (fetched.appointmentIds != null) {
+            changes.removedAppointments.addAll(Appointment.deleteAppointments(missingIds(Appointment.allAppointments, fetched.appointmentIds, Appointment::getAppointmentId)));
+        }
+        if (fetched.customerIds != null) {
+            changes.removedCustomers.addAll(Customer.deleteCustomers(missingIds(Customer.allCustomers, fetched.customerIds, Customer::getCustomerId)));
+        }
+
+        if (!changes.isEmpty()) {
+            Tools.consoleMessage(Tools.MsgType.INFO, "Synced " + changes, "SyncEngine.apply()");
+            for (SyncListener listener : listeners) {
+                listener.synced(changes);
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @return IDs of tombstoned rows still in the local list, unless the row was updated after being deleted (the ID was reused).
+     */
+    private static <T> List<Integer> stillDeleted(Map<Integer, Long> tombstones, IntFunction<T> findLocal, ToLongFunction<T> lastUpdate) {
+
+        List<Integer> ids = new ArrayList<>();
+
+        for (Map.Entry<Integer, Long> tombstone : tombstones.entrySet()) {
+            T local = findLocal.apply(tombstone.getKey());
+            if (local != null && lastUpdate.applyAsLong(local) <= tombstone.getValue()) {
+                ids.add(tombstone.getKey());
+            }
+        }
+
+        return ids;
+    }
+
+
+    /**
+     * @return IDs of local rows no longer in the database.
+     */
+    private static <T> List<Integer> missingIds(List<T> local, Set<Integer> databaseIds, ToIntFunction<T> idOf) {
+
+        List<Integer> ids = new ArrayList<>();
+
+        for (T row : local) {
+            int id = idOf.applyAsInt(row);
+            if (!databaseIds.contains(id)) {
+                ids.add(id);
+            }
+        }
+
+        return ids;
+    }
+
+
+    /**
+     *  Everything read by one sync, handed from the sync thread to the application thread.
+     */
+    private static class Fetched {
+        List<Customer> customers;
+        List<Appointment> appointments;
+        Map<Integer, Long> deletedCustomers;  // Null without tombstones
+        Map<Integer, Long> deletedAppointments;
+        Set<Integer> customerIds;  // Only read without tombstones when counts differ
+        Set<Integer> appointmentIds;
+        long customerWatermark;
+        long appointmentWatermark;
+        long tombstoneWatermark;
+    }
+
+
+    /**
+     *  Rows one sync added, updated and removed in the local lists. Updated rows are the new versions.
+     */
+    public static class Changes {
+
+        private final List<Appointment> addedAppointments = new ArrayList<>();
+        private final List<Appointment> updatedAppointments = new ArrayList<>();
+        private final List<Appointment> removedAppointments = new ArrayList<>();
+        private final List<Customer> addedCustomers = new ArrayList<>();
+        private final List<Customer> updatedCustomers = new ArrayList<>();
+        private final List<Customer> removedCustomers = new ArrayList<>();
+
+        public List<Appointment> getAddedAppointments() {return Collections.unmodifiableList(addedAppointments);}
+        public List<Appointment> getUpdatedAppointments() {return Collections.unmodifiableList(updatedAppointments);}
+        public List<Appointment> getRemovedAppointments() {return Collections.unmodifiableList(removedAppointments);}
+        public List<Customer> getAddedCustomers() {return Collections.unmodifiableList(addedCustomers);}
+        public List<Customer> getUpdatedCustomers() {return Collections.unmodifiableList(updatedCustomers);}
+        public List<Customer> getRemovedCustomers() {return Collections.unmodifiableList(removedCustomers);}
+
+
+        /**
+         * @return True if any appointment was added, updated or removed.
+         */
+        public boolean hasAppointmentChanges() {
+            return !addedAppointments.isEmpty() || !updatedAppointments.isEmpty() || !removedAppointments.isEmpty();
+        }
+
+
+        /**
+         * @return True if any customer was added, updated or removed.
+         */
+        public boolean hasCustomerChanges() {
+            return !addedCustomers.isEmpty() || !updatedCustomers.isEmpty() || !removedCustomers.isEmpty();
+        }
+
+
+        /**
+         * @return True if nothing changed.
+         */
+        public boolean isEmpty() {return !hasAppointmentChanges() && !hasCustomerChanges();}
+
+
+        @Override
+        public String toString() {
+            return "appointments +" + addedAppointments.size() + " ~" + updatedAppointments.size() + " -" + removedAppointments.size() +
+                   ", customers +" + addedCustomers.size() + " ~" + updatedCustomers.size() + " -" + removedCustomers.size();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package DAO;
+
+// Notified on the JavaFX application thread after SyncEngine merged changes made by other clients
+// See SyncEngine.addListener() for implementation
+public interface SyncListener {
+    void synced(SyncEngine.Changes changes);
+}
@@ -0,0 +1,150 @@
+package DAO;
+
+import model.Globals;
+import model.TimeAndDate;
+import model.Tools;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ *  This class records deleted appointments and customers, so other clients can remove them from their local lists.
+ *  A deleted row leaves nothing behind to select, so every delete also writes a tombstone (table, ID, time of delete).
+ *  SyncEngine fetches tombstones newer than its watermark, the same way it fetches updated rows.
+ *  Times of delete are bound as epoch milliseconds, the connection stores them in UTC like every other time.
+ *
+ *  The tombstones table is created by Globals.CLIENT_TABLES_SCRIPT, the application never creates tables itself.
+ *  Without it deletes are written without tombstones, and deletes made elsewhere are found by comparing row counts instead.
+ */
+public class TombstoneQuery {
+
+    public static final String APPOINTMENTS = "appointments";
+    public static final String CUSTOMERS = "customers";
+
+    private static volatile boolean available = false;
+
+
+    /**
+     *  Deletes tombstones older than Globals.tombstoneRetentionDays, which also checks the tombstones table exists.
+     */
+    public static void open() {
+
+        try {
+            int purged = JDBC.update("DELETE FROM tombstones WHERE Deleted_At < ?;",
+                    ps -> ps.setTimestamp(1, new Timestamp(System.currentTimeMillis() - Globals.tombstoneRetentionDays * 86400000L)));
+            available = true;
+            Tools.consoleMessage(Tools.MsgType.INFO, "Tombstones ready, " + purged + " old tombstones deleted", "TombstoneQuery.open()");
+        }
+        catch (SQLException e) {
+            String reason = "42S02".equals(e.getSQLState())  // Table does not exist
+                    ? "table tombstones is missing, create it with " + Globals.CLIENT_TABLES_SCRIPT
+                    : e.getMessage();
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Tombstones unavailable, deletes by other clients are found by counting rows: " + reason, "TombstoneQuery.open()");
+        }
+    }
+
+
+    /**
+     * @return True if deletes are recorded as tombstones.
+     */
+    public static boolean isAvailable() {return available;}
+
+
+    /**
+     *  Records rows as deleted, as part of a transaction that deletes them.
+     * @param connection Connection running the transaction.
+     * @param table Table rows are deleted from, APPOINTMENTS or CUSTOMERS.
+     * @param id ID of deleted row.
+     */
+    static void write(Connection connection, String table, int id) throws SQLException {
+
+        if (!available) {
+            return;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement("REPLACE INTO tombstones (Table_Name, Row_ID, Deleted_At) VALUES (?, ?, ?);")) {
+            ps.setString(1, table);
+            ps.setInt(2, id);
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+    }
+
+
+    /**
+     *  Records all appointments of a customer as deleted, as part of a transaction that deletes them.
+     * @param connection Connection running the transaction.
+     * @param customerId ID of customer whose appointments are deleted.
+     */
+    static void writeCustomerAppointments(Connection connection, int customerId) throws SQLException {
+
+        if (!available) {
+            return;
+        }
+
+        String sql = "REPLACE INTO tombstones (Table_Name, Row_ID, Deleted_At) " +
+                     "SELECT ?, Appointment_ID, ? FROM appointments WHERE Customer_ID = ?;";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, APPOINTMENTS);
+            ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(3, customerId);
+            ps.executeUpdate();
+        }
+    }
+
+
+    /**
+     *  Records many rows as deleted, in batches. Written before the rows are deleted,
+     *  a tombstone for a row whose delete then fails only removes it locally until it is fetched again.
+     * @param table Table rows are deleted from, APPOINTMENTS or CUSTOMERS.
+     * @param ids IDs of deleted rows.
+     */
+    static void writeAll(String table, List<Integer> ids) throws SQLException {
+
+        if (!available) {
+            return;
+        }
+
+        Timestamp deletedAt = new Timestamp(System.currentTimeMillis());
+        String sql = "REPLACE INTO tombstones (Table_Name, Row_ID, Deleted_At) VALUES (?, ?, ?);";
+
+        JDBC.batch(sql, ids, (ps, id) -> {
+            ps.setString(1, table);
+            ps.setInt(2, id);
+            ps.setTimestamp(3, deletedAt);
+        }, table + " tombstones");
+    }
+
+
+    /**
+     *  Retrieves rows deleted since a point in time.
+     * @param table Table rows were deleted from, APPOINTMENTS or CUSTOMERS.
+     * @param since Epoch milliseconds, tombstones written later are returned.
+     * @return Time of delete in epoch milliseconds by ID of deleted row.
+     */
+    public static Map<Integer, Long> fetchSince(String table, long since) throws SQLException {
+
+        String sql = "SELECT Row_ID, Deleted_At FROM tombstones WHERE Table_Name = ? AND Deleted_At > ?;";
+
+        return JDBC.query(sql, ps -> {
+            ps.setString(1, table);
+            ps.setTimestamp(2, TimeAndDate.toTimestamp(since));
+        }, rs -> {
+
+            Map<Integer, Long> deleted = new HashMap<>();
+
+            while (rs.next()) {
+                deleted.put(rs.getInt("Row_ID"), TimeAndDate.toEpochMilli(rs.getTimestamp("Deleted_At")));
+            }
+
+            return deleted;
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package DAO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Statements that must be committed together, run on a single connection
+// See JDBC.transaction() for implementation
+public interface TransactionWork<T> {
+    T run(Connection connection) throws SQLException;
+}
@@ -4,13 +4,12 @@ package DAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 
 
 /**
  *  This class allows for the retrieval and updating of users in the database.
+ *  User names and IDs are served from ReferenceData, passwords are always read from the database.
  */
 public class UserQuery {
 
@@ -24,14 +23,10 @@ public class UserQuery {
     public static int update(String password, String newPassword) throws SQLException {
 
         String sql = "UPDATE USERS SET Password = ? WHERE Password = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-
-        ps.setString(1, newPassword);
-        ps.setString(2, password);
-
-        int rowsAffected = ps.executeUpdate();
-        return rowsAffected;
-
+        return JDBC.update(sql, ps -> {
+            ps.setString(1, newPassword);
+            ps.setString(2, password);
+        });
     }
 
 
@@ -42,12 +37,7 @@ public class UserQuery {
      */
     public static int delete(int userId) throws SQLException {
         String sql = "DELETE FROM USERS WHERE User_ID = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, userId);
-
-        int rowsAffected = ps.executeUpdate();
-        return rowsAffected;
-
+        return JDBC.update(sql, ps -> ps.setInt(1, userId));
     }
 
 
@@ -56,13 +46,15 @@ public class UserQuery {
      */
     public static void select() throws SQLException {
         String sql = "SELECT * FROM USERS";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
+        JDBC.query(sql, null, rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
 
-        while(rs.next()){  //rs will read line by line through the results returned
-            int userId = rs.getInt("User_ID"); // fetch user_id from current row
-            String userName = rs.getString("User_Name"); // fetch user_name from current row
-        }
+            while(rs.next()){  //rs will read line by line through the results returned
+                int userId = rs.getInt("User_ID"); // fetch user_id from current row
+                String userName = rs.getString("User_Name"); // fetch user_name from current row
+            }
+
+            return null;
+        });
     }
 
 
@@ -73,16 +65,15 @@ public class UserQuery {
      */
     public static String locatePassword(int userId) throws SQLException {
         String sql = "SELECT * FROM USERS WHERE User_Id  = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, userId);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-        String userPassword = "N/A";  // Placeholder that must be overwritten
+        return JDBC.query(sql, ps -> ps.setInt(1, userId), rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
+            String userPassword = "N/A";  // Placeholder that must be overwritten
 
-        while (rs.next()) {  //rs will read line by line through the results returned
-            userPassword = rs.getString("Password");
-        }
+            while (rs.next()) {  //rs will read line by line through the results returned
+                userPassword = rs.getString("Password");
+            }
 
-        return userPassword;
+            return userPassword;
+        });
     }
 
 
@@ -93,16 +84,15 @@ public class UserQuery {
      */
     public static boolean idExists(int userId) throws SQLException {
         String sql = "SELECT * FROM USERS WHERE User_Id = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, userId);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        if(rs.next()) {
-            return true;
-        }
-        else {
-            return false;
-        }
+        return JDBC.query(sql, ps -> ps.setInt(1, userId), rs -> {  // a result set is essentially an entire table, so we can fetch values from it, see below
+
+            if(rs.next()) {
+                return true;
+            }
+            else {
+                return false;
+            }
+        });
     }
 
 
@@ -112,20 +102,8 @@ public class UserQuery {
      * @return username.
      */
     public static String fetchUsername(int userId) throws SQLException {
-
-
-        String sql = "SELECT User_Name FROM users WHERE User_Id = ?";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setInt(1, userId);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String userName = "N/A";  // Placeholder must be overwritten
-
-        while(rs.next()){  //rs will read line by line through the results returned
-            userName = rs.getString("User_Name"); // fetch user_name from current row
-        }
-
-        return userName;
+        String userName = ReferenceData.get().getUsers().nameOf(userId);
+        return userName == null ? "N/A" : userName;
     }
 
 
@@ -134,19 +112,7 @@ public class UserQuery {
      * @return List of all IDs.
      */
     public static ObservableList<Integer> fetchAllUserId() throws SQLException {
-
-
-        String sql = "SELECT User_ID FROM users ORDER BY User_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        ObservableList<Integer> allUserId = FXCollections.observableArrayList();
-
-        while(rs.next()){  //rs will read line by line through the results returned
-            allUserId.add(rs.getInt("User_ID"));
-        }
-
-        return allUserId;
+        return FXCollections.observableArrayList(ReferenceData.get().getUsers().ids());
     }
 
 
@@ -157,17 +123,11 @@ public class UserQuery {
      * @return List containing all username ID pairs found in database.
      */
     public static ObservableList<String> fetchAllNameIdPairs() throws SQLException {
-
-        String sql = "SELECT User_Name FROM users ORDER BY User_ID;";
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        String userName;
+        ReferenceData.NameTable users = ReferenceData.get().getUsers();
         ObservableList<String> userNames = FXCollections.observableArrayList();
 
-        while(rs.next()){  //rs will read line by line through the results returned
-            userName = rs.getString("User_Name"); // fetch specified data from current row
-            userNames.add("(" + fetchId(userName) + ") " + userName);
+        for (int userId : users.ids()) {
+            userNames.add("(" + userId + ") " + users.nameOf(userId));
         }
 
         return userNames;
@@ -180,18 +140,6 @@ public class UserQuery {
      * @return User ID.
      */
     public static int fetchId(String userName) throws SQLException {
-
-        String sql = "SELECT User_Id FROM users WHERE User_Name = ?;";
-
-        PreparedStatement ps = JDBC.connection.prepareStatement(sql);
-        ps.setString(1, userName);
-        ResultSet rs = ps.executeQuery();  // a result set is essentially an entire table, so we can fetch values from it, see below
-
-        int userId = -1;  // Temp value
-        while(rs.next()){  //rs will read line by line through the results returned
-            userId = rs.getInt("User_ID"); // fetch specified data from current row
-        }
-
-        return userId;
+        return ReferenceData.get().getUsers().idOf(userName);
     }
 }
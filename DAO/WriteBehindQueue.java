@@ -0,0 +1,764 @@
+package DAO;
+
+import javafx.application.Platform;
+import model.Appointment;
+import model.Customer;
+import model.Globals;
+import model.TimeAndDate;
+import model.Tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ *  Sends saves made in the GUI to the database in the background (write-behind).
+ *  Screens change the local lists right away and queue the change here, they never wait for the database.
+ *  Changes to the same appointment or customer are merged while queued, for example an insert followed by
+ *  an update is written as a single insert, and an insert followed by a delete is never written at all.
+ *  Every Globals.writeBehindFlushMs the queue is written in batches, ordered so foreign keys are never broken:
+ *  customer inserts/updates, appointment inserts/updates, appointment deletes, then customer deletes.
+ *
+ *  Queued changes are also appended to a MutationJournal, so they survive a crash and are written at the next startup.
+ *  While the database cannot be reached changes simply stay queued and journaled, the application keeps working
+ *  against the local lists. Once the database is back the journal is replayed in batches.
+ *  An update is only applied if the row still has the last update time it was loaded with, otherwise another
+ *  client changed or deleted it meanwhile. Such conflicts are not written, they are shown to the user and kept in getConflicts().
+ */
+public class WriteBehindQueue {
+
+    private enum Op {INSERT, UPDATE, DELETE}
+
+    private static final byte APPOINTMENT = 0;
+    private static final byte CUSTOMER = 1;
+    private static final byte RECORD_FORMAT = 2;  // First byte of a journal record, times are epoch milliseconds. Format 1 had no such byte and stored local time as text
+
+    // Queued changes by ID, in the order they were first queued
+    private static LinkedHashMap<Integer, Pending<Appointment>> appointments = new LinkedHashMap<>();
+    private static LinkedHashMap<Integer, Pending<Customer>> customers = new LinkedHashMap<>();
+
+    private static final Object flushLock = new Object();  // Only one flush runs at a time
+    private static ScheduledExecutorService scheduler;
+    private static MutationJournal journal;  // Null when files may not be generated
+    private static final List<String> conflicts = Collections.synchronizedList(new ArrayList<>());
+    private static int conflictsShown = 0;  // Conflicts already shown to the user, guarded by the conflicts lock
+    private static volatile long changeCount = 0;  // Changes queued since startup, lets SyncEngine notice changes made while it was fetching
+
+
+    /**
+     *  Writes changes left over from a previous run, then starts flushing in the background.
+     *  Must be called after the database connection is opened, and before data is loaded so the loaded data includes the changes.
+     */
+    public static void start() {
+
+        if (scheduler != null || !Globals.writeToDatabase) {
+            return;
+        }
+
+        synchronized (WriteBehindQueue.class) {
+            openJournal();
+        }
+        flush();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);  // Remaining changes are written by stop(), or recovered from the journal
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(WriteBehindQueue::flush, Globals.writeBehindFlushMs, Globals.writeBehindFlushMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(WriteBehindQueue::syncJournal, Globals.journalSyncMs, Globals.journalSyncMs, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     *  Stops background flushing and writes everything still queued.
+     *  Anything that cannot be written stays in the journal. Does nothing if already stopped.
+     */
+    public static void stop() {
+
+        synchronized (WriteBehindQueue.class) {
+            if (scheduler == null) {
+                return;
+            }
+            scheduler.shutdown();
+            scheduler = null;
+        }
+
+        flush();
+
+        synchronized (WriteBehindQueue.class) {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+
+    /**
+     *  Queues a new appointment to be written to database.
+     *  A copy is queued, appointments in the local list are changed on the application thread while this queue is written on its own.
+     * @param appointment Appointment already added to the local list.
+     */
+    public static void insertAppointment(Appointment appointment) {
+        queueAppointment(new Pending<>(Op.INSERT, null, appointment.copy()), appointment.getAppointmentId());
+    }
+
+
+    /**
+     *  Queues an appointment update, only columns that differ from the original are written. Copies are queued, see insertAppointment().
+     * @param original Appointment before the update.
+     * @param updated Appointment after the update, with the same ID.
+     */
+    public static void updateAppointment(Appointment original, Appointment updated) {
+        queueAppointment(new Pending<>(Op.UPDATE, original.copy(), updated.copy()), updated.getAppointmentId());
+    }
+
+
+    /**
+     *  Queues an appointment to be deleted from database.
+     * @param appointmentId ID of appointment already removed from the local list.
+     */
+    public static void deleteAppointment(int appointmentId) {
+        queueAppointment(new Pending<>(Op.DELETE, null, null), appointmentId);
+    }
+
+
+    /**
+     *  Queues a new customer to be written to database.
+     * @param customer Customer already added to the local list.
+     */
+    public static void insertCustomer(Customer customer) {
+        queueCustomer(new Pending<>(Op.INSERT, null, customer), customer.getCustomerId());
+    }
+
+
+    /**
+     *  Queues a customer update, only columns that differ from the original are written.
+     * @param original Customer before the update.
+     * @param updated Customer after the update, with the same ID.
+     */
+    public static void updateCustomer(Customer original, Customer updated) {
+        queueCustomer(new Pending<>(Op.UPDATE, original, updated), updated.getCustomerId());
+    }
+
+
+    /**
+     *  Queues a customer to be deleted from database, along with all of their appointments in one set-based transaction.
+     *  Queued writes of appointments belonging to the customer are dropped, the appointments must not be queued one by one.
+     * @param customerId ID of customer already removed from the local list, along with their appointments.
+     */
+    public static void deleteCustomer(int customerId) {
+        queueCustomer(new Pending<>(Op.DELETE, null, null), customerId);
+    }
+
+
+    /**
+     * @return Amount of appointments and customers waiting to be written.
+     */
+    public static synchronized int pendingCount() {
+        return appointments.size() + customers.size();
+    }
+
+
+    /**
+     * @return Amount of changes queued since startup, increases with every queued change.
+     */
+    public static long changeCount() {return changeCount;}
+
+
+    /**
+     *  Runs a read while nothing is queued or being written, so it never sees the database halfway through a flush.
+     *  Flushing waits until the read is done.
+     *  @param read Read to run.
+     *  @return Result of read, null if changes are waiting to be written.
+     */
+    public static <T> T readWhenIdle(DaoCall<T> read) throws SQLException {
+
+        synchronized (flushLock) {
+            if (pendingCount() > 0) {
+                return null;
+            }
+            return read.call();
+        }
+    }
+
+
+    /**
+     * @return Descriptions of changes that were not written because another client changed or deleted the same record.
+     */
+    public static List<String> getConflicts() {
+        synchronized (conflicts) {
+            return new ArrayList<>(conflicts);
+        }
+    }
+
+
+    private static synchronized void queueAppointment(Pending<Appointment> change, int id) {
+
+        if (!Globals.writeToDatabase) {
+            return;
+        }
+
+        changeCount++;
+        merge(appointments, id, change);
+        appendToJournal(APPOINTMENT, id, change);
+    }
+
+
+    private static synchronized void queueCustomer(Pending<Customer> change, int id) {
+
+        if (!Globals.writeToDatabase) {
+            return;
+        }
+
+        changeCount++;
+        merge(customers, id, change);
+        if (change.op == Op.DELETE) {
+            dropAppointmentsOf(id);
+        }
+        appendToJournal(CUSTOMER, id, change);
+    }
+
+
+    /**
+     *  Drops queued appointment writes made redundant by deleting their customer, the cascade deletes those rows anyway.
+     *  An update that moved an appointment to the customer is turned into a delete, in database the row still belongs to
+     *  its previous customer and would not be reached by the cascade.
+     */
+    private static void dropAppointmentsOf(int customerId) {
+
+        appointments.entrySet().removeIf(entry -> {
+            Pending<Appointment> change = entry.getValue();
+            return change.op != Op.DELETE && change.updated.getCustomerId() == customerId &&
+                   (change.op == Op.INSERT || change.original.getCustomerId() == customerId);
+        });
+
+        appointments.replaceAll((id, change) -> change.op == Op.UPDATE && change.updated.getCustomerId() == customerId ?
+                                                new Pending<>(Op.DELETE, null, null) : change);
+    }
+
+
+    /**
+     *  Merges a change into the queue, keeping the position of a change already queued for the same ID.
+     */
+    private static <T> void merge(LinkedHashMap<Integer, Pending<T>> queue, int id, Pending<T> change) {
+
+        Pending<T> merged = Pending.combine(queue.get(id), change);
+
+        if (merged == null) {
+            queue.remove(id);  // Inserted and deleted before ever being written
+        }
+        else {
+            queue.put(id, merged);
+        }
+    }
+
+
+    /**
+     *  Writes everything queued to database.
+     *  Changes are removed from the queue as soon as they are committed, so a failure only leaves unwritten changes queued.
+     *  Those are merged back in front of changes queued meanwhile and retried on the next flush.
+     *  Nothing is attempted while the database is offline, until it can be reached again.
+     */
+    public static void flush() {
+
+        showConflicts();  // Conflicts found before the GUI was started
+
+        synchronized (flushLock) {
+
+            if (!JDBC.isOnline() && !JDBC.reconnect()) {
+                return;  // Still offline, changes stay queued and journaled
+            }
+
+            LinkedHashMap<Integer, Pending<Appointment>> appointmentBatch;
+            LinkedHashMap<Integer, Pending<Customer>> customerBatch;
+
+            synchronized (WriteBehindQueue.class) {
+                if (appointments.isEmpty() && customers.isEmpty()) {
+                    return;
+                }
+                appointmentBatch = appointments;
+                customerBatch = customers;
+                appointments = new LinkedHashMap<>();
+                customers = new LinkedHashMap<>();
+            }
+
+            int changes = appointmentBatch.size() + customerBatch.size();
+            long start = System.nanoTime();
+
+            try {
+                writeInserts("customer", customerBatch, CustomerQuery::writeCustomers);
+                writeUpdates("customer", customerBatch, CustomerQuery::updateCustomers);
+                writeInserts("appointment", appointmentBatch, AppointmentQuery::writeAppointments);
+                writeUpdates("appointment", appointmentBatch, AppointmentQuery::updateAppointments);
+                writeAppointmentDeletes(appointmentBatch);
+                writeCustomerDeletes(customerBatch);
+
+                Tools.consoleMessage(Tools.MsgType.INFO, "Wrote " + changes + " queued changes in " + (System.nanoTime() - start) / 1_000_000 + " ms", "WriteBehindQueue.flush()");
+            }
+            catch (SQLException e) {
+                if (JDBC.reconnect()) {  // Logs by itself when the database went offline
+                    Tools.consoleMessage(Tools.MsgType.ERROR, "Write-behind flush failed, " + (appointmentBatch.size() + customerBatch.size()) + " changes will be retried: " + e.getMessage(), "WriteBehindQueue.flush()");
+                }
+            }
+
+            synchronized (WriteBehindQueue.class) {
+                boolean anyWritten = appointmentBatch.size() + customerBatch.size() < changes;
+                appointments = requeue(appointmentBatch, appointments);
+                customers = requeue(customerBatch, customers);
+                if (anyWritten) {
+                    checkpointJournal();  // Written changes must not be replayed again
+                }
+            }
+        }
+
+        showConflicts();
+    }
+
+
+    /**
+     *  Writes all queued inserts in batches, removing each batch from the queue once committed.
+     *  If a batch breaks a constraint (the ID was taken by another client) its rows are written one by one,
+     *  rows that still fail are reported as conflicts so they do not block the queue forever.
+     *  Each row leaves the queue as soon as it is written, so rows already saved are never retried after a later failure.
+     */
+    private static <T> void writeInserts(String name, LinkedHashMap<Integer, Pending<T>> batch, BatchWriter<T> writer) throws SQLException {
+
+        List<Integer> ids = idsWith(batch, Op.INSERT);
+
+        for (int from = 0; from < ids.size(); from += Globals.writeBatchSize) {
+
+            List<Integer> chunk = ids.subList(from, Math.min(from + Globals.writeBatchSize, ids.size()));
+            List<T> rows = new ArrayList<>(chunk.size());
+            for (int id : chunk) {
+                rows.add(batch.get(id).updated);
+            }
+
+            try {
+                writer.write(rows);  // No bigger than one JDBC batch, so the chunk is committed as a whole
+                batch.keySet().removeAll(chunk);
+            }
+            catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                for (int id : chunk) {
+                    try {
+                        writer.write(List.of(batch.get(id).updated));
+                    }
+                    catch (SQLException rowFailure) {
+                        if (!isConstraintViolation(rowFailure)) {
+                            throw rowFailure;
+                        }
+                        reportConflict(name + " " + id + " could not be inserted: " + rowFailure.getMessage());
+                    }
+                    batch.remove(id);  // Written or reported, either way it must not be retried
+                }
+            }
+        }
+    }
+
+
+    /**
+     *  Writes queued updates in batches, each update only sends the columns that changed.
+     *  Updates of rows changed or deleted by another client since they were loaded are reported as conflicts.
+     */
+    private static <T> void writeUpdates(String name, LinkedHashMap<Integer, Pending<T>> batch, UpdateWriter<T> writer) throws SQLException {
+
+        List<Integer> ids = idsWith(batch, Op.UPDATE);
+
+        for (int from = 0; from < ids.size(); from += Globals.writeBatchSize) {
+
+            List<Integer> chunk = ids.subList(from, Math.min(from + Globals.writeBatchSize, ids.size()));
+            List<T> originals = new ArrayList<>(chunk.size());
+            List<T> updates = new ArrayList<>(chunk.size());
+            for (int id : chunk) {
+                originals.add(batch.get(id).original);
+                updates.add(batch.get(id).updated);
+            }
+
+            for (int id : writer.write(originals, updates)) {  // One transaction per chunk
+                reportConflict(name + " " + id + " was changed or deleted by another user, local changes were not saved");
+            }
+            batch.keySet().removeAll(chunk);
+        }
+    }
+
+
+    /**
+     * @return True if the statement failed because it broke a constraint, such as a duplicate key.
+     */
+    private static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");  // Integrity constraint violation class
+    }
+
+
+    private static void reportConflict(String conflict) {
+        conflicts.add(conflict);
+        Tools.consoleMessage(Tools.MsgType.ERROR, "Conflict: " + conflict, "WriteBehindQueue.reportConflict()");
+    }
+
+
+    /**
+     *  Tells the user about conflicts not shown yet, in a single message on the JavaFX application thread.
+     *  Conflicts found before the GUI is started (while writing the journal at startup) are shown by a later flush.
+     */
+    private static void showConflicts() {
+
+        List<String> unshown;
+
+        synchronized (conflicts) {
+
+            if (conflictsShown == conflicts.size()) {
+                return;
+            }
+
+            unshown = new ArrayList<>(conflicts.subList(conflictsShown, conflicts.size()));
+
+            try {
+                Platform.runLater(() -> Tools.errorMessage("Changes Not Saved", String.join("\n", unshown)));
+            }
+            catch (IllegalStateException e) {
+                return;  // JavaFX not started yet
+            }
+
+            conflictsShown = conflicts.size();
+        }
+    }
+
+
+    private static void writeAppointmentDeletes(LinkedHashMap<Integer, Pending<Appointment>> batch) throws SQLException {
+
+        List<Integer> ids = idsWith(batch, Op.DELETE);
+
+        if (!ids.isEmpty()) {
+            AppointmentQuery.deleteAppointments(ids);  // Deleting twice is harmless, so a partly committed batch can simply be retried
+            batch.keySet().removeAll(ids);
+        }
+    }
+
+
+    private static void writeCustomerDeletes(LinkedHashMap<Integer, Pending<Customer>> batch) throws SQLException {
+
+        for (int id : idsWith(batch, Op.DELETE)) {
+            CustomerQuery.deleteCustomerCascade(id);
+            batch.remove(id);
+        }
+    }
+
+
+    private static <T> List<Integer> idsWith(LinkedHashMap<Integer, Pending<T>> batch, Op op) {
+
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Pending<T>> entry : batch.entrySet()) {
+            if (entry.getValue().op == op) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+
+
+    /**
+     *  Puts changes that failed to write back in front of changes queued while flushing.
+     */
+    private static <T> LinkedHashMap<Integer, Pending<T>> requeue(LinkedHashMap<Integer, Pending<T>> failed, LinkedHashMap<Integer, Pending<T>> queuedMeanwhile) {
+
+        if (failed.isEmpty()) {
+            return queuedMeanwhile;
+        }
+
+        for (Map.Entry<Integer, Pending<T>> entry : queuedMeanwhile.entrySet()) {
+            merge(failed, entry.getKey(), entry.getValue());
+        }
+        return failed;
+    }
+
+
+    /**
+     *  Opens the journal and queues changes left in it by a previous run.
+     *  The journal is then compacted, so it only holds what is queued.
+     */
+    private static void openJournal() {
+
+        if (!Globals.generateFiles) {
+            return;
+        }
+
+        journal = new MutationJournal(Paths.get(Globals.JOURNAL_DIRECTORY), Globals.journalSegmentBytes);
+        int records = 0;
+
+        try {
+            for (byte[] record : journal.recover()) {
+                readRecord(record);
+                records++;
+            }
+            if (records > 0) {
+                Tools.consoleMessage(Tools.MsgType.INFO, "Recovered " + records + " unsaved changes from journal, " + pendingCount() + " after merging", "WriteBehindQueue.openJournal()");
+            }
+            checkpointJournal();
+        }
+        catch (IOException | RuntimeException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to read journal after " + records + " changes: " + e.getMessage(), "WriteBehindQueue.openJournal()");
+        }
+    }
+
+
+    /**
+     *  Appends a change to the journal, forcing the journal to disk once enough changes have been appended.
+     *  Otherwise the journal is forced every Globals.journalSyncMs by the background thread.
+     */
+    private static void appendToJournal(byte table, int id, Pending<?> change) {
+
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            if (journal.append(encodeRecord(table, id, change)) >= Globals.journalSyncEvery) {
+                journal.sync();
+            }
+        }
+        catch (IOException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to write journal: " + e.getMessage(), "WriteBehindQueue.appendToJournal()");
+        }
+    }
+
+
+    private static void syncJournal() {
+        MutationJournal current = journal;
+        if (current != null) {
+            current.sync();
+        }
+    }
+
+
+    /**
+     *  Replaces the journal with what is still queued.
+     */
+    private static void checkpointJournal() {
+
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            List<byte[]> records = new ArrayList<>(pendingCount());
+            for (Map.Entry<Integer, Pending<Customer>> entry : customers.entrySet()) {
+                records.add(encodeRecord(CUSTOMER, entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<Integer, Pending<Appointment>> entry : appointments.entrySet()) {
+                records.add(encodeRecord(APPOINTMENT, entry.getKey(), entry.getValue()));
+            }
+            journal.checkpoint(records);
+        }
+        catch (IOException e) {
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to compact journal: " + e.getMessage(), "WriteBehindQueue.checkpointJournal()");
+        }
+    }
+
+
+    /**
+     *  Queues a change read back from the journal.
+     *  Records of format 1, written by older versions, are still read so their changes are not lost.
+     */
+    private static void readRecord(byte[] record) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        boolean textTimes = record[0] != RECORD_FORMAT;  // Format 1 starts with the table, which is never RECORD_FORMAT
+        if (!textTimes) {
+            in.readByte();
+        }
+        byte table = in.readByte();
+        int id = in.readInt();
+        Op op = Op.values()[in.readByte()];
+
+        if (table == APPOINTMENT) {
+            Appointment original = op == Op.UPDATE ? readAppointment(in, textTimes) : null;
+            Appointment updated = op == Op.DELETE ? null : readAppointment(in, textTimes);
+            merge(appointments, id, new Pending<>(op, original, updated));
+        }
+        else {
+            Customer original = op == Op.UPDATE ? readCustomer(in, textTimes) : null;
+            Customer updated = op == Op.DELETE ? null : readCustomer(in, textTimes);
+            merge(customers, id, new Pending<>(op, original, updated));
+            if (op == Op.DELETE) {
+                dropAppointmentsOf(id);
+            }
+        }
+    }
+
+
+    /**
+     *  Encodes a single change as a journal record.
+     */
+    private static byte[] encodeRecord(byte table, int id, Pending<?> change) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream record = new DataOutputStream(bytes);
+
+        record.writeByte(RECORD_FORMAT);
+        record.writeByte(table);
+        record.writeInt(id);
+        record.writeByte(change.op.ordinal());
+
+        if (change.original != null) {
+            writeEntity(record, change.original);
+        }
+        if (change.updated != null) {
+            writeEntity(record, change.updated);
+        }
+
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     *  Writes an appointment or customer. Times are written as epoch milliseconds, the same instant is read back in any time zone.
+     */
+    private static void writeEntity(DataOutputStream out, Object entity) throws IOException {
+
+        if (entity instanceof Appointment appointment) {
+            out.writeLong(appointment.getStartMillis());
+            out.writeLong(appointment.getEndMillis());
+            out.writeInt(appointment.getCustomerId());
+            out.writeInt(appointment.getAppointmentId());
+            out.writeInt(appointment.getContactId());
+            writeString(out, appointment.getContactName());
+            writeString(out, appointment.getTitle());
+            writeString(out, appointment.getDescription());
+            writeString(out, appointment.getLocation());
+            writeString(out, appointment.getType());
+            out.writeLong(appointment.getCreationMillis());
+            out.writeLong(appointment.getLastUpdateMillis());
+            writeString(out, appointment.getCreatedBy());
+            writeString(out, appointment.getLastUpdatedBy());
+            out.writeInt(appointment.getUserId());
+        }
+        else {
+            Customer customer = (Customer) entity;
+            out.writeInt(customer.getCustomerId());
+            out.writeInt(customer.getDivisionId());
+            writeString(out, customer.getPostalCode());
+            writeString(out, customer.getCustomerName());
+            writeString(out, customer.getCustomerAddress());
+            writeString(out, customer.getPhoneNumber());
+            out.writeLong(customer.getCreationMillis());
+            out.writeLong(customer.getLastUpdateMillis());
+            writeString(out, customer.getCreatedBy());
+            writeString(out, customer.getLastUpdatedBy());
+        }
+    }
+
+
+    private static Appointment readAppointment(DataInputStream in, boolean textTimes) throws IOException {
+        return new Appointment(readTime(in, textTimes), readTime(in, textTimes), in.readInt(), in.readInt(), in.readInt(), readString(in), readString(in), readString(in),
+                               readString(in), readString(in), readTime(in, textTimes), readTime(in, textTimes), readString(in), readString(in), in.readInt());
+    }
+
+
+    private static Customer readCustomer(DataInputStream in, boolean textTimes) throws IOException {
+        return new Customer(in.readInt(), in.readInt(), readString(in), readString(in), readString(in), readString(in),
+                            readTime(in, textTimes), readTime(in, textTimes), readString(in), readString(in));
+    }
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+
+    /**
+     * @return Epoch milliseconds, format 1 records hold local time as text instead.
+     */
+    private static long readTime(DataInputStream in, boolean textTimes) throws IOException {
+
+        if (!textTimes) {
+            return in.readLong();
+        }
+
+        String value = readString(in);
+        return TimeAndDate.toEpochMilli(value == null ? null : LocalDateTime.parse(value));
+    }
+
+
+    /**
+     *  A change waiting to be written.
+     *  @param <T> Appointment or Customer.
+     */
+    private static class Pending<T> {
+
+        final Op op;
+        final T original;  // State in database, only used by updates
+        final T updated;  // State to write, null for deletes
+
+        Pending(Op op, T original, T updated) {
+            this.op = op;
+            this.original = original;
+            this.updated = updated;
+        }
+
+
+        /**
+         *  Merges a change into the change already queued for the same ID.
+         *  @return The merged change, null if the two cancel out.
+         */
+        static <T> Pending<T> combine(Pending<T> queued, Pending<T> change) {
+
+            if (queued == null) {
+                return change;
+            }
+
+            return switch (queued.op) {
+                case INSERT -> switch (change.op) {
+                    case UPDATE -> new Pending<>(Op.INSERT, null, change.updated);  // Still not in database, insert latest state
+                    case DELETE -> null;
+                    case INSERT -> throw new IllegalStateException("Record inserted twice");
+                };
+                case UPDATE -> switch (change.op) {
+                    case UPDATE -> new Pending<>(Op.UPDATE, queued.original, change.updated);  // Compare against what is in database
+                    case DELETE -> change;
+                    case INSERT -> throw new IllegalStateException("Record inserted twice");
+                };
+                case DELETE -> switch (change.op) {
+                    case UPDATE, DELETE -> queued;  // Already gone
+                    case INSERT -> throw new IllegalStateException("ID reused after delete");  // IdAllocator never hands out an ID twice
+                };
+            };
+        }
+    }
+
+
+    // Writes a batch of new rows, see AppointmentQuery.writeAppointments()
+    private interface BatchWriter<T> {
+        int write(List<T> rows) throws SQLException;
+    }
+
+
+    // Writes the changed columns of many rows, returning IDs of conflicting rows, see AppointmentQuery.updateAppointments()
+    private interface UpdateWriter<T> {
+        List<Integer> write(List<T> originals, List<T> updates) throws SQLException;
+    }
+}
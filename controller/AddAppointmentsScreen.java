@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import java.io.IOException;
 import java.net.URL;
@@ -71,12 +72,14 @@ public class AddAppointmentsScreen implements Initializable {
     List<String> startMinuteOptionsString = new ArrayList<>();
     List<String> endMinuteOptionsString = new ArrayList<>();
 
-    List<Integer> allCustomerId;
-    List<Integer> allContactId;
-    List<Integer> allUserId;
+    NameIdModel customers;
+    NameIdModel contacts;
+    NameIdModel users;
 
     Double timeRemaining = -0.0;  // Tracks how many minutes the company is open, after meeting start time
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when leaving the screen
+
 
 
     /**
@@ -84,21 +87,10 @@ public class AddAppointmentsScreen implements Initializable {
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
-        // Setup customer names combo box
-        try {
-
-            customerNameBox.getItems().addAll(CustomerQuery.fetchAllNameIdPairs());  // Name for display
-            allCustomerId = CustomerQuery.fetchAllId();  // List of customer IDs
-
-            contactNameBox.getItems().addAll(ContactsQuery.fetchAllNameIdPairs());  // Name for display
-            allContactId = ContactsQuery.fetchAllId();  // List of contact IDs
-
-            userIdBox.getItems().addAll(UserQuery.fetchAllNameIdPairs());
-            allUserId = UserQuery.fetchAllUserId();
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // Appointments are needed for overlap checks, customers for the customer combo box, reference data for contact and user names.
+        // Reference data is normally loaded at startup, otherwise it is read here in the background rather than on this thread when saving
+        queries.onFxThread(CompletableFuture.allOf(DataLoader.appointmentsReady(), DataLoader.customersReady(),
+                                                   queries.supply("AddAppointmentsScreen.referenceData", ReferenceData::get)), loaded -> comboBoxSetup());
 
         // Make sure date picker can only select present and future dates
         setupDatePicker();
@@ -115,11 +107,37 @@ public class AddAppointmentsScreen implements Initializable {
     }
 
 
+    /**
+     *  Fills customer, contact and user combo boxes, once the data they need is loaded.
+     *  An appointment cannot be created before, the combo boxes are empty until then.
+     */
+    private void comboBoxSetup() {
+
+        // Setup customer names combo box
+        try {
+
+            customers = NameIdModel.customers();  // Shared with other screens, built once
+            customerNameBox.setItems(customers.getLabels());  // Name for display
+
+            contacts = NameIdModel.contacts();
+            contactNameBox.setItems(contacts.getLabels());
+
+            users = NameIdModel.users();
+            userIdBox.setItems(users.getLabels());
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+
     /**
      *  Returns user to previous screen, without saving.
      */
     public void onCancelButton(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/viewAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.APPOINTMENTS_WIDTH, Globals.APPOINTMENTS_HEIGHT); // Length, height
@@ -424,19 +442,27 @@ public class AddAppointmentsScreen implements Initializable {
      */
     public void onCreateAppointment(ActionEvent actionEvent) throws SQLException, IOException {
 
-        // Generate unique appointment ID
-        int appointmentId = Appointment.setAppointmentId();
+        // Generate unique appointment ID, fails while offline once the IDs reserved for offline use are gone
+        int appointmentId;
+        try {
+            appointmentId = Appointment.setAppointmentId();
+        }
+        catch (SQLException e) {
+            Tools.errorMessage("Appointment Not Created", e.getMessage());
+            return;
+        }
 
         // Get customer ID
-        int customerId = allCustomerId.get(customerNameBox.getSelectionModel().getSelectedIndex());
+        int customerId = customers.idAt(customerNameBox.getSelectionModel().getSelectedIndex());
 
         // Get contact ID
-        int contactId = allContactId.get(contactNameBox.getSelectionModel().getSelectedIndex());
+        int contactId = contacts.idAt(contactNameBox.getSelectionModel().getSelectedIndex());
+        String contactName = ContactsQuery.fetchContactName(contactId);
 
         // Get user ID
         int userId;
         if (userIdBox.getSelectionModel().getSelectedIndex() != -1) {  // -1 indicates no selection
-            userId = allUserId.get(userIdBox.getSelectionModel().getSelectedIndex());
+            userId = users.idAt(userIdBox.getSelectionModel().getSelectedIndex());
         } else {
             userId = User.getUserId();  // Default ID is user currently logged in
         }
@@ -479,7 +505,16 @@ public class AddAppointmentsScreen implements Initializable {
 
         LocalDateTime endDate = startDate.plusMinutes(durationInt);
 
-        if (endDate.toLocalTime().isAfter(TimeAndDate.localEndTime.toLocalTime())) {
+        // Hours offered are today's, company hours in local time can differ on other days (DST)
+        if (BusinessCalendar.isClosedOn(startDate)) {
+            Tools.infoMessage("Company Closed", "The company is closed on the selected day");
+            return;
+        }
+        if (!BusinessCalendar.isOpenAt(startDate)) {
+            Tools.infoMessage("Change Start Time", "Meeting starts outside company hours");
+            return;
+        }
+        if (!BusinessCalendar.isOpen(startDate, endDate)) {
             Tools.infoMessage("Shorten Meeting Duration", "Meeting ends outside company hours");
             return;
         }
@@ -490,16 +525,16 @@ public class AddAppointmentsScreen implements Initializable {
         String lastUpdatedBy = UserQuery.fetchUsername(userId);
 
         // Create appointment object
-        Appointment newAppointment = new Appointment(startDate, endDate, customerId, appointmentId, contactId, title, description, location, type, originalCreation, updatedCreation, originalCreator, lastUpdatedBy, userId);
+        Appointment newAppointment = new Appointment(startDate, endDate, customerId, appointmentId, contactId, contactName, title, description, location, type, originalCreation, updatedCreation, originalCreator, lastUpdatedBy, userId);
 
         // Check if appointment overlaps existing appointment
-        if(checkDateOverlap(newAppointment)) {
+        if(Appointment.checkDateOverlap(newAppointment)) {
             return;  // Overlap was detected, return before saving to DB
         }
 
         Appointment.allAppointments.add(newAppointment);  // Add appointment to local list (used for visuals in GUI)
 
-        AppointmentQuery.writeAppointment(newAppointment);  // Add appointment to DB
+        WriteBehindQueue.insertAppointment(newAppointment);  // Add appointment to DB in the background
 
         showAppointmentMenu(actionEvent);
     }
@@ -534,6 +569,8 @@ public class AddAppointmentsScreen implements Initializable {
      */
     public void showAppointmentMenu(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/viewAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.APPOINTMENTS_WIDTH, Globals.APPOINTMENTS_HEIGHT); // Length, height
@@ -579,92 +616,6 @@ public class AddAppointmentsScreen implements Initializable {
     }
 
 
-    /**
-     *  Checks newly created appointment against all existing appointments for overlaps.
-     *  This method can check for overlaps based on contact or customer, if an overlap
-     *  is detected, a message will be printed to the user and the appointment will not
-     *  be saved to the database.
-     * @param appointment The newly created appointment to be checked.
-     * @return True if an overlap exists, false if not.
-     */
-    private boolean checkDateOverlap(Appointment appointment) {
-
-        boolean overlapFound = false;
-
-        LocalDateTime newDateStart = appointment.getStartDate();
-        LocalDateTime newDateEnd = appointment.getEndDate();
-
-        // Cycle through all existing appointments
-        for (int i = 0; i < Appointment.allAppointments.size(); i++) {
-
-            Appointment existingAppointment = Appointment.allAppointments.get(i);
-            LocalDateTime existingStartDate = existingAppointment.getStartDate();
-            LocalDateTime existingEndDate = existingAppointment.getEndDate();
-
-            if (existingAppointment.getCustomerId() == appointment.getCustomerId() && Globals.checkOverlapCustomers) {
-
-
-                //  Date starts or ends at exact time of another appointment (D1 and D2 are the same)
-                if (newDateStart.equals(existingStartDate) || newDateEnd.equals(existingEndDate) || newDateStart.equals(existingEndDate) || newDateEnd.equals(existingStartDate)) {
-                    overlapFound = true;
-                }
-                // Date starts before, and ends after existing date (D2 takes place within D1)
-                else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingEndDate)) {
-                    overlapFound =  true;
-                }
-                // Date starts before existing date, but ends after existing start date (D1 end time partially overlaps D2)
-                else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingStartDate)) {
-                    overlapFound = true;
-                }
-                //  Date starts after existing date, and ends before existing date end (D1 takes place within D2)
-                else if (newDateStart.isAfter(existingStartDate)  && newDateEnd.isBefore(existingEndDate)) {
-                    overlapFound = true;
-                }
-                // Date starts after existing date, but ends after existing date end (D1 overlaps latter half of D2)
-                else if (newDateStart.isAfter(existingStartDate) && newDateStart.isBefore(existingEndDate) && newDateEnd.isAfter(existingEndDate)) {
-                    overlapFound = true;
-                }
-
-                if (overlapFound) {
-                    Tools.infoMessage("Invalid Time", "Selected customer (ID: " + existingAppointment.getCustomerId() + ") has an overlapping appointment");
-                    return true;
-                }
-            }
-
-            if (existingAppointment.getContactId() == appointment.getContactId()  && Globals.checkOverlapContacts) {
-
-                if (newDateStart.isEqual(existingStartDate) || newDateEnd.isEqual(existingEndDate)) {
-                    overlapFound = true;
-                }
-                // Date starts before, and ends after existing date (D2 takes place within D1)
-                else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingEndDate)) {
-                    overlapFound =  true;
-                }
-                // Date starts before existing date, but ends after existing start date (D1 end time partially overlaps D2)
-                else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingStartDate)) {
-                    overlapFound = true;
-                }
-                //  Date starts after existing date, and ends before existing date end (D1 takes place within D2)
-                else if (newDateStart.isAfter(existingStartDate)  && newDateEnd.isBefore(existingEndDate)) {
-                    overlapFound = true;
-                }
-                // Date starts after existing date, but ends after existing date end (D1 overlaps latter half of D2)
-                else if (newDateStart.isAfter(existingStartDate) && newDateStart.isBefore(existingEndDate) && newDateEnd.isAfter(existingEndDate)) {
-                    overlapFound = true;
-                }
-
-                if (overlapFound) {
-                    Tools.infoMessage("Invalid Time", "Selected contact (ID: " + existingAppointment.getContactId() + ") has an overlapping appointment");
-                    return true;
-                }
-            }
-        }
-
-        Tools.consoleMessage(Tools.MsgType.INFO, "No overlaps found when creating appointment " + appointment.getAppointmentId(), "AddAppointmentsScreen.checkDateOverlap()");
-        return false;
-
-    }
-
     /**
      *  Prints message informing user about manually setting user ID.
      *  It is recommended to let program determine user ID automatically.
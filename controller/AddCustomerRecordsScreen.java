@@ -1,7 +1,9 @@
 package controller;
 
-import DAO.CustomerQuery;
+import DAO.AsyncDao;
 import DAO.FirstLevelDivisionQuery;
+import DAO.ReferenceData;
+import DAO.WriteBehindQueue;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -18,6 +20,7 @@ import javafx.util.Callback;
 import model.CountriesAndDivisions;
 import model.Customer;
 import model.Globals;
+import model.Tools;
 import model.User;
 
 import java.io.IOException;
@@ -52,6 +55,8 @@ public class AddCustomerRecordsScreen implements Initializable {
     public TextField buildingNumberField;
     public TextField streetNameField;
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when leaving the screen
+
 
     /**
      *  Sets up combo boxes for countries and first level divisions, also applies custom formatting to two fields.
@@ -59,7 +64,10 @@ public class AddCustomerRecordsScreen implements Initializable {
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
-        countryComboBox.setItems(CountriesAndDivisions.countries);
+        // Division IDs are looked up in reference data when saving, no customer can be created before it is read in the background.
+        // It is normally loaded at startup, then only the countries themselves may still be loading
+        queries.onFxThread(queries.supply("AddCustomerRecordsScreen.referenceData", ReferenceData::get),
+                           data -> countryComboBox.setItems(CountriesAndDivisions.countries));  // Filled in once countries are loaded
         phoneNumberField.setTextFormatter(new TextFormatter<String>(change -> filterTyping(change.getText()) ? change : null));
         buildingNumberField.setTextFormatter(new TextFormatter<String>(change -> filterTypingInteger(change.getText()) ? change : null));
 
@@ -181,6 +189,8 @@ public class AddCustomerRecordsScreen implements Initializable {
      */
     public void onBackButton(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/customerRecordsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.CUST_RECORDS_WIDTH, Globals.CUST_RECORDS_HEIGHT); // Length, height
@@ -336,7 +346,14 @@ public class AddCustomerRecordsScreen implements Initializable {
         }
 
         int divisionId = FirstLevelDivisionQuery.fetchDivisionId(division);
-        int customerId = Customer.generateCustomerId();
+        int customerId;
+        try {
+            customerId = Customer.generateCustomerId();
+        }
+        catch (SQLException e) {  // Offline and the IDs reserved for offline use are gone
+            Tools.errorMessage("Customer Not Created", e.getMessage());
+            return;
+        }
         String createdBy =  User.getUsername();
         Customer customer = new Customer(customerId, divisionId, postalCode, name, fullStreetAddress, phoneNumber, LocalDateTime.now(), LocalDateTime.now(), createdBy, createdBy);
 
@@ -347,8 +364,8 @@ public class AddCustomerRecordsScreen implements Initializable {
         // Add customer to local list
         Customer.allCustomers.add(customer);
 
-        // Add customer to database
-        CustomerQuery.writeCustomer(customer);
+        // Add customer to database in the background
+        WriteBehindQueue.insertCustomer(customer);
 
         showRecordsScreen(actionEvent);
     }
@@ -462,6 +479,8 @@ public class AddCustomerRecordsScreen implements Initializable {
      */
     public void showRecordsScreen(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/customerRecordsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.CUST_RECORDS_WIDTH, Globals.CUST_RECORDS_HEIGHT); // Length, height
@@ -1,6 +1,9 @@
 package controller;
 
-import DAO.AppointmentQuery;
+import DAO.DataLoader;
+import DAO.SyncEngine;
+import DAO.SyncListener;
+import DAO.WriteBehindQueue;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
@@ -63,6 +66,8 @@ public class AppointmentsScreen implements Initializable {
     String byWeek = "Appointments By Week";
     String byMonth = "Appointments By Month";
 
+    private final SyncListener syncListener = this::onSynced;  // Removed when leaving the screen
+
 
     /**
      *  Adds all appointment objects to a tableview.
@@ -71,11 +76,36 @@ public class AppointmentsScreen implements Initializable {
 
         setupComboBox();
 
-        appointmentsTableView.setItems(Appointment.allAppointments);
+        appointmentsTableView.setItems(Appointment.allAppointments);  // Filled in once appointments are loaded
 
         tableviewSetup();
+        DataLoader.appointmentsReady().thenRun(() -> DataLoader.logMilestone("First table shown"));
 
         tableCellHover();  // Appointment start time is show when user hovers over column
+
+        SyncEngine.addListener(syncListener);
+    }
+
+
+    /**
+     *  Recalculates the selected day, week or month view when another user changed appointments.
+     *  The view of all appointments shows the local list itself, it is already up to date.
+     */
+    private void onSynced(SyncEngine.Changes changes) {
+
+        if (!changes.hasAppointmentChanges()) {
+            return;
+        }
+
+        if (byDay.equals(optionsComboBox.getValue())) {
+            Appointment.setAppointmentsByDay();
+        }
+        else if (byWeek.equals(optionsComboBox.getValue())) {
+            Appointment.setAppointmentsByWeek();
+        }
+        else if (byMonth.equals(optionsComboBox.getValue())) {
+            Appointment.setAppointmentsByMonth();
+        }
     }
 
     /**
@@ -83,6 +113,8 @@ public class AppointmentsScreen implements Initializable {
      */
     public void onBackButton(ActionEvent actionEvent) throws IOException {
 
+        SyncEngine.removeListener(syncListener);
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/mainMenuScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.MAIN_MENU_WIDTH, Globals.MAIN_MENU_HEIGHT); // Length, height
@@ -174,6 +206,7 @@ public class AppointmentsScreen implements Initializable {
      *  Opens new screen where user can add a new appointment.
      */
     public void onAddAppointmentButton(ActionEvent actionEvent) throws IOException {
+        SyncEngine.removeListener(syncListener);
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/addAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.APPOINTMENTS_WIDTH, Globals.APPOINTMENTS_HEIGHT); // Length, height
@@ -189,8 +222,8 @@ public class AppointmentsScreen implements Initializable {
      */
     public void onDeleteAppointment() throws SQLException {
 
-        AppointmentQuery.deleteAppointment(selectedAppointment.getAppointmentId());  // Delete appointment from DB
         Appointment.deleteAppointment(selectedAppointment.getAppointmentId());  // Delete appointment from local memory
+        WriteBehindQueue.deleteAppointment(selectedAppointment.getAppointmentId());  // Delete appointment from DB in the background
 
         Tools.infoMessage("Appointment Cancelled", "Appointment ID: " + selectedAppointment.getAppointmentId() + ", Type: " + selectedAppointment.getType());
 
@@ -245,6 +278,7 @@ public class AppointmentsScreen implements Initializable {
      *  Opens a new screen where user can update an existing appointment.
      */
     public void onUpdateAppointment(ActionEvent actionEvent) throws IOException {
+        SyncEngine.removeListener(syncListener);
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/UpdateAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.APPOINTMENTS_WIDTH, Globals.APPOINTMENTS_HEIGHT); // Length, height
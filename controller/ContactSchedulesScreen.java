@@ -1,5 +1,6 @@
 package controller;
 
+import DAO.AsyncDao;
 import DAO.ContactsQuery;
 
 import javafx.fxml.Initializable;
@@ -34,6 +35,8 @@ public class ContactSchedulesScreen implements Initializable {
     public Label contactNameLabel;
     public Button closeButton;
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when the schedule is closed
+
 
     /**
      *  Adds all customer objects to a tableview, also sets values of contact info labels.
@@ -41,10 +44,13 @@ public class ContactSchedulesScreen implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
         tableview.getSelectionModel().clearSelection();  // Start working with a clean slate
+        int contactId = ReportsScreen.selectedContact;
+
         try {
-            contactIdLabel.setText(Integer.toString(ReportsScreen.selectedContact));
-            contactNameLabel.setText(ContactsQuery.fetchContactName(ReportsScreen.selectedContact));
-            tableviewSetup(ReportsScreen.selectedContact);
+            contactIdLabel.setText(Integer.toString(contactId));
+            contactNameLabel.setText("...");  // Filled in once the background query returns
+            queries.onFxThread(queries.supply("ContactSchedulesScreen.contactName", () -> ContactsQuery.fetchContactName(contactId)), contactNameLabel::setText);
+            tableviewSetup(contactId);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -72,6 +78,7 @@ public class ContactSchedulesScreen implements Initializable {
      *  Closes current window, parent window remains open.
      */
     public void onCloseButton() throws IOException {
+        queries.cancel();
         Stage stage = (Stage) closeButton.getScene().getWindow();
         stage.close();
     }
@@ -1,5 +1,6 @@
 package controller;
 
+import DAO.AsyncDao;
 import DAO.CustomerQuery;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -16,7 +17,6 @@ import model.Customer;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.SQLException;
 import java.util.ResourceBundle;
 
 
@@ -38,21 +38,25 @@ public class CountriesReportScreen implements Initializable {
 
     ObservableList<Customer> customerList = FXCollections.observableArrayList();
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when the report is closed
+
 
     /**
      *  Adds all customer objects to a tableview, also sets values of country info labels.
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
-        try {
-           customerList = CustomerQuery.fetchAllCustomersByCountry(ReportsScreen.selectedCountry);
-           tableviewSetup();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        String country = ReportsScreen.selectedCountry;
+
+        // Table is shown empty right away, customers are filled in once the background query returns
+        tableviewSetup();
+        countryNameLabel.setText(country);
+        customerCountLabel.setText("...");
 
-        countryNameLabel.setText(ReportsScreen.selectedCountry);
-        customerCountLabel.setText(Integer.toString(customerList.size()));
+        queries.onFxThread(queries.supply("CountriesReportScreen.customersByCountry", () -> CustomerQuery.fetchAllCustomersByCountry(country)), customers -> {
+            customerList.setAll(customers);
+            customerCountLabel.setText(Integer.toString(customerList.size()));
+        });
 
     }
 
@@ -60,9 +64,9 @@ public class CountriesReportScreen implements Initializable {
     /**
      *  Creates a table view using customer and country info fetched from the database.
      */
-    public void tableviewSetup() throws SQLException {
+    public void tableviewSetup() {
 
-        recordsTableView.setItems(CustomerQuery.fetchAllCustomersByCountry(ReportsScreen.selectedCountry));
+        recordsTableView.setItems(customerList);  // Filled in by initialize()
         idCol.setCellValueFactory(new PropertyValueFactory<>("customerId"));
         customerNameCol.setCellValueFactory(new PropertyValueFactory<>("customerName"));
         customerAddressCol.setCellValueFactory(new PropertyValueFactory<>("customerAddress"));
@@ -74,6 +78,7 @@ public class CountriesReportScreen implements Initializable {
      *  Closes current window, parent window remains open.
      */
     public void onCloseButton(ActionEvent actionEvent) throws IOException {
+        queries.cancel();
         Stage stage = (Stage) closeButton.getScene().getWindow();
         stage.close();
     }
@@ -1,7 +1,7 @@
 package controller;
 
-import DAO.AppointmentQuery;
-import DAO.CustomerQuery;
+import DAO.DataLoader;
+import DAO.WriteBehindQueue;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -52,10 +52,10 @@ public class CustomerRecordsScreen  implements Initializable {
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
-
-        recordsTableView.setItems(Customer.allCustomers);
+        recordsTableView.setItems(Customer.allCustomers);  // Filled in once customers are loaded
 
         tableviewSetup();
+        DataLoader.customersReady().thenRun(() -> DataLoader.logMilestone("First table shown"));
 
     }
 
@@ -103,9 +103,17 @@ public class CustomerRecordsScreen  implements Initializable {
      */
     public void onDeleteRecord() throws SQLException {
 
-        if (safeToDeleteCustomer(selectedCustomer.getCustomerId())) {
-            CustomerQuery.deleteCustomer(selectedCustomer.getCustomerId());  // Delete customer from database
-            Customer.deleteCustomer(selectedCustomer.getCustomerId());  // Delete customer from local memory
+        int customerId = selectedCustomer.getCustomerId();
+
+        if (safeToDeleteCustomer(customerId)) {
+            List<Appointment> appointmentsDeleted = Appointment.deleteAppointmentsByCustomer(customerId);  // Delete associated appointments locally
+            Customer.deleteCustomer(customerId);  // Delete customer from local memory
+
+            WriteBehindQueue.deleteCustomer(customerId);  // Customer and their appointments are deleted from database in one transaction
+
+            if (!appointmentsDeleted.isEmpty()) {
+                Tools.infoMessage("Customer with ID (" + customerId +") deleted", appointmentsDeleted.size() + " appointment(s) where also deleted.");
+            }
         }
 
         deleteButton.setDisable(true);
@@ -120,26 +128,11 @@ public class CustomerRecordsScreen  implements Initializable {
      */
     public  boolean safeToDeleteCustomer(int customerId) throws SQLException {
 
-        // List containing all appointment IDs (if any)
-        List<Integer> customerAppointments = AppointmentQuery.fetchAppointmentsByCustomer(customerId);
-
-        if (customerAppointments.size() > 0) {  // Constraint exists
-
-            if(Tools.confirmationMessage("Delete This Record?", "This will delete all appointments associated with customer. Press OK to Delete")) {
-                for (int id : customerAppointments) {
-                    AppointmentQuery.deleteAppointment(id);  // Delete associated appointments from DB
-                    Appointment.deleteAppointment(id);  // Delete associated appointments locally
-                }
-
-                Tools.infoMessage("Customer with ID (" + customerId +") deleted", customerAppointments.size() + " appointment(s) where also deleted.");
-
-                return true;  // Constraint existed, user confirmed it's ok to delete appointments
-            }
-            else {
-                return false;  // Constraint existed, user chose to not delete appointments
-            }
-
+        // Checked locally, appointments added moments ago may not be in the database yet
+        if (Appointment.countAppointmentsByCustomer(customerId) > 0) {  // Constraint exists
 
+            // True if user confirmed it's ok to delete appointments
+            return Tools.confirmationMessage("Delete This Record?", "This will delete all appointments associated with customer. Press OK to Delete");
         }
         else {  // No constraints
             return true;
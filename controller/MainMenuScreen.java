@@ -1,6 +1,9 @@
 package controller;
 
 import DAO.AppointmentQuery;
+import DAO.AsyncDao;
+import DAO.SyncEngine;
+import DAO.SyncListener;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
@@ -15,11 +18,10 @@ import javafx.stage.Stage;
 
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import java.net.URL;
 
-import java.sql.SQLException;
-
 import java.time.LocalDateTime;
 
 import java.io.IOException;
@@ -46,6 +48,9 @@ public class MainMenuScreen implements Initializable {
 
     public Appointment upcomingAppointment;
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when leaving the menu
+    private SyncListener syncListener;  // Removed when leaving the menu
+
 
     /**
      *  Sets up initial visuals for the user.
@@ -60,11 +65,10 @@ public class MainMenuScreen implements Initializable {
 
 
         // Appointments are queried each time menu is shown, to keep appointment alert accurate
-        try {
-            upcomingAppointment =  AppointmentQuery.fetchAppointmentsBetweenDates(Globals.alertTimeframe);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // The query runs in the background, the menu is shown right away and the alert is filled in once it returns
+        CompletableFuture<Appointment> upcoming = queries.supply("MainMenuScreen.upcomingAppointment",
+                () -> AppointmentQuery.fetchAppointmentsBetweenDates(Globals.alertTimeframe));
+        appointmentAlertLabel.setText("Checking for upcoming appointments...");
 
 
         // One of the required lambda expressions
@@ -113,8 +117,42 @@ public class MainMenuScreen implements Initializable {
 
         };
 
-        displayUpcomingAppointment.appointmentAlerts(upcomingAppointment);
+        queries.onFxThread(upcoming, appointment -> {
+            upcomingAppointment = appointment;
+            displayUpcomingAppointment.appointmentAlerts(upcomingAppointment);
+        });
+
+
+        // Other users may add, move or cancel appointments while the menu is open, the alert is checked again when they do
+        syncListener = changes -> {
+
+            if (!changes.hasAppointmentChanges()) {
+                return;
+            }
+
+            queries.onFxThread(queries.supply("MainMenuScreen.upcomingAppointment",
+                    () -> AppointmentQuery.fetchAppointmentsBetweenDates(Globals.alertTimeframe)), appointment -> {
+
+                boolean alertChanged = appointment == null ? upcomingAppointment != null :
+                        upcomingAppointment == null || appointment.getAppointmentId() != upcomingAppointment.getAppointmentId();
 
+                if (alertChanged) {
+                    upcomingAppointment = appointment;
+                    displayUpcomingAppointment.appointmentAlerts(upcomingAppointment);
+                }
+            });
+        };
+        SyncEngine.addListener(syncListener);
+
+    }
+
+
+    /**
+     *  Stops background work for the menu, called before leaving it.
+     */
+    private void leaveMenu() {
+        queries.cancel();
+        SyncEngine.removeListener(syncListener);
     }
 
 
@@ -131,6 +169,7 @@ public class MainMenuScreen implements Initializable {
      */
     public void showPreferencesScreen(ActionEvent actionEvent) throws IOException
     {
+        leaveMenu();
 
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/preferencesScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
@@ -157,6 +196,7 @@ public class MainMenuScreen implements Initializable {
      */
     public void onAppointmentsButton(ActionEvent actionEvent) throws IOException {
 
+        leaveMenu();
 
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/viewAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
@@ -174,6 +214,7 @@ public class MainMenuScreen implements Initializable {
      */
     public void onRecordsButton(ActionEvent actionEvent) throws IOException {
 
+        leaveMenu();
 
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/customerRecordsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
@@ -190,6 +231,7 @@ public class MainMenuScreen implements Initializable {
      */
     public void onReportsScreen(ActionEvent actionEvent) throws IOException {
 
+        leaveMenu();
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/reportsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         stage.setResizable(false);
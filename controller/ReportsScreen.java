@@ -1,5 +1,6 @@
 package controller;
 
+import DAO.AsyncDao;
 import DAO.ContactsQuery;
 import DAO.CountriesQuery;
 import javafx.event.ActionEvent;
@@ -20,7 +21,6 @@ import model.User;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -44,6 +44,8 @@ public class ReportsScreen implements Initializable {
 
     List<Stage> reportStages = new ArrayList<>();
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when leaving the reports screen
+
     public static int selectedContact = 1;  // Placeholder that can get overwritten
     public static String selectedCountry;
 
@@ -60,12 +62,9 @@ public class ReportsScreen implements Initializable {
         // Display current user
         currentUserLabel.setText("Current User: " + User.getUsername());
 
-        try {
-            contactComboBox.setItems(ContactsQuery.fetchAllId());
-            countryComboBox.setItems(CountriesQuery.fetchAllCountries());
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // Combo boxes are filled in once the background queries return
+        queries.onFxThread(queries.supply("ReportsScreen.contactIds", ContactsQuery::fetchAllId), contactComboBox::setItems);
+        queries.onFxThread(queries.supply("ReportsScreen.countries", CountriesQuery::fetchAllCountries), countryComboBox::setItems);
     }
 
 
@@ -88,6 +87,8 @@ public class ReportsScreen implements Initializable {
             }
         }
 
+        queries.cancel();
+
         // Close child windows
         for (Stage stage : reportStages) {
             stage.close();
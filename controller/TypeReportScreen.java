@@ -1,12 +1,19 @@
 package controller;
 
-import DAO.AppointmentQuery;
+import DAO.AsyncDao;
+import DAO.DataLoader;
+import model.Appointment;
+import model.AppointmentAnalytics;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.TreeMap;
 
 
 /**
@@ -18,32 +25,65 @@ public class TypeReportScreen implements Initializable {
 
     public Button closeButton;
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when the report is closed
+
 
     /**
      *  Attempts to set up text area where report data will be printed.
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
-
-        try {
-            textAreaSetup();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        textAreaSetup();
     }
 
     /**
      *  Populates the text area with report data.
+     *  The report is counted from local appointments, a placeholder is shown until they are loaded.
      */
-    public void textAreaSetup() throws SQLException {
-        String displayString = AppointmentQuery.fetchAppointmentsByTypeAndMonth().toString();
-        displayString = displayString.substring(1, displayString.length()-1);
-        textArea.setText(displayString);
+    public void textAreaSetup() {
+
+        textArea.setText("Loading report...");
+
+        queries.onFxThread(DataLoader.appointmentsReady(), loaded -> {
+            String displayString = Appointment.getAppointmentsByTypeAndMonth().toString();
+            displayString = displayString.substring(1, displayString.length()-1);
+            textArea.setText(displayString);
+            durationSetup();
+        });
+    }
+
+
+    /**
+     *  Adds appointment durations by type below the counts, grouped in the background from local appointments.
+     */
+    public void durationSetup() {
+
+        try {
+            queries.onFxThread(AppointmentAnalytics.groupBy(null, AppointmentAnalytics.Dimension.TYPE), groups -> {
+
+                Map<String, AppointmentAnalytics.Stats> byType = new TreeMap<>();
+                for (Map.Entry<List<Object>, AppointmentAnalytics.Stats> group : groups.entrySet()) {
+                    byType.put(Objects.toString(group.getKey().get(0)), group.getValue());
+                }
+
+                StringBuilder report = new StringBuilder("\n\nDuration by type (minutes)");
+                for (Map.Entry<String, AppointmentAnalytics.Stats> type : byType.entrySet()) {
+                    AppointmentAnalytics.Stats stats = type.getValue();
+                    report.append(String.format("%n%s: average %.0f, median %d, 90%% within %d, longest %d", type.getKey(), stats.getAverageMinutes(),
+                            stats.getPercentileMinutes(0.5), stats.getPercentileMinutes(0.9), stats.getMaxMinutes()));
+                }
+                textArea.appendText(report.toString());
+            });
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
      *  Closes the report view.
      */
     public void onCloseButton() {
+        queries.cancel();
         Stage stage = (Stage) closeButton.getScene().getWindow();
         stage.close();
     }
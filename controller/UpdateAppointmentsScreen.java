@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -69,41 +70,59 @@ public class UpdateAppointmentsScreen implements Initializable {
     List<String> startMinuteOptionsString = new ArrayList<>();
     List<String> endMinuteOptionsString = new ArrayList<>();
 
-    List<Integer> allCustomerId;
-    List<Integer> allContactId;
-    List<Integer> allUserId;
+    NameIdModel customers;
+    NameIdModel contacts;
+    NameIdModel users;
 
     Double timeRemaining = -0.0;  // Tracks how many minutes the company is open, after meeting start time
     private int charsRemaining = 80;  // Character limit for description
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when leaving the screen
+
 
     /**
      *  Sets up all interactive options for user, such as combo boxes and date picker.
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
+        createAppointmentButton.setDisable(true);  // Enabled once the fields are filled in
+
         // Date must be set manually during update otherwise they will be null
         datePicker.setValue(AppointmentsScreen.selectedAppointment.getStartDate().toLocalDate());
         datePicker.getEditor().setDisable(true);
 
-        // Attempt to grab old appointment info and populate text fields
-        try {
-            populateFields();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // Make sure date picker can only select present and future dates
+        setupDatePicker();
+
+        // Setup appointment types combo box
+        typeBox.getItems().addAll(Appointment.appointmentTypes);
+
+        // Prevent appointmentDescription from being more than 80 chars, which is roughly 2-3 sentences
+        appointmentDescription.setTextFormatter(new TextFormatter<String>(change -> change.getControlNewText().length() <= 80 ? change : null));
+
+        // Appointments are needed for overlap checks, customers for the customer combo box, reference data for contact and user names.
+        // Reference data is normally loaded at startup, otherwise it is read here in the background rather than on this thread when saving
+        queries.onFxThread(CompletableFuture.allOf(DataLoader.appointmentsReady(), DataLoader.customersReady(),
+                                                   queries.supply("UpdateAppointmentsScreen.referenceData", ReferenceData::get)), loaded -> fieldsSetup());
+    }
+
+
+    /**
+     *  Fills combo boxes and fields with the appointment being modified, once the data they need is loaded.
+     */
+    private void fieldsSetup() {
 
         // Setup customer names combo box
         try {
 
-            customerNameBox.getItems().addAll(CustomerQuery.fetchAllNameIdPairs());  // Name for display
-            allCustomerId = CustomerQuery.fetchAllId();  // List of customer IDs
+            customers = NameIdModel.customers();  // Shared with other screens, built once
+            customerNameBox.setItems(customers.getLabels());  // Name for display
 
-            contactNameBox.getItems().addAll(ContactsQuery.fetchAllNameIdPairs());  // Name for display
-            allContactId = ContactsQuery.fetchAllId();  // List of contact IDs
+            contacts = NameIdModel.contacts();
+            contactNameBox.setItems(contacts.getLabels());
 
-            userIdBox.getItems().addAll(UserQuery.fetchAllNameIdPairs());
-            allUserId = UserQuery.fetchAllUserId();
+            users = NameIdModel.users();
+            userIdBox.setItems(users.getLabels());
 
         } catch (SQLException e) {
 
@@ -111,18 +130,18 @@ public class UpdateAppointmentsScreen implements Initializable {
 
         }
 
-        // Make sure date picker can only select present and future dates
-        setupDatePicker();
-
-        // Setup appointment types combo box
-        typeBox.getItems().addAll(Appointment.appointmentTypes);
-
-        // Prevent appointmentDescription from being more than 80 chars, which is roughly 2-3 sentences
-        appointmentDescription.setTextFormatter(new TextFormatter<String>(change -> change.getControlNewText().length() <= 80 ? change : null));
+        // Attempt to grab old appointment info and populate text fields, combo boxes must be filled first
+        try {
+            populateFields();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
 
         // Populate time options
         setupTimeBoxes();
         timeRemaining();
+
+        createAppointmentButton.setDisable(!verifyNotNull());
     }
 
 
@@ -131,6 +150,8 @@ public class UpdateAppointmentsScreen implements Initializable {
      */
     public void onCancelButton(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/viewAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.APPOINTMENTS_WIDTH, Globals.APPOINTMENTS_HEIGHT); // Length, height
@@ -487,15 +508,16 @@ public class UpdateAppointmentsScreen implements Initializable {
         int appointmentId = AppointmentsScreen.selectedAppointment.getAppointmentId();
 
         // Get customer ID
-        int customerId = allCustomerId.get(customerNameBox.getSelectionModel().getSelectedIndex());
+        int customerId = customers.idAt(customerNameBox.getSelectionModel().getSelectedIndex());
 
         // Get contact ID
-        int contactId = allContactId.get(contactNameBox.getSelectionModel().getSelectedIndex());
+        int contactId = contacts.idAt(contactNameBox.getSelectionModel().getSelectedIndex());
+        String contactName = ContactsQuery.fetchContactName(contactId);
 
         // Get user ID
         int userId;
         if (userIdBox.getSelectionModel().getSelectedIndex() != -1) {
-            userId = allUserId.get(userIdBox.getSelectionModel().getSelectedIndex());
+            userId = users.idAt(userIdBox.getSelectionModel().getSelectedIndex());
         } else {
             userId = User.getUserId();  // Default is current user
         }
@@ -538,7 +560,16 @@ public class UpdateAppointmentsScreen implements Initializable {
 
         LocalDateTime endDate = startDate.plusMinutes(durationInt);
 
-        if (endDate.toLocalTime().isAfter(TimeAndDate.localEndTime.toLocalTime())) {
+        // Hours offered are today's, company hours in local time can differ on other days (DST)
+        if (BusinessCalendar.isClosedOn(startDate)) {
+            Tools.infoMessage("Company Closed", "The company is closed on the selected day");
+            return;
+        }
+        if (!BusinessCalendar.isOpenAt(startDate)) {
+            Tools.infoMessage("Change Start Time", "Meeting starts outside company hours");
+            return;
+        }
+        if (!BusinessCalendar.isOpen(startDate, endDate)) {
             Tools.infoMessage("Shorten Meeting Duration", "Meeting ends outside company hours");
             return;
         }
@@ -552,17 +583,19 @@ public class UpdateAppointmentsScreen implements Initializable {
         String lastUpdatedBy = UserQuery.fetchUsername(userId);
 
 
-        Appointment newAppointment = new Appointment(startDate, endDate, customerId, appointmentId, contactId, title, description, location, type, originalCreation, updatedCreation, originalCreator, lastUpdatedBy, userId);
+        Appointment newAppointment = new Appointment(startDate, endDate, customerId, appointmentId, contactId, contactName, title, description, location, type, originalCreation, updatedCreation, originalCreator, lastUpdatedBy, userId);
 
 
         // Check if appointment overlaps existing appointment
-        if(checkDateOverlap(newAppointment)) {
+        if(Appointment.checkDateOverlap(newAppointment)) {
             return;  // Overlap was detected, return before saving
         }
 
-        Appointment.allAppointments.set(index, newAppointment);  // Overwrite old appointment with update locally
-
-        AppointmentQuery.updateAppointment(newAppointment, appointmentId);  // Update appointment in database
+        // Overwrite old appointment locally, changed columns are written to database in the background
+        if (!newAppointment.changesFrom(AppointmentsScreen.selectedAppointment).isEmpty()) {
+            Appointment.allAppointments.set(index, newAppointment);
+            WriteBehindQueue.updateAppointment(AppointmentsScreen.selectedAppointment, newAppointment);
+        }
 
         showAppointmentMenu(actionEvent);
     }
@@ -598,6 +631,8 @@ public class UpdateAppointmentsScreen implements Initializable {
      */
     public void showAppointmentMenu(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/viewAppointmentsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.APPOINTMENTS_WIDTH, Globals.APPOINTMENTS_HEIGHT); // Length, height
@@ -615,10 +650,10 @@ public class UpdateAppointmentsScreen implements Initializable {
         AppointmentIdField.setText((Integer.toString(AppointmentsScreen.selectedAppointment.getAppointmentId())));
 
         // Setup contact name combo box
-        contactNameBox.getSelectionModel().select(ContactsQuery.fetchAllNameIdPair(AppointmentsScreen.selectedAppointment.getContactId()));
+        contactNameBox.getSelectionModel().select(contacts.indexOf(AppointmentsScreen.selectedAppointment.getContactId()));
 
         // Setup customer name combo box
-        customerNameBox.getSelectionModel().select(CustomerQuery.fetchAllNameIdPair(AppointmentsScreen.selectedAppointment.getCustomerId()));
+        customerNameBox.getSelectionModel().select(customers.indexOf(AppointmentsScreen.selectedAppointment.getCustomerId()));
 
         // Setup type box
         typeBox.getSelectionModel().select(AppointmentsScreen.selectedAppointment.getType());
@@ -722,96 +757,6 @@ public class UpdateAppointmentsScreen implements Initializable {
 
 
 
-    /**
-     *  Checks newly created appointment against all existing appointments for overlaps.
-     *  This method can check for overlaps based on contact or customer, if an overlap
-     *  is detected, a message will be printed to the user and the appointment will not
-     *  be saved to the database.
-     * @param appointment The newly created appointment to be checked.
-     * @return True if an overlap exists, false if not.
-     */
-     private boolean checkDateOverlap(Appointment appointment) {
-
-        boolean overlapFound = false;
-
-        LocalDateTime newDateStart = appointment.getStartDate();
-        LocalDateTime newDateEnd = appointment.getEndDate();
-
-        for (int i = 0; i < Appointment.allAppointments.size(); i++) {
-
-            Appointment existingAppointment = Appointment.allAppointments.get(i);
-            LocalDateTime existingStartDate = existingAppointment.getStartDate();
-            LocalDateTime existingEndDate = existingAppointment.getEndDate();
-
-            // When updating, the appointment being modified is already in the DB, no point in checking an appointment overlap on itself
-            if (existingAppointment.getAppointmentId() != appointment.getAppointmentId())  {
-
-                if (existingAppointment.getCustomerId() == appointment.getCustomerId()  && Globals.checkOverlapCustomers) {
-
-
-                    //  Date starts or ends at exact time of another appointment (D1 and D2 are the same)
-                    if (newDateStart.equals(existingStartDate) || newDateEnd.equals(existingEndDate) || newDateStart.equals(existingEndDate) || newDateEnd.equals(existingStartDate)) {
-                        overlapFound = true;
-                    }
-                    // Date starts before, and ends after existing date (D2 takes place within D1)
-                    else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingEndDate)) {
-                        overlapFound =  true;
-                    }
-                    // Date starts before existing date, but ends after existing start date (D1 end time partially overlaps D2)
-                    else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingStartDate)) {
-                        overlapFound = true;
-                    }
-                    //  Date starts after existing date, and ends before existing date end (D1 takes place within D2)
-                    else if (newDateStart.isAfter(existingStartDate)  && newDateEnd.isBefore(existingEndDate)) {
-                        overlapFound = true;
-                    }
-                    // Date starts after existing date, but ends after existing date end (D1 overlaps latter half of D2)
-                    else if (newDateStart.isAfter(existingStartDate) && newDateStart.isBefore(existingEndDate) && newDateEnd.isAfter(existingEndDate)) {
-                        overlapFound = true;
-                    }
-
-                    if (overlapFound) {
-                        Tools.infoMessage("Invalid Time", "Selected customer (ID: " + existingAppointment.getCustomerId() + ") has an overlapping appointment");
-                        return true;
-                    }
-                }
-
-                if (existingAppointment.getContactId() == appointment.getContactId() && Globals.checkOverlapContacts) {
-
-                    if (newDateStart.isEqual(existingStartDate) || newDateEnd.isEqual(existingEndDate)) {
-                        overlapFound = true;
-                    }
-                    // Date starts before, and ends after existing date (D2 takes place within D1)
-                    else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingEndDate)) {
-                        overlapFound =  true;
-                    }
-                    // Date starts before existing date, but ends after existing start date (D1 end time partially overlaps D2)
-                    else if (newDateStart.isBefore(existingStartDate) && newDateEnd.isAfter(existingStartDate)) {
-                        overlapFound = true;
-                    }
-                    //  Date starts after existing date, and ends before existing date end (D1 takes place within D2)
-                    else if (newDateStart.isAfter(existingStartDate)  && newDateEnd.isBefore(existingEndDate)) {
-                        overlapFound = true;
-                    }
-                    // Date starts after existing date, but ends after existing date end (D1 overlaps latter half of D2)
-                    else if (newDateStart.isAfter(existingStartDate) && newDateStart.isBefore(existingEndDate) && newDateEnd.isAfter(existingEndDate)) {
-                        overlapFound = true;
-                    }
-
-
-                    if (overlapFound) {
-                        Tools.infoMessage("Invalid Time", "Selected contact (ID: " + existingAppointment.getContactId() + ") has an overlapping appointment");
-                        return true;
-                    }
-                }
-            }
-        }
-
-        Tools.consoleMessage(Tools.MsgType.INFO, "No overlaps found when creating appointment " + appointment.getAppointmentId(), "AddAppointmentsScreen.checkDateOverlap()");
-        return false;
-
-    }
-
     /**
      *  One way to enable the "Update Appointment" button is by simply changing the user ID.
      */
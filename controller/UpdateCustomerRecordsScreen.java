@@ -1,7 +1,10 @@
 package controller;
 
-import DAO.CustomerQuery;
+import DAO.AsyncDao;
+import DAO.DataLoader;
 import DAO.FirstLevelDivisionQuery;
+import DAO.ReferenceData;
+import DAO.WriteBehindQueue;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -25,6 +28,7 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -47,20 +51,31 @@ public class UpdateCustomerRecordsScreen implements Initializable {
     public Label formatLabel;
     Customer selectedCustomer = CustomerRecordsScreen.selectedCustomer;
 
+    private final AsyncDao.Scope queries = new AsyncDao.Scope();  // Cancelled when leaving the screen
+
     /**
      *  Populates all fields with data from the customer being modified
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
+        createRecordButton.setDisable(true);  // Enabled once country and division are selected
 
-        setupComboBoxes(selectedCustomer);
+        // Country and division of the customer are selected once countries are loaded.
+        // Division IDs are looked up in reference data when saving, it is read here in the background if not loaded yet
+        queries.onFxThread(CompletableFuture.allOf(DataLoader.countriesReady(),
+                                                   queries.supply("UpdateCustomerRecordsScreen.referenceData", ReferenceData::get)), loaded -> {
 
-        if (countryComboBox.getSelectionModel().getSelectedItem().getCountryName().equals("UK")) {
-            formatDescription.setText("Building Number, Street, Village (Optional), City");
-        }
-        else {
-            formatDescription.setText("Building Number, Street, City");
-        }
+            setupComboBoxes(selectedCustomer);
+
+            if (countryComboBox.getSelectionModel().getSelectedItem().getCountryName().equals("UK")) {
+                formatDescription.setText("Building Number, Street, Village (Optional), City");
+            }
+            else {
+                formatDescription.setText("Building Number, Street, City");
+            }
+
+            createRecordButton.setDisable(!verifyNotNull());
+        });
 
         IdField.setText(Integer.toString(CustomerRecordsScreen.selectedCustomer.getCustomerId()));
         nameField.setText(CustomerRecordsScreen.selectedCustomer.getCustomerName());
@@ -151,6 +166,8 @@ public class UpdateCustomerRecordsScreen implements Initializable {
      */
     public void onBackButton(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/customerRecordsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.CUST_RECORDS_WIDTH, Globals.CUST_RECORDS_HEIGHT); // Length, height
@@ -258,12 +275,12 @@ public class UpdateCustomerRecordsScreen implements Initializable {
         customer.setCountry(country);
         customer.setDivisionName(division);
 
-        //  Update the customer locally
-        int index = Customer.findLocalCustomerIndex(customerId);
-        Customer.allCustomers.set(index, customer);  // Overwrite old appointment with update
-
-        // Update customer in database
-        CustomerQuery.updateCustomer(customer, customerId);
+        // Overwrite old customer locally, changed columns are written to database in the background
+        if (!customer.changesFrom(selectedCustomer).isEmpty()) {
+            int index = Customer.findLocalCustomerIndex(customerId);
+            Customer.allCustomers.set(index, customer);
+            WriteBehindQueue.updateCustomer(selectedCustomer, customer);
+        }
 
         showRecordsScreen(actionEvent);
     }
@@ -339,6 +356,8 @@ public class UpdateCustomerRecordsScreen implements Initializable {
      */
     public void showRecordsScreen(ActionEvent actionEvent) throws IOException {
 
+        queries.cancel();
+
         Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/customerRecordsScreen.fxml")));
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         Scene scene = new Scene(root, Globals.CUST_RECORDS_WIDTH, Globals.CUST_RECORDS_HEIGHT); // Length, height
@@ -0,0 +1,18 @@
+-- Tables this application adds to the scheduling database.
+-- Run once, as a user allowed to create tables, after the database itself has been set up.
+-- The application never creates or changes tables at runtime, its database user only needs to read and write rows.
+
+-- Next free appointment/customer ID, IDs are reserved from it in blocks (see DAO.IdAllocator)
+CREATE TABLE IF NOT EXISTS id_allocation (
+    Table_Name VARCHAR(64) NOT NULL PRIMARY KEY,
+    Next_Id INT NOT NULL
+);
+
+-- Deleted appointments/customers, so other clients can remove them from their local lists (see DAO.TombstoneQuery)
+CREATE TABLE IF NOT EXISTS tombstones (
+    Table_Name VARCHAR(50) NOT NULL,
+    Row_ID INT NOT NULL,
+    Deleted_At DATETIME NOT NULL,
+    PRIMARY KEY (Table_Name, Row_ID),
+    INDEX (Deleted_At)
+);
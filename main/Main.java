@@ -24,6 +24,8 @@ public class Main extends Application {
         primaryStage.getIcons().add(new Image(this.getClass().getResourceAsStream(Globals.APPLICATION_ICON)));
         primaryStage.setResizable(false);
         primaryStage.show();
+        DataLoader.logMilestone("Login screen shown");
+        DataLoader.guiStarted();  // Data loaded in the background can now be published to the static lists
     }
 
     public static void main(String[] args) throws SQLException {
@@ -37,26 +39,39 @@ public class Main extends Application {
         // Open database
         JDBC.openConnection();
 
+        TombstoneQuery.open();  // Deletes leave tombstones, other clients sync them
 
-        // Query database and load important data into memory, static lists housing data are kept in the relevant classes
-        try {
-
-            CustomerQuery.fetchAllCustomers();  // Attempt to populate list with all customers
-            CountriesQuery.createCountryDivisionPairs();  // Attempts to populate list of country objects
-            AppointmentQuery.fetchAllAppointments();  // Attempt to populate list with all appointments
-            Tools.consoleMessage(Tools.MsgType.INFO, "Found " + Customer.allCustomers.size() + " customers in DB", "Main.main()");
-            Tools.consoleMessage(Tools.MsgType.INFO, "Found " + Appointment.allAppointments.size() + " appointments in DB", "Main.main()");
+        // Write saves left over from a previous run before loading, then keep writing saves in the background
+        WriteBehindQueue.start();
+        IdAllocator.reserveAhead();  // First IDs, and IDs for records created while the database cannot be reached
 
-        } catch (SQLException e) {
+        // Fetch changes made by other clients in the background once data is loaded
+        SyncEngine.start();
 
-            e.printStackTrace();
 
-        }
+        // Query database and load important data into memory, static lists housing data are kept in the relevant classes
+        // Loading happens in the background, screens wait for the data they need (see DataLoader)
+        DataLoader.startLoading();
 
         TimeAndDate.calculateCompanyHourRange();  // Determine what hours the company is open, will convert to local time
+        BusinessCalendar.build();  // Open hours of every company day, for checking appointment times
+
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::shutdown, "shutdown"));  // Exit buttons call System.exit()
 
         launch(args);  // Launches GUI visuals
 
+        shutdown();
         JDBC.closeConnection();  // Close database
     }
+
+
+    /**
+     *  Writes remaining saves, then saves a snapshot of the local lists for a faster start next time.
+     *  Runs when the GUI closes and again from the shutdown hook, the second run does nothing.
+     */
+    private static void shutdown() {
+        SyncEngine.stop();
+        WriteBehindQueue.stop();  // Write remaining saves
+        DataLoader.saveSnapshot();
+    }
 }
@@ -1,50 +1,77 @@
 package model;
 
-import DAO.AppointmentQuery;
-import DAO.ContactsQuery;
+import DAO.IdAllocator;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
 
 
 /**
  * A class used to create appointment objects.
+ * Values are kept in an AppointmentStore, an appointment is a row of it. Appointments in allAppointments read the shared store,
+ * other appointments keep their row in a store of their own. Times are epoch milliseconds in UTC, compared as plain numbers
+ * and converted to local time only for display, see TimeAndDate.
  */
 public class Appointment {
 
 
-    LocalDateTime startDate;
-    LocalDateTime endDate;
-    LocalDateTime creationDate;
-    LocalDateTime lastUpdate;
-    int userId;
-    int customerId;
-    int contactId;
-    int appointmentId;
-
-    String createdBy;  // The original creator
-    String title;
-    String description;
-    String location;
-    String contactName;
-    String type;
-    String lastUpdatedBy;
+    // Changed by AppointmentStore when the row moves between stores
+    AppointmentStore store;
+    int row;
 
     public static String[] appointmentTypes = {"Consultation", "Project Status", "Final Debriefing"};
 
+    // Fields stored in the database that can change when an appointment is updated, see changesFrom()
+    public enum Field {TITLE, DESCRIPTION, LOCATION, TYPE, START, END, CUSTOMER_ID, USER_ID, CONTACT_ID}
+
     public static ObservableList<Appointment> allAppointments = FXCollections.observableArrayList();
     public static ObservableList<Appointment> appointmentsByWeek = FXCollections.observableArrayList();
     public static ObservableList<Appointment> appointmentsByDay = FXCollections.observableArrayList();
     public static ObservableList<Appointment> appointmentsByMonth = FXCollections.observableArrayList();
 
+    static {
+        // Rows of appointments in the list are kept in the shared store. Removals are handled first,
+        // an appointment removed and added again by the same change ends up in the shared store.
+        allAppointments.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                for (Appointment removed : change.getRemoved()) {
+                    AppointmentStore.SHARED.detach(removed);
+                }
+            }
+            change.reset();
+            while (change.next()) {
+                for (Appointment added : change.getAddedSubList()) {
+                    AppointmentStore.SHARED.attach(added);
+                }
+            }
+        });
+    }
+
+    private static final IdIndex<Appointment> appointmentIndex = new IdIndex<>(allAppointments, Appointment::getAppointmentId);  // Finds appointments of allAppointments by ID
+    private static final OverlapIndex overlapIndex = new OverlapIndex(allAppointments);  // Appointment times per customer and contact
+    private static final StartTimeIndex startTimeIndex = new StartTimeIndex(allAppointments);  // Appointments sorted by start time
+    private static final AppointmentCube appointmentCube = new AppointmentCube(allAppointments);  // Appointment counts by type, month, contact and user
+
     /**
      *  Constructor used for making new appointment.
      * @param startDate Time appointment starts.
      * @param endDate Time appointment ends.
      * @param contactId Contact's ID.
+     * @param contactName Contact's name, resolved by the caller so no database lookup is needed here.
      * @param customerId Customer attending the meeting.
      * @param appointmentId Appointment's unique ID.
      * @param title Title of appointment
@@ -57,22 +84,40 @@ public class Appointment {
      * @param lastUpdatedBy Last person to modify the appointment.
      * @param userId User associated with appointment, usually the user who created or last updated the appointment.
      */
-    public Appointment(LocalDateTime startDate, LocalDateTime endDate, int customerId, int appointmentId, int contactId, String title, String description, String location, String type, LocalDateTime creationDate, LocalDateTime lastUpdate, String createdBy, String lastUpdatedBy, int userId) throws SQLException {
-        this.startDate = startDate;
-        this.endDate = endDate;
-        this.creationDate = creationDate;
-        this.lastUpdate = lastUpdate;
-        this.customerId = customerId;
-        this.contactId = contactId;
-        this.appointmentId = appointmentId;
-        this.createdBy = createdBy;
-        this.title = title;
-        this.description = description;
-        this.location = location;
-        this.contactName = ContactsQuery.fetchContactName(this.contactId);
-        this.type = type;
-        this.lastUpdatedBy = lastUpdatedBy;
-        this.userId = userId;
+    public Appointment(LocalDateTime startDate, LocalDateTime endDate, int customerId, int appointmentId, int contactId, String contactName, String title, String description, String location, String type, LocalDateTime creationDate, LocalDateTime lastUpdate, String createdBy, String lastUpdatedBy, int userId) {
+        this(TimeAndDate.toEpochMilli(startDate), TimeAndDate.toEpochMilli(endDate), customerId, appointmentId, contactId, contactName, title, description, location, type,
+             TimeAndDate.toEpochMilli(creationDate), TimeAndDate.toEpochMilli(lastUpdate), createdBy, lastUpdatedBy, userId);
+    }
+
+
+    /**
+     *  Constructor used when reading appointments, times are epoch milliseconds in UTC as read from the database.
+     *  Other parameters are the same as the constructor taking local times.
+     */
+    public Appointment(long startMillis, long endMillis, int customerId, int appointmentId, int contactId, String contactName, String title, String description, String location, String type, long creationMillis, long lastUpdateMillis, String createdBy, String lastUpdatedBy, int userId) {
+        this.store = new AppointmentStore(1);
+        this.row = store.append(this, startMillis, endMillis, customerId, appointmentId, contactId, contactName, title, description, location, type, creationMillis, lastUpdateMillis, createdBy, lastUpdatedBy, userId);
+    }
+
+
+    /**
+     *  Appointment reading an existing row, see AppointmentStore.add().
+     */
+    Appointment(AppointmentStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+
+    /**
+     *  Copies this appointment into a store of its own. The copy does not change when this appointment is added to
+     *  or removed from allAppointments, so it can be handed to another thread.
+     * @return Appointment with the same values.
+     */
+    public Appointment copy() {
+        Appointment copy = new Appointment(store, row);
+        new AppointmentStore(1).attach(copy);
+        return copy;
     }
 
 
@@ -80,15 +125,21 @@ public class Appointment {
      * @return Start date.
      */
     public LocalDateTime getStartDate() {
-       return startDate;
+       return TimeAndDate.toLocalDateTime(store.startMillis[row]);
     }
 
 
+    /**
+     * @return Start time in epoch milliseconds (UTC).
+     */
+    public long getStartMillis() {return store.startMillis[row];}
+
+
     /**
      * @return Start date in Timestamp format.
      */
     public Timestamp getStartDateTimestamp() {
-        return Timestamp.valueOf(startDate);
+        return TimeAndDate.toTimestamp(store.startMillis[row]);
     }
 
 
@@ -96,63 +147,75 @@ public class Appointment {
      * @return End date.
      */
     public LocalDateTime getEndDate() {
-        return endDate;
+        return TimeAndDate.toLocalDateTime(store.endMillis[row]);
     }
 
 
+    /**
+     * @return End time in epoch milliseconds (UTC).
+     */
+    public long getEndMillis() {return store.endMillis[row];}
+
+
     /**
      * @return The end date in Timestamp format.
      */
     public Timestamp getEndDateTimestamp() {
-        return Timestamp.valueOf(endDate);
+        return TimeAndDate.toTimestamp(store.endMillis[row]);
     }
 
     /**
      * @return Creation time Timestamp format.
      */
     public Timestamp getCreateDateTimestamp() {
-        return Timestamp.valueOf(creationDate);
+        return TimeAndDate.toTimestamp(store.creationMillis[row]);
     }
 
     /**
      * @return Last update time Timestamp format.
      */
     public Timestamp getLastUpdateTimestamp() {
-        return Timestamp.valueOf(lastUpdate);
+        return TimeAndDate.toTimestamp(store.lastUpdateMillis[row]);
     }
 
 
     /**
      * @return Appointment creator.
      */
-    public String getCreatedBy() {return createdBy;}
+    public String getCreatedBy() {return StringPool.USER_NAMES.value(store.createdByCode[row]);}
 
 
     /**
      * Sets last time appointment was updated.
      */
     public void setLastUpdate(LocalDateTime lastUpdate) {
-        this.lastUpdate = lastUpdate;
+        store.lastUpdateMillis[row] = TimeAndDate.toEpochMilli(lastUpdate);
     }
 
 
     /**
      * @return Last time appointment was updated.
      */
-    public LocalDateTime getLastUpdate() {return lastUpdate; }
+    public LocalDateTime getLastUpdate() {return TimeAndDate.toLocalDateTime(store.lastUpdateMillis[row]);}
+
+
+    /**
+     * @return Last update time in epoch milliseconds (UTC).
+     */
+    public long getLastUpdateMillis() {return store.lastUpdateMillis[row];}
 
 
     /**
      * @return Last person to update appointment.
      */
-    public String getLastUpdatedBy() {return lastUpdatedBy; }
+    public String getLastUpdatedBy() {return StringPool.USER_NAMES.value(store.lastUpdatedByCode[row]);}
 
 
     /**
      * @return User ID.
      */
     public int getUserId() {
-        return userId;
+        return store.userId[row];
     }
 
 
@@ -160,7 +223,7 @@ public class Appointment {
      * Sets user ID.
      */
     public void setUserId(int userId) {
-        this.userId = userId;
+        store.userId[row] = userId;
     }
 
 
@@ -168,42 +231,17 @@ public class Appointment {
      * @return Customer ID.
      */
     public int getCustomerId() {
-        return customerId;
+        return store.customerId[row];
     }
 
 
     /**
      *  Generates unique ID for appointment.
+     *  IDs are reserved from the database in blocks, see IdAllocator.
      *  @return  New appointment ID.
      */
     public static int setAppointmentId() throws SQLException {
-
-        int id;  // ID will never = 0
-        boolean idFound = false;
-
-        id = allAppointments.size();
-
-      if (id == 0) {id = 1;}  // Prevent ID from being 0
-
-        while (!idFound && id < Integer.MAX_VALUE)  // Continue searching for an ID until the size becomes too large
-        {
-            if (AppointmentQuery.checkAppointmentIdExists(id)) // Check if generated ID is available, query returns true if id already exists
-            {
-                id = id + 1;
-            }
-            else
-            {
-                idFound = true;
-            }
-        }
-
-        if(idFound) {
-            return id;
-        }
-        else {
-            Tools.consoleMessage(Tools.MsgType.ERROR, "Id was never generated", "Appointments.setAppointmentId");
-            return -1; // Return a value to show error
-        }
+        return IdAllocator.nextAppointmentId();
     }
 
 
@@ -211,7 +249,7 @@ public class Appointment {
      * @return Appointment ID.
      */
     public int getAppointmentId() {
-        return appointmentId;
+        return store.appointmentId[row];
     }
 
 
@@ -219,7 +257,7 @@ public class Appointment {
      * @return Title
      */
     public String getTitle() {
-        return title;
+        return store.title[row];
     }
 
 
@@ -227,14 +265,14 @@ public class Appointment {
      * @return Description.
      */
     public String getDescription() {
-        return description;
+        return store.description[row];
     }
 
     /**
      * @return Location.
      */
     public String getLocation() {
-        return location;
+        return StringPool.LOCATIONS.value(store.locationCode[row]);
     }
 
 
@@ -242,59 +280,87 @@ public class Appointment {
      * @return Contact name.
      */
     public String getContactName() {
-        return contactName;
+        return store.contactName[row];
     }
 
     /**
      * @return Contact ID.
      */
-    public int getContactId() {return contactId;}
+    public int getContactId() {return store.contactId[row];}
 
 
     /**
      * @return Type.
      */
     public String getType() {
-        return type;
+        return StringPool.APPOINTMENT_TYPES.value(store.typeCode[row]);
     }
 
 
+    /**
+     * @return Code of type in StringPool.APPOINTMENT_TYPES, equal codes mean equal types.
+     */
+    public int getTypeCode() {return store.typeCode[row];}
+
+
     /**
      *  Sets creation date.
      */
     public void setCreationDate(LocalDateTime creationDate) {
-        this.creationDate = creationDate;
+        store.creationMillis[row] = TimeAndDate.toEpochMilli(creationDate);
     }
 
     /**
      * @return Creation date.
      */
     public LocalDateTime getCreationDate() {
-        return creationDate;
+        return TimeAndDate.toLocalDateTime(store.creationMillis[row]);
     }
 
 
+    /**
+     * @return Creation time in epoch milliseconds (UTC).
+     */
+    public long getCreationMillis() {return store.creationMillis[row];}
+
+
 
     /**
-     *  Sets list containing all appointments within the next week.
-     *  This list is used in the GUI to display data to user.
+     *  Compares this appointment with the version it replaces.
+     *  Last update time and last updated by are not compared, they change with every update.
+     * @param original The appointment before it was modified.
+     * @return Fields that are different, empty if nothing changed.
      */
-    public static void setAppointmentsByWeek() {
+    public EnumSet<Field> changesFrom(Appointment original) {
 
-        // Start with clean list
-        if(!(appointmentsByWeek.isEmpty())) {
-            appointmentsByWeek.clear();
-        }
+        EnumSet<Field> changes = EnumSet.noneOf(Field.class);
 
-        for(int i = 0; i < allAppointments.size(); i++) {
+        AppointmentStore other = original.store;
+        int otherRow = original.row;
 
-            // If appointment takes place within next 7 days, add it to the list
-            if (allAppointments.get(i).getStartDate().isBefore(TimeAndDate.nextWeek()) && allAppointments.get(i).getStartDate().isAfter(LocalDateTime.now())) {
-                appointmentsByWeek.add(allAppointments.get(i));
-            }
+        if (!Objects.equals(store.title[row], other.title[otherRow])) {changes.add(Field.TITLE);}
+        if (!Objects.equals(store.description[row], other.description[otherRow])) {changes.add(Field.DESCRIPTION);}
+        if (store.locationCode[row] != other.locationCode[otherRow]) {changes.add(Field.LOCATION);}
+        if (store.typeCode[row] != other.typeCode[otherRow]) {changes.add(Field.TYPE);}
+        if (store.startMillis[row] != other.startMillis[otherRow]) {changes.add(Field.START);}
+        if (store.endMillis[row] != other.endMillis[otherRow]) {changes.add(Field.END);}
+        if (store.customerId[row] != other.customerId[otherRow]) {changes.add(Field.CUSTOMER_ID);}
+        if (store.userId[row] != other.userId[otherRow]) {changes.add(Field.USER_ID);}
+        if (store.contactId[row] != other.contactId[otherRow]) {changes.add(Field.CONTACT_ID);}
 
-        }
+        return changes;
+    }
+
+
+    /**
+     *  Sets list containing all appointments within the next week.
+     *  This list is used in the GUI to display data to user.
+     */
+    public static void setAppointmentsByWeek() {
 
+        // Appointments taking place within next 7 days, the window is calculated once
+        LocalDateTime now = LocalDateTime.now();
+        appointmentsByWeek.setAll(startTimeIndex.between(now, now.plusWeeks(1)));
     }
 
 
@@ -314,20 +380,9 @@ public class Appointment {
      */
     public static  void setAppointmentsByDay() {
 
-        // Start with clean list
-        if(!(appointmentsByDay.isEmpty())) {
-            appointmentsByDay.clear();
-        }
-
-        for(int i = 0; i < allAppointments.size(); i++) {
-
-            // If appointment takes place within next 1 day, add it to the list
-            if (allAppointments.get(i).getStartDate().isBefore(TimeAndDate.nextDay()) && allAppointments.get(i).getStartDate().isAfter(LocalDateTime.now())) {
-                appointmentsByDay.add(allAppointments.get(i));
-            }
-
-        }
-
+        // Appointments taking place within next 1 day, the window is calculated once
+        LocalDateTime now = LocalDateTime.now();
+        appointmentsByDay.setAll(startTimeIndex.between(now, now.plusDays(1)));
     }
 
     /**
@@ -336,20 +391,20 @@ public class Appointment {
      */
     public static  void setAppointmentsByMonth() {
 
-        // Start with clean list
-        if(!(appointmentsByMonth.isEmpty())) {
-            appointmentsByMonth.clear();
-        }
-
-        for(int i = 0; i < allAppointments.size(); i++) {
-
-            // If appointment takes place within next 30 days, add it to the list
-            if (allAppointments.get(i).getStartDate().isBefore(TimeAndDate.nextMonth()) && allAppointments.get(i).getStartDate().isAfter(LocalDateTime.now())) {
-                appointmentsByMonth.add(allAppointments.get(i));
-            }
+        // Appointments taking place within next 30 days, the window is calculated once
+        LocalDateTime now = LocalDateTime.now();
+        appointmentsByMonth.setAll(startTimeIndex.between(now, now.plusMonths(1)));
+    }
 
-        }
 
+    /**
+     *  Creates list containing all appointments starting within a custom time window.
+     * @param from Start of window, appointments starting at this time are included.
+     * @param to End of window, appointments starting at this time are excluded.
+     * @return List containing appointments sorted by start time.
+     */
+    public static ObservableList<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        return FXCollections.observableArrayList(startTimeIndex.between(from, to));
     }
 
 
@@ -369,20 +424,65 @@ public class Appointment {
     }
 
 
+    /**
+     *  Creates the type/month report from local counts, without querying the database.
+     *  For example: "MONTH,   TYPE,   AMOUNT", "\n\nJanuary", "  Consultation", "  3", "\nJanuary", ...
+     * @return List containing report information.
+     */
+    public static ObservableList<String> getAppointmentsByTypeAndMonth() {
+
+        ObservableList<String> report = FXCollections.observableArrayList();
+        report.add("MONTH,   TYPE,   AMOUNT");  // First index value acts as a label
+
+        for (Map.Entry<Integer, SortedMap<String, Integer>> month : appointmentCube.countByMonthAndType().entrySet()) {
+            for (Map.Entry<String, Integer> type : month.getValue().entrySet()) {
+
+                // First data containing row is formatted differently
+                report.add((report.size() == 1 ? "\n\n" : "\n") + TimeAndDate.numberToMonth(month.getKey()));
+                report.add("  " + type.getKey());  // Add appointment type
+                report.add("  " + type.getValue());  // Add amount that type occurs per month
+            }
+        }
+
+        return report;
+    }
+
+
+    /**
+     *  Counts local appointments matching a slice of type, month, contact and user, without querying the database.
+     * @param type Appointment type, null for any type.
+     * @param month Month number (1-12), or AppointmentCube.ANY.
+     * @param contactId Contact ID, or AppointmentCube.ANY.
+     * @param userId User ID, or AppointmentCube.ANY.
+     * @return Amount of matching appointments.
+     */
+    public static int countAppointments(String type, int month, int contactId, int userId) {
+        return appointmentCube.count(type, month, contactId, userId);
+    }
+
+
     /**
      *  Finds index of appointment in local list, based on ID.
      * @param appointmentId Appointment ID to used find local list location.
      */
     public static int findLocalAppointmentIndex(int appointmentId) {
 
-        for (int i = 0; i < allAppointments.size(); i++) {
-            if (allAppointments.get(i).getAppointmentId() == appointmentId) {
-                return i;
-            }
+        int index = appointmentIndex.indexOf(appointmentId);
+
+        if (index == -1) {  // Error case
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to find appointment", "Appointment.findLocalAppointmentIndex");
         }
+        return index;
+    }
 
-        Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to find appointment", "Appointment.findLocalAppointmentIndex");
-        return -1;  // Error case
+
+    /**
+     *  Finds appointment in local list, based on ID.
+     * @param appointmentId ID of appointment to find.
+     * @return Appointment, null if it is not in local list.
+     */
+    public static Appointment findLocalAppointment(int appointmentId) {
+        return appointmentIndex.get(appointmentId);
     }
 
 
@@ -405,17 +505,128 @@ public class Appointment {
     }
 
 
+    /**
+     *  Merges appointments fetched from the database into local list.
+     *  Appointments already in the list are replaced, new ones are added at once.
+     * @param appointments Appointments to merge.
+     */
+    public static void mergeAppointments(Collection<Appointment> appointments) {
+
+        List<Appointment> added = new ArrayList<>();
+
+        for (Appointment appointment : appointments) {
+            int index = appointmentIndex.indexOf(appointment.getAppointmentId());
+            if (index == -1) {
+                added.add(appointment);
+            }
+            else {
+                allAppointments.set(index, appointment);
+            }
+        }
+
+        allAppointments.addAll(added);
+    }
+
+
+    /**
+     *  Checks appointment against all existing appointments for overlaps.
+     *  This method can check for overlaps based on contact or customer, if an overlap
+     *  is detected, a message will be printed to the user and the appointment should not
+     *  be saved to the database.
+     *  When updating, the existing appointment with the same ID is not checked against itself.
+     * @param appointment The new or updated appointment to be checked.
+     * @return True if an overlap exists, false if not.
+     */
+    public static boolean checkDateOverlap(Appointment appointment) {
+
+        if (Globals.checkOverlapCustomers) {
+            Appointment existingAppointment = overlapIndex.findCustomerOverlap(appointment);
+            if (existingAppointment != null) {
+                Tools.infoMessage("Invalid Time", "Selected customer (ID: " + existingAppointment.getCustomerId() + ") has an overlapping appointment");
+                return true;
+            }
+        }
+
+        if (Globals.checkOverlapContacts) {
+            Appointment existingAppointment = overlapIndex.findContactOverlap(appointment);
+            if (existingAppointment != null) {
+                Tools.infoMessage("Invalid Time", "Selected contact (ID: " + existingAppointment.getContactId() + ") has an overlapping appointment");
+                return true;
+            }
+        }
+
+        Tools.consoleMessage(Tools.MsgType.INFO, "No overlaps found when creating appointment " + appointment.getAppointmentId(), "Appointment.checkDateOverlap()");
+        return false;
+    }
+
+
     /**
      *  Deletes appointment from local memory.
      * @param appointmentId ID of appointment to be deleted.
      */
     public static void deleteAppointment(int appointmentId) {
-        for (int i = 0; i < allAppointments.size(); i++) {
-            if (allAppointments.get(i).getAppointmentId() == appointmentId) {
-                allAppointments.remove(i);
-                break;
+        Appointment appointment = appointmentIndex.get(appointmentId);
+        if (appointment != null) {
+            allAppointments.remove(appointment);
+        }
+    }
+
+
+    /**
+     *  Deletes appointments from local memory, in a single list change.
+     * @param appointmentIds IDs of appointments to delete, IDs not in the list are ignored.
+     * @return Appointments deleted.
+     */
+    public static List<Appointment> deleteAppointments(Collection<Integer> appointmentIds) {
+
+        Set<Appointment> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int appointmentId : appointmentIds) {
+            Appointment appointment = appointmentIndex.get(appointmentId);
+            if (appointment != null) {
+                removed.add(appointment);
             }
         }
+
+        if (!removed.isEmpty()) {
+            allAppointments.removeAll(removed);
+        }
+
+        return new ArrayList<>(removed);
+    }
+
+
+    /**
+     *  Deletes all appointments of a customer from local memory.
+     *  The list is changed once, listeners are notified a single time no matter how many appointments are removed.
+     * @param customerId ID of customer whose appointments are deleted.
+     * @return Appointments deleted.
+     */
+    public static List<Appointment> deleteAppointmentsByCustomer(int customerId) {
+
+        // Scans the customer column instead of visiting every appointment
+        AppointmentStore shared = AppointmentStore.SHARED;
+        Set<Appointment> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int row = 0; row < shared.size(); row++) {
+            if (shared.customerId[row] == customerId) {
+                removed.add(shared.view(row));
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            allAppointments.removeAll(removed);
+        }
+
+        return new ArrayList<>(removed);
+    }
+
+
+    /**
+     *  Counts appointments of a customer held in local memory.
+     * @param customerId ID of customer.
+     * @return Amount of appointments.
+     */
+    public static int countAppointmentsByCustomer(int customerId) {
+        return overlapIndex.countCustomerAppointments(customerId);
     }
 
 }
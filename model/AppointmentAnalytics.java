@@ -0,0 +1,289 @@
+package model;
+
+import DAO.ReferenceData;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+
+/**
+ *  Ad-hoc reports over the appointments and customers already loaded, without querying the database.
+ *  Appointments are grouped by any mix of dimensions, each group collects count, durations and percentiles.
+ *
+ *  The columns of the shared AppointmentStore are copied when a report is started, then split into ranges of Globals.analyticsLeafSize rows.
+ *  Counting reads the columns directly, no Appointment is visited unless a filter is given.
+ *  Each range is counted into its own groups on a fork/join pool, and the groups of neighbouring ranges are merged
+ *  on the way back up. Threads never share a group while counting, so the work scales with the amount of cores.
+ */
+public class AppointmentAnalytics {
+
+    /**
+     * Values appointments can be grouped by. IDs are grouped as Integer, names can be found in ReferenceData.
+     */
+    public enum Dimension {
+        TYPE,  // String
+        CONTACT,  // Contact ID
+        USER,  // User ID
+        CUSTOMER,  // Customer ID
+        COUNTRY,  // Country ID of customer, -1 if unknown
+        DIVISION,  // Division ID of customer, -1 if unknown
+        HOUR_OF_DAY,  // 0-23, local start time
+        WEEKDAY,  // DayOfWeek, local start time
+        MONTH  // 1-12, local start time
+    }
+
+
+    /**
+     *  Groups loaded appointments in the background. Must be called on the JavaFX application thread,
+     *  where appointments and customers are changed, later changes are not part of the result.
+     * @param filter Appointments counted, null counts all. Called from several threads at once, so it must not change anything.
+     * @param dimensions Values to group by, none puts all appointments in a single group.
+     * @return Statistics by group, a group is the list of its values in the order of dimensions.
+     */
+    public static CompletableFuture<Map<List<Object>, Stats>> groupBy(Predicate<Appointment> filter, Dimension... dimensions) throws SQLException {
+
+        AppointmentStore appointments = AppointmentStore.SHARED.copy();
+        Map<Integer, Integer> divisionByCustomer = new HashMap<>();
+        for (Customer customer : Customer.allCustomers) {
+            divisionByCustomer.put(customer.getCustomerId(), customer.getDivisionId());
+        }
+
+        Rows rows = new Rows(appointments, divisionByCustomer, ReferenceData.get().getDivisions(), filter, dimensions.clone());
+
+        return CompletableFuture.supplyAsync(() -> {  // Runs on the common fork/join pool, tasks forked from it share its threads
+
+            long start = System.nanoTime();
+            Map<List<Object>, Stats> groups = new GroupTask(rows, 0, appointments.size()).invoke();
+            for (Stats stats : groups.values()) {
+                stats.finish();
+            }
+
+            Tools.consoleMessage(Tools.MsgType.INFO, appointments.size() + " appointments grouped by " + Arrays.toString(dimensions) + " into " +
+                    groups.size() + " groups in " + (System.nanoTime() - start) / 1000000 + "ms", "AppointmentAnalytics.groupBy()");
+            return groups;
+        });
+    }
+
+
+    /**
+     *  Everything the tasks read, copied on the application thread so it does not change while they run.
+     */
+    private static final class Rows {
+
+        private final AppointmentStore appointments;
+        private final Map<Integer, Integer> divisionByCustomer;
+        private final ReferenceData.NameTable divisions;  // Parent of a division is its country
+        private final Predicate<Appointment> filter;
+        private final Dimension[] dimensions;
+
+
+        private Rows(AppointmentStore appointments, Map<Integer, Integer> divisionByCustomer, ReferenceData.NameTable divisions,
+                     Predicate<Appointment> filter, Dimension[] dimensions) {
+            this.appointments = appointments;
+            this.divisionByCustomer = divisionByCustomer;
+            this.divisions = divisions;
+            this.filter = filter;
+            this.dimensions = dimensions;
+        }
+
+
+        private List<Object> groupOf(int row) {
+
+            Object[] values = new Object[dimensions.length];
+
+            for (int i = 0; i < dimensions.length; i++) {
+                values[i] = valueOf(row, dimensions[i]);
+            }
+
+            return Arrays.asList(values);
+        }
+
+
+        private Object valueOf(int row, Dimension dimension) {
+
+            long start = TimeAndDate.toLocalEpochSecond(appointments.startMillis[row]);  // Local time as epoch seconds, days and hours need no LocalDateTime
+
+            switch (dimension) {
+                case TYPE: return StringPool.APPOINTMENT_TYPES.value(appointments.typeCode[row]);
+                case CONTACT: return appointments.contactId[row];
+                case USER: return appointments.userId[row];
+                case CUSTOMER: return appointments.customerId[row];
+                case COUNTRY: return divisions.parentOf(divisionByCustomer.getOrDefault(appointments.customerId[row], -1));
+                case DIVISION: return divisionByCustomer.getOrDefault(appointments.customerId[row], -1);
+                case HOUR_OF_DAY: return (int) (Math.floorMod(start, 86400L) / 3600);
+                case WEEKDAY: return DayOfWeek.THURSDAY.plus(Math.floorDiv(start, 86400L));  // 1970-01-01 was a Thursday
+                case MONTH: return LocalDate.ofEpochDay(Math.floorDiv(start, 86400L)).getMonthValue();
+                default: throw new IllegalArgumentException("Unknown dimension " + dimension);
+            }
+        }
+    }
+
+
+    /**
+     *  Groups a range of appointments, splitting it in half until it is small enough to count directly.
+     */
+    private static final class GroupTask extends RecursiveTask<Map<List<Object>, Stats>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Rows rows;
+        private final int from;
+        private final int to;
+
+
+        private GroupTask(Rows rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected Map<List<Object>, Stats> compute() {
+
+            if (to - from <= Globals.analyticsLeafSize) {
+
+                Map<List<Object>, Stats> groups = new HashMap<>();
+
+                long[] starts = rows.appointments.startMillis;
+                long[] ends = rows.appointments.endMillis;
+
+                for (int row = from; row < to; row++) {
+                    if (rows.filter == null || rows.filter.test(rows.appointments.view(row))) {
+                        long minutes = (ends[row] - starts[row]) / 60000;
+                        groups.computeIfAbsent(rows.groupOf(row), group -> new Stats()).add(minutes);
+                    }
+                }
+
+                return groups;
+            }
+
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(rows, from, middle);
+            left.fork();
+            Map<List<Object>, Stats> groups = new GroupTask(rows, middle, to).compute();
+
+            // Merge the smaller result into the larger one
+            Map<List<Object>, Stats> other = left.join();
+            if (other.size() > groups.size()) {
+                Map<List<Object>, Stats> swap = groups;
+                groups = other;
+                other = swap;
+            }
+            for (Map.Entry<List<Object>, Stats> group : other.entrySet()) {
+                groups.merge(group.getKey(), group.getValue(), Stats::addAll);
+            }
+
+            return groups;
+        }
+    }
+
+
+    /**
+     *  Count and durations of the appointments in a group. Durations are in minutes.
+     *  Not changed anymore once groupBy() has completed.
+     */
+    public static final class Stats {
+
+        private int count;
+        private long totalMinutes;
+        private long minMinutes = Long.MAX_VALUE;
+        private long maxMinutes = Long.MIN_VALUE;
+        private long[] durations = new long[8];  // Sorted by finish(), used for percentiles
+
+
+        private void add(long minutes) {
+
+            if (count == durations.length) {
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            durations[count++] = minutes;
+            totalMinutes += minutes;
+            minMinutes = Math.min(minMinutes, minutes);
+            maxMinutes = Math.max(maxMinutes, minutes);
+        }
+
+
+        private Stats addAll(Stats other) {
+
+            if (count + other.count > durations.length) {
+                durations = Arrays.copyOf(durations, Math.max(count + other.count, durations.length * 2));
+            }
+            System.arraycopy(other.durations, 0, durations, count, other.count);
+            count += other.count;
+            totalMinutes += other.totalMinutes;
+            minMinutes = Math.min(minMinutes, other.minMinutes);
+            maxMinutes = Math.max(maxMinutes, other.maxMinutes);
+            return this;
+        }
+
+
+        private void finish() {
+            durations = Arrays.copyOf(durations, count);
+            Arrays.sort(durations);
+        }
+
+
+        /**
+         * @return Amount of appointments.
+         */
+        public int getCount() {return count;}
+
+
+        /**
+         * @return Sum of appointment durations.
+         */
+        public long getTotalMinutes() {return totalMinutes;}
+
+
+        /**
+         * @return Average appointment duration.
+         */
+        public double getAverageMinutes() {return (double) totalMinutes / count;}
+
+
+        /**
+         * @return Shortest appointment duration.
+         */
+        public long getMinMinutes() {return minMinutes;}
+
+
+        /**
+         * @return Longest appointment duration.
+         */
+        public long getMaxMinutes() {return maxMinutes;}
+
+
+        /**
+         *  Finds the duration a given share of appointments is not longer than, for example 0.5 for the median.
+         * @param percentile Share of appointments, 0 to 1.
+         * @return Duration at percentile, nearest rank.
+         */
+        public long getPercentileMinutes(double percentile) {
+            int rank = (int) Math.ceil(percentile * count);
+            return durations[Math.min(Math.max(rank, 1), count) - 1];
+        }
+
+
+        /**
+         *  Share of available time taken by appointments, for example the open minutes of a contact over a week.
+         * @param availableMinutes Minutes that could have been booked, see Globals.companyOpenDuration for one day.
+         * @return Booked share, above 1 if appointments overlap or fall outside the available time.
+         */
+        public double getUtilization(long availableMinutes) {return (double) totalMinutes / availableMinutes;}
+
+
+        @Override
+        public String toString() {
+            return count + " appointments, " + totalMinutes + " minutes";
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * Counts appointments by type, month, contact and user, so reports are read from memory instead of grouping the appointments table.
+ * A listener on the appointment list adds or subtracts one from a single cell whenever an appointment is added, updated or deleted.
+ * Months are taken from local start times, which are already converted to the user's time zone when appointments are read.
+ */
+public class AppointmentCube {
+
+    public static final int ANY = Integer.MIN_VALUE;  // Matches every month, contact or user in count(), distinct from StringPool.NULL_CODE
+    public static final String NO_TYPE = "(no type)";  // Listed in countByMonthAndType() for appointments without a type
+
+    // Count per combination of type, month, contact and user, combinations without appointments are removed
+    private final Map<Cell, int[]> cells = new HashMap<>();
+
+    // Count per type code and month (1-12), kept alongside cells so the type/month report never scans them
+    private final Map<Integer, int[]> typeByMonth = new HashMap<>();
+
+
+    /**
+     * Creates a cube over a list of appointments, counting all appointments already in it.
+     * @param appointments List to count.
+     */
+    public AppointmentCube(ObservableList<Appointment> appointments) {
+
+        for (Appointment appointment : appointments) {
+            add(appointment, 1);
+        }
+
+        appointments.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    continue;  // Order does not matter here
+                }
+                for (Appointment removed : change.getRemoved()) {
+                    add(removed, -1);
+                }
+                for (Appointment added : change.getAddedSubList()) {
+                    add(added, 1);
+                }
+            }
+        });
+    }
+
+
+    /**
+     *  Counts appointments per month and type.
+     *  Types are sorted ignoring case and types differing only in case are counted together, same as GROUP BY Type in MySQL.
+     *  Appointments without a type are counted as NO_TYPE.
+     *  @return Count by type, by month number (1-12). Months and types without appointments are left out.
+     */
+    public SortedMap<Integer, SortedMap<String, Integer>> countByMonthAndType() {
+
+        SortedMap<Integer, SortedMap<String, Integer>> report = new TreeMap<>();
+
+        for (Map.Entry<Integer, int[]> type : typeByMonth.entrySet()) {
+            String name = type.getKey() == StringPool.NULL_CODE ? NO_TYPE : StringPool.APPOINTMENT_TYPES.value(type.getKey());
+            int[] months = type.getValue();
+            for (int month = 1; month <= 12; month++) {
+                if (months[month] > 0) {
+                    report.computeIfAbsent(month, m -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+                          .merge(name, months[month], Integer::sum);
+                }
+            }
+        }
+
+        return report;
+    }
+
+
+    /**
+     *  Counts appointments matching a slice of the cube, for example all appointments of a contact in March.
+     *  @param type Appointment type, null for any type.
+     *  @param month Month number (1-12), or ANY.
+     *  @param contactId Contact ID, or ANY.
+     *  @param userId User ID, or ANY.
+     *  @return Amount of matching appointments.
+     */
+    public int count(String type, int month, int contactId, int userId) {
+
+        int typeCode = ANY;
+
+        if (type != null) {
+            typeCode = StringPool.APPOINTMENT_TYPES.find(type);
+            if (typeCode == StringPool.NULL_CODE) {
+                return 0;  // No appointment ever had this type
+            }
+        }
+
+        if (typeCode != ANY && month != ANY && contactId != ANY && userId != ANY) {  // A single cell
+            int[] count = cells.get(new Cell(typeCode, month, contactId, userId));
+            return count == null ? 0 : count[0];
+        }
+
+        int total = 0;
+
+        for (Map.Entry<Cell, int[]> cell : cells.entrySet()) {
+            if (cell.getKey().matches(typeCode, month, contactId, userId)) {
+                total += cell.getValue()[0];
+            }
+        }
+
+        return total;
+    }
+
+
+    private void add(Appointment appointment, int amount) {
+
+        int type = appointment.getTypeCode();
+        int month = LocalDate.ofEpochDay(Math.floorDiv(TimeAndDate.toLocalEpochSecond(appointment.getStartMillis()), 86400L)).getMonthValue();
+
+        Cell cell = new Cell(type, month, appointment.getContactId(), appointment.getUserId());
+        int[] count = cells.computeIfAbsent(cell, c -> new int[1]);
+        count[0] += amount;
+        if (count[0] <= 0) {
+            cells.remove(cell);
+        }
+
+        typeByMonth.computeIfAbsent(type, t -> new int[13])[month] += amount;  // Index 0 is unused so months keep their number
+    }
+
+
+    /**
+     * One combination of type, month, contact and user.
+     */
+    private static final class Cell {
+
+        private final int type;  // Code of StringPool.APPOINTMENT_TYPES
+        private final int month;
+        private final int contactId;
+        private final int userId;
+        private final int hash;
+
+
+        private Cell(int type, int month, int contactId, int userId) {
+            this.type = type;
+            this.month = month;
+            this.contactId = contactId;
+            this.userId = userId;
+            this.hash = ((type * 31 + month) * 31 + contactId) * 31 + userId;
+        }
+
+
+        private boolean matches(int type, int month, int contactId, int userId) {
+            return (type == ANY || this.type == type) && (month == ANY || this.month == month) &&
+                   (contactId == ANY || this.contactId == contactId) && (userId == ANY || this.userId == userId);
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (!(other instanceof Cell)) {
+                return false;
+            }
+
+            Cell cell = (Cell) other;
+            return month == cell.month && contactId == cell.contactId && userId == cell.userId && type == cell.type;
+        }
+
+
+        @Override
+        public int hashCode() {return hash;}
+    }
+}
@@ -0,0 +1,257 @@
+package model;
+
+import java.util.Arrays;
+
+
+/**
+ *  Column store behind Appointment. Each appointment is one row spread over parallel arrays, an Appointment object only
+ *  holds its store and row and every getter reads the columns.
+ *
+ *  SHARED holds the rows of Appointment.allAppointments, rows are copied into it when an appointment is added to the list
+ *  and back out into a store of their own when it is removed. Its rows are kept dense, removing a row moves the last row
+ *  into its place, so scans run over 0 to size() without gaps. SHARED is only changed and read on the JavaFX application
+ *  thread, background work reads a copy() or an Appointment.copy() instead.
+ *
+ *  Appointments outside the list live in other stores: a single row for an appointment created in a form,
+ *  or one store for all rows of a query or snapshot so loading does not allocate columns per row.
+ */
+public final class AppointmentStore {
+
+    static final AppointmentStore SHARED = new AppointmentStore(16);
+
+    // Epoch milliseconds in UTC, see TimeAndDate
+    long[] startMillis;
+    long[] endMillis;
+    long[] creationMillis;
+    long[] lastUpdateMillis;
+
+    int[] appointmentId;
+    int[] customerId;
+    int[] contactId;
+    int[] userId;
+
+    // Codes into a StringPool
+    int[] typeCode;
+    int[] locationCode;
+    int[] createdByCode;  // The original creator
+    int[] lastUpdatedByCode;
+
+    String[] title;
+    String[] description;
+    String[] contactName;
+
+    private Appointment[] views;  // Appointment reading each row, null in a copy()
+    private int size = 0;
+
+
+    /**
+     *  Creates an empty store for the rows of a query.
+     */
+    public AppointmentStore() {this(16);}
+
+
+    /**
+     *  Creates an empty store with room for a known amount of rows, it grows if more are added.
+     * @param capacity Rows to make room for.
+     */
+    public AppointmentStore(int capacity) {
+        startMillis = new long[capacity];
+        endMillis = new long[capacity];
+        creationMillis = new long[capacity];
+        lastUpdateMillis = new long[capacity];
+        appointmentId = new int[capacity];
+        customerId = new int[capacity];
+        contactId = new int[capacity];
+        userId = new int[capacity];
+        typeCode = new int[capacity];
+        locationCode = new int[capacity];
+        createdByCode = new int[capacity];
+        lastUpdatedByCode = new int[capacity];
+        title = new String[capacity];
+        description = new String[capacity];
+        contactName = new String[capacity];
+        views = new Appointment[capacity];
+    }
+
+
+    /**
+     * @return Amount of rows.
+     */
+    public int size() {return size;}
+
+
+    /**
+     *  Adds a row, parameters are the same as the Appointment constructor taking epoch milliseconds.
+     * @return Appointment reading the new row.
+     */
+    public Appointment add(long startMillis, long endMillis, int customerId, int appointmentId, int contactId, String contactName, String title, String description, String location, String type, long creationMillis, long lastUpdateMillis, String createdBy, String lastUpdatedBy, int userId) {
+
+        Appointment appointment = new Appointment(this, size);
+        append(appointment, startMillis, endMillis, customerId, appointmentId, contactId, contactName, title, description, location, type, creationMillis, lastUpdateMillis, createdBy, lastUpdatedBy, userId);
+        return appointment;
+    }
+
+
+    /**
+     *  Adds a row read by an appointment.
+     * @return Row added.
+     */
+    int append(Appointment view, long startMillis, long endMillis, int customerId, int appointmentId, int contactId, String contactName, String title, String description, String location, String type, long creationMillis, long lastUpdateMillis, String createdBy, String lastUpdatedBy, int userId) {
+
+        int row = newRow(view);
+
+        this.startMillis[row] = startMillis;
+        this.endMillis[row] = endMillis;
+        this.creationMillis[row] = creationMillis;
+        this.lastUpdateMillis[row] = lastUpdateMillis;
+        this.appointmentId[row] = appointmentId;
+        this.customerId[row] = customerId;
+        this.contactId[row] = contactId;
+        this.userId[row] = userId;
+        this.typeCode[row] = StringPool.APPOINTMENT_TYPES.code(type);
+        this.locationCode[row] = StringPool.LOCATIONS.code(location);
+        this.createdByCode[row] = StringPool.USER_NAMES.code(createdBy);
+        this.lastUpdatedByCode[row] = StringPool.USER_NAMES.code(lastUpdatedBy);
+        this.title[row] = title;
+        this.description[row] = description;
+        this.contactName[row] = contactName;
+
+        return row;
+    }
+
+
+    /**
+     *  Copies the row of an appointment into this store, the appointment then reads it from here.
+     *  Nothing happens if the appointment already reads this store.
+     */
+    void attach(Appointment appointment) {
+
+        if (appointment.store == this) {
+            return;
+        }
+
+        int row = newRow(appointment);
+        copyRow(appointment.store, appointment.row, this, row);
+        appointment.store = this;
+        appointment.row = row;
+    }
+
+
+    /**
+     *  Copies the row of an appointment into a store of its own and removes it here, the last row takes its place.
+     *  Nothing happens if the appointment reads another store.
+     */
+    void detach(Appointment appointment) {
+
+        if (appointment.store != this) {
+            return;
+        }
+
+        int row = appointment.row;
+        AppointmentStore own = new AppointmentStore(1);
+        own.attach(appointment);
+
+        int last = --size;
+        if (row != last) {
+            copyRow(this, last, this, row);
+            views[row] = views[last];
+            views[row].row = row;
+        }
+
+        // Let go of the last row's references
+        views[last] = null;
+        title[last] = null;
+        description[last] = null;
+        contactName[last] = null;
+    }
+
+
+    /**
+     *  Copies all rows into a store no appointment reads, for background work such as AppointmentAnalytics.
+     *  Columns are trimmed to size() so scans run over contiguous arrays.
+     * @return Copy of this store.
+     */
+    AppointmentStore copy() {
+
+        AppointmentStore copy = new AppointmentStore(0);
+
+        copy.startMillis = Arrays.copyOf(startMillis, size);
+        copy.endMillis = Arrays.copyOf(endMillis, size);
+        copy.creationMillis = Arrays.copyOf(creationMillis, size);
+        copy.lastUpdateMillis = Arrays.copyOf(lastUpdateMillis, size);
+        copy.appointmentId = Arrays.copyOf(appointmentId, size);
+        copy.customerId = Arrays.copyOf(customerId, size);
+        copy.contactId = Arrays.copyOf(contactId, size);
+        copy.userId = Arrays.copyOf(userId, size);
+        copy.typeCode = Arrays.copyOf(typeCode, size);
+        copy.locationCode = Arrays.copyOf(locationCode, size);
+        copy.createdByCode = Arrays.copyOf(createdByCode, size);
+        copy.lastUpdatedByCode = Arrays.copyOf(lastUpdatedByCode, size);
+        copy.title = Arrays.copyOf(title, size);
+        copy.description = Arrays.copyOf(description, size);
+        copy.contactName = Arrays.copyOf(contactName, size);
+        copy.views = null;
+        copy.size = size;
+
+        return copy;
+    }
+
+
+    /**
+     * @param row Row of this store.
+     * @return Appointment reading the row. In a copy() a new one is made on every call.
+     */
+    Appointment view(int row) {
+        return views != null ? views[row] : new Appointment(this, row);
+    }
+
+
+    private int newRow(Appointment view) {
+
+        if (size == views.length) {
+            grow(Math.max(16, size * 2));
+        }
+
+        views[size] = view;
+        return size++;
+    }
+
+
+    private void grow(int capacity) {
+        startMillis = Arrays.copyOf(startMillis, capacity);
+        endMillis = Arrays.copyOf(endMillis, capacity);
+        creationMillis = Arrays.copyOf(creationMillis, capacity);
+        lastUpdateMillis = Arrays.copyOf(lastUpdateMillis, capacity);
+        appointmentId = Arrays.copyOf(appointmentId, capacity);
+        customerId = Arrays.copyOf(customerId, capacity);
+        contactId = Arrays.copyOf(contactId, capacity);
+        userId = Arrays.copyOf(userId, capacity);
+        typeCode = Arrays.copyOf(typeCode, capacity);
+        locationCode = Arrays.copyOf(locationCode, capacity);
+        createdByCode = Arrays.copyOf(createdByCode, capacity);
+        lastUpdatedByCode = Arrays.copyOf(lastUpdatedByCode, capacity);
+        title = Arrays.copyOf(title, capacity);
+        description = Arrays.copyOf(description, capacity);
+        contactName = Arrays.copyOf(contactName, capacity);
+        views = Arrays.copyOf(views, capacity);
+    }
+
+
+    private static void copyRow(AppointmentStore from, int fromRow, AppointmentStore to, int toRow) {
+        to.startMillis[toRow] = from.startMillis[fromRow];
+        to.endMillis[toRow] = from.endMillis[fromRow];
+        to.creationMillis[toRow] = from.creationMillis[fromRow];
+        to.lastUpdateMillis[toRow] = from.lastUpdateMillis[fromRow];
+        to.appointmentId[toRow] = from.appointmentId[fromRow];
+        to.customerId[toRow] = from.customerId[fromRow];
+        to.contactId[toRow] = from.contactId[fromRow];
+        to.userId[toRow] = from.userId[fromRow];
+        to.typeCode[toRow] = from.typeCode[fromRow];
+        to.locationCode[toRow] = from.locationCode[fromRow];
+        to.createdByCode[toRow] = from.createdByCode[fromRow];
+        to.lastUpdatedByCode[toRow] = from.lastUpdatedByCode[fromRow];
+        to.title[toRow] = from.title[fromRow];
+        to.description[toRow] = from.description[fromRow];
+        to.contactName[toRow] = from.contactName[fromRow];
+    }
+}
@@ -0,0 +1,213 @@
+package model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ *  Company open hours for every day, from Globals.businessCalendarDaysBack days ago to Globals.businessCalendarYearsAhead years ahead.
+ *  Each company day is stored as its opening and closing instant (epoch milliseconds in UTC) in two arrays indexed by day,
+ *  so the user's time zone never matters and DST changes of either zone are already accounted for on the day they happen.
+ *  Days are calculated in Globals.companyTimezone: open at companyStartHour:companyStartMinute, closed companyOpenDuration minutes later.
+ *  Holidays and closures (Globals.companyClosedDates, closeDay()) are stored as days without open hours.
+ *  Days outside the precomputed range are calculated when asked, the same way.
+ */
+public class BusinessCalendar {
+
+    private static final long DAY_MS = 86400000L;
+    private static final long CLOSED = TimeAndDate.NO_TIME;  // Opening time of a day without open hours
+
+    private static ZoneId companyZone;
+    private static long standardOffsetMillis;  // Company zone's offset without DST, used to find the day of an instant
+    private static long firstDay;  // Epoch day (company time) of index 0
+    private static long[] opens = new long[0];  // Opening instant of each day, CLOSED if closed all day
+    private static long[] closes = new long[0];  // Closing instant of each day
+    private static final Set<LocalDate> closedDays = new HashSet<>();
+
+
+    /**
+     *  Calculates open hours of all days in range, called once at startup.
+     */
+    public static synchronized void build() {
+
+        companyZone = TimeAndDate.getCompanyTimeZone();
+        standardOffsetMillis = companyZone.getRules().getStandardOffset(Instant.now()).getTotalSeconds() * 1000L;
+
+        closedDays.clear();
+        for (String date : Globals.companyClosedDates) {
+            closedDays.add(LocalDate.parse(date));
+        }
+
+        LocalDate today = LocalDate.now(companyZone);
+        LocalDate first = today.minusDays(Globals.businessCalendarDaysBack);
+        int days = (int) (today.plusYears(Globals.businessCalendarYearsAhead).toEpochDay() - first.toEpochDay()) + 1;
+
+        long[] newOpens = new long[days];
+        long[] newCloses = new long[days];
+        for (int i = 0; i < days; i++) {
+            LocalDate day = first.plusDays(i);
+            newOpens[i] = opening(day);
+            newCloses[i] = newOpens[i] == CLOSED ? CLOSED : closing(newOpens[i]);
+        }
+
+        firstDay = first.toEpochDay();
+        opens = newOpens;
+        closes = newCloses;
+
+        Tools.consoleMessage(Tools.MsgType.INFO, "Business calendar ready, " + days + " days from " + first + " in " + companyZone + ", " +
+                closedDays.size() + " closed days", "BusinessCalendar.build()");
+    }
+
+
+    /**
+     *  Closes the company for a whole day, such as a holiday announced while the application runs.
+     *  @param day Day in company time.
+     */
+    public static synchronized void closeDay(LocalDate day) {
+
+        closedDays.add(day);
+
+        int index = (int) (day.toEpochDay() - firstDay);
+        if (index >= 0 && index < opens.length) {
+            opens[index] = CLOSED;
+            closes[index] = CLOSED;
+        }
+    }
+
+
+    /**
+     *  Checks if an appointment lies within the open hours of a single company day.
+     *  @param startMillis Start of appointment, epoch milliseconds in UTC.
+     *  @param endMillis End of appointment, epoch milliseconds in UTC.
+     *  @return True if [start, end) is inside business hours.
+     */
+    public static synchronized boolean isOpen(long startMillis, long endMillis) {
+
+        ensureBuilt();
+
+        if (endMillis < startMillis) {
+            return false;
+        }
+
+        // The company day of the start is its UTC day shifted by the standard offset, DST and days opening
+        // before midnight or closing after it move it by one at most, so three days are checked
+        long guess = Math.floorDiv(startMillis + standardOffsetMillis, DAY_MS);
+
+        for (long day = guess - 1; day <= guess + 1; day++) {
+            long open = openingOf(day);
+            if (open != CLOSED && open <= startMillis && endMillis <= closingOf(day, open)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     *  Checks if an appointment given in local time lies within business hours.
+     *  @param start Local start of appointment.
+     *  @param end Local end of appointment.
+     *  @return True if [start, end) is inside business hours.
+     */
+    public static boolean isOpen(LocalDateTime start, LocalDateTime end) {
+        return isOpen(TimeAndDate.toEpochMilli(start), TimeAndDate.toEpochMilli(end));
+    }
+
+
+    /**
+     *  Checks if the company is open at a given time, such as the start of an appointment.
+     *  @param epochMilli Time to check, epoch milliseconds in UTC.
+     *  @return True if the time is within the open hours of a company day, closing time excluded.
+     */
+    public static synchronized boolean isOpenAt(long epochMilli) {
+
+        ensureBuilt();
+
+        long guess = Math.floorDiv(epochMilli + standardOffsetMillis, DAY_MS);
+
+        for (long day = guess - 1; day <= guess + 1; day++) {
+            long open = openingOf(day);
+            if (open != CLOSED && open <= epochMilli && epochMilli < closingOf(day, open)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     *  Checks if the company is open at a given local time.
+     *  @param time Local time to check.
+     *  @return True if the time is within the open hours of a company day, closing time excluded.
+     */
+    public static boolean isOpenAt(LocalDateTime time) {
+        return isOpenAt(TimeAndDate.toEpochMilli(time));
+    }
+
+
+    /**
+     *  Checks if the company day a local time falls on is a holiday or closure.
+     *  @param time Local time to check, converted to the company's date.
+     *  @return True if the company is closed that whole day.
+     */
+    public static synchronized boolean isClosedOn(LocalDateTime time) {
+
+        ensureBuilt();
+
+        return closedDays.contains(Instant.ofEpochMilli(TimeAndDate.toEpochMilli(time)).atZone(companyZone).toLocalDate());
+    }
+
+
+    private static long openingOf(long epochDay) {
+
+        int index = (int) (epochDay - firstDay);
+
+        if (epochDay - firstDay >= 0 && index < opens.length) {
+            return opens[index];
+        }
+
+        return opening(LocalDate.ofEpochDay(epochDay));  // Outside precomputed range
+    }
+
+
+    private static long closingOf(long epochDay, long open) {
+
+        int index = (int) (epochDay - firstDay);
+
+        if (epochDay - firstDay >= 0 && index < closes.length) {
+            return closes[index];
+        }
+
+        return closing(open);
+    }
+
+
+    private static long opening(LocalDate day) {
+
+        if (closedDays.contains(day)) {
+            return CLOSED;
+        }
+
+        // A start time skipped by DST is moved forward by the length of the gap, like ZonedDateTime does
+        return ZonedDateTime.of(day.atTime(Globals.companyStartHour, Globals.companyStartMinute), companyZone).toInstant().toEpochMilli();
+    }
+
+
+    private static long closing(long open) {
+        return open + Globals.companyOpenDuration * 60000L;  // Elapsed minutes, as ZonedDateTime.plusMinutes() counts them
+    }
+
+
+    private static void ensureBuilt() {
+        if (companyZone == null) {
+            build();  // Not built at startup, such as when used before Main runs
+        }
+    }
+}
@@ -125,4 +125,12 @@ public class CountriesAndDivisions {
         return this.divisionNames;
     }
 
+
+    /**
+     * @return All division IDs, in the same order as division names.
+     */
+    public List<Integer> getAllDivisionIds() {
+        return this.divisionIds;
+    }
+
 }
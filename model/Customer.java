@@ -1,13 +1,20 @@
 package model;
 
-import DAO.CustomerQuery;
-import DAO.FirstLevelDivisionQuery;
+import DAO.IdAllocator;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
@@ -27,20 +34,29 @@ public class Customer {
     String streetName = "";
     String villageName = "";
     String cityName = "";
-    String divisionName = "";
-    String country = "";
     String phoneNumber;
-    String createdBy;
-    String lastUpdatedBy;
 
-    LocalDateTime creationDate;
-    LocalDateTime lastUpdate;
+    // Repeated on many rows, stored as codes into a StringPool
+    int divisionNameCode = StringPool.DIVISIONS.code("");
+    int countryCode = StringPool.COUNTRIES.code("");
+    int createdByCode;
+    int lastUpdatedByCode;
+
+    // Epoch milliseconds in UTC, converted to local time only for display, see TimeAndDate
+    long creationMillis;
+    long lastUpdateMillis;
 
     public static ObservableList<Customer> allCustomers = FXCollections.observableArrayList();
 
+    // Fields stored in the database that can change when a customer is updated, see changesFrom()
+    public enum Field {NAME, ADDRESS, POSTAL_CODE, PHONE, DIVISION_ID}
+
+    private static final IdIndex<Customer> customerIndex = new IdIndex<>(allCustomers, Customer::getCustomerId);  // Finds customers of allCustomers by ID
+
 
     /**
      * Constructor used to create customer objects.
+     * Division and country names are not looked up here, set them with setDivisionName() and setCountry().
      * @param customerId Customer's unique ID.
      * @param divisionId ID of division.
      * @param postalCode Customer's postal code.
@@ -51,7 +67,16 @@ public class Customer {
      * @param createdBy User logged in when customer was created.
      * @param lastUpdatedBy User logged in when customer was last updated.
      */
-    public Customer(int customerId, int divisionId, String postalCode, String customerName, String customerAddress, String phoneNumber, LocalDateTime creationDate, LocalDateTime lastUpdate, String createdBy, String lastUpdatedBy) throws SQLException {
+    public Customer(int customerId, int divisionId, String postalCode, String customerName, String customerAddress, String phoneNumber, LocalDateTime creationDate, LocalDateTime lastUpdate, String createdBy, String lastUpdatedBy) {
+        this(customerId, divisionId, postalCode, customerName, customerAddress, phoneNumber, TimeAndDate.toEpochMilli(creationDate), TimeAndDate.toEpochMilli(lastUpdate), createdBy, lastUpdatedBy);
+    }
+
+
+    /**
+     * Constructor used when reading customers, times are epoch milliseconds in UTC as read from the database.
+     * Other parameters are the same as the constructor taking local times.
+     */
+    public Customer(int customerId, int divisionId, String postalCode, String customerName, String customerAddress, String phoneNumber, long creationMillis, long lastUpdateMillis, String createdBy, String lastUpdatedBy) {
 
         this.customerId = customerId;
         this.divisionId = divisionId;
@@ -59,13 +84,12 @@ public class Customer {
         this.customerName = customerName;
         this.customerAddress = customerAddress;
         this.phoneNumber = phoneNumber;
-        this.divisionName = FirstLevelDivisionQuery.fetchDivisionName(this.divisionId);
 
-        this.createdBy = createdBy;
-        this.lastUpdatedBy = lastUpdatedBy;
+        this.createdByCode = StringPool.USER_NAMES.code(createdBy);
+        this.lastUpdatedByCode = StringPool.USER_NAMES.code(lastUpdatedBy);
 
-        this.creationDate = creationDate;
-        this.lastUpdate = lastUpdate;
+        this.creationMillis = creationMillis;
+        this.lastUpdateMillis = lastUpdateMillis;
     }
 
 
@@ -146,13 +170,13 @@ public class Customer {
     /**
      * Sets country name.
      */
-    public void setCountry(String country) {this.country = country;}
+    public void setCountry(String country) {this.countryCode = StringPool.COUNTRIES.code(country);}
 
 
     /**
      * @return Country.
      */
-    public String getCountry() {return this.country;}
+    public String getCountry() {return StringPool.COUNTRIES.value(countryCode);}
 
 
     /**
@@ -170,53 +194,85 @@ public class Customer {
     /**
      * @return Created by.
      */
-    public String getCreatedBy() {return this.createdBy;}
+    public String getCreatedBy() {return StringPool.USER_NAMES.value(createdByCode);}
 
 
     /**
      * @return Last updated by.
      */
-    public String getLastUpdatedBy() {return this.lastUpdatedBy;}
+    public String getLastUpdatedBy() {return StringPool.USER_NAMES.value(lastUpdatedByCode);}
 
 
     /**
      * @return Creation date.
      */
-    public LocalDateTime getCreationDate() {return this.creationDate;}
+    public LocalDateTime getCreationDate() {return TimeAndDate.toLocalDateTime(this.creationMillis);}
+
+
+    /**
+     * @return Creation time in epoch milliseconds (UTC).
+     */
+    public long getCreationMillis() {return this.creationMillis;}
 
 
     /**
      * @return The Creation date in timestamp format.
      */
     public Timestamp getCreationDateTimestamp() {
-        return Timestamp.valueOf(this.creationDate);
+        return TimeAndDate.toTimestamp(this.creationMillis);
     }
 
 
     /**
      * @return Last update.
      */
-    public LocalDateTime getLastUpdate() {return this.lastUpdate;}
+    public LocalDateTime getLastUpdate() {return TimeAndDate.toLocalDateTime(this.lastUpdateMillis);}
+
+
+    /**
+     * @return Last update time in epoch milliseconds (UTC).
+     */
+    public long getLastUpdateMillis() {return this.lastUpdateMillis;}
 
 
     /**
      * @return Last update time in timestamp format.
      */
     public Timestamp getLastUpdateTimestamp() {
-        return Timestamp.valueOf(this.lastUpdate);
+        return TimeAndDate.toTimestamp(this.lastUpdateMillis);
+    }
+
+
+    /**
+     *  Compares this customer with the version it replaces.
+     *  Last update time and last updated by are not compared, they change with every update.
+     * @param original The customer before it was modified.
+     * @return Fields that are different, empty if nothing changed.
+     */
+    public EnumSet<Field> changesFrom(Customer original) {
+
+        EnumSet<Field> changes = EnumSet.noneOf(Field.class);
+
+        if (!Objects.equals(customerName, original.customerName)) {changes.add(Field.NAME);}
+        if (!Objects.equals(customerAddress, original.customerAddress)) {changes.add(Field.ADDRESS);}
+        if (!Objects.equals(postalCode, original.postalCode)) {changes.add(Field.POSTAL_CODE);}
+        if (!Objects.equals(phoneNumber, original.phoneNumber)) {changes.add(Field.PHONE);}
+        if (divisionId != original.divisionId) {changes.add(Field.DIVISION_ID);}
+
+        return changes;
     }
 
 
     /**
      * Sets division name.
      */
-    public void setDivisionName(String divisionName) {this.divisionName = divisionName;}
+    public void setDivisionName(String divisionName) {this.divisionNameCode = StringPool.DIVISIONS.code(divisionName);}
 
 
     /**
      * @return Division name.
      */
-    public String getDivisionName() {return divisionName;}
+    public String getDivisionName() {return StringPool.DIVISIONS.value(divisionNameCode);}
 
 
     /**
@@ -259,6 +315,29 @@ public class Customer {
     }
 
 
+    /**
+     *  Merges customers fetched from the database into local list.
+     *  Customers already in the list are replaced, new ones are added at once.
+     * @param customers Customers to merge.
+     */
+    public static void mergeCustomers(Collection<Customer> customers) {
+
+        List<Customer> added = new ArrayList<>();
+
+        for (Customer customer : customers) {
+            int index = customerIndex.indexOf(customer.getCustomerId());
+            if (index == -1) {
+                added.add(customer);
+            }
+            else {
+                allCustomers.set(index, customer);
+            }
+        }
+
+        allCustomers.addAll(added);
+    }
+
+
     /**
      *  Applies special formatting to input strings, to create a UK style address.
      *  @param buildingNumber Address building number.
@@ -293,37 +372,11 @@ public class Customer {
 
     /**
      *  Generates unique ID for customer.
+     *  IDs are reserved from the database in blocks, see IdAllocator.
      *  @return  New customer ID.
      */
     public static int generateCustomerId() throws SQLException {
-
-        int id;  // ID will never = 0
-        boolean idFound = false;
-
-        id = allCustomers.size();
-
-        if (id == 0) {id = 1;}  // Prevent ID from being 0
-
-
-        while (!idFound && id < Integer.MAX_VALUE)  // Continue searching for an ID until the size becomes too large
-        {
-            if (CustomerQuery.checkCustomerIdExists(id)) // Check if generated ID is available, query returns true if id already exists
-            {
-                id = id + 1;
-            }
-            else
-            {
-                idFound = true;
-            }
-        }
-
-        if(idFound) {
-            return id;
-        }
-        else {
-            Tools.consoleMessage(Tools.MsgType.ERROR, "Id was never generated", "Customer.generateCustomerId");
-            return -1; // Return a value to show error
-        }
+        return IdAllocator.nextCustomerId();
     }
 
 
@@ -333,12 +386,33 @@ public class Customer {
      * @param customerId ID of customer to be deleted.
      */
     public static void deleteCustomer(int customerId) {
-        for (int i = 0; i < allCustomers.size(); i++) {
-            if (allCustomers.get(i).getCustomerId() == customerId) {
-                allCustomers.remove(i);
-                break;
+        Customer customer = customerIndex.get(customerId);
+        if (customer != null) {
+            allCustomers.remove(customer);
+        }
+    }
+
+
+    /**
+     *  Deletes customers from local memory, in a single list change.
+     * @param customerIds IDs of customers to delete, IDs not in the list are ignored.
+     * @return Customers deleted.
+     */
+    public static List<Customer> deleteCustomers(Collection<Integer> customerIds) {
+
+        Set<Customer> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int customerId : customerIds) {
+            Customer customer = customerIndex.get(customerId);
+            if (customer != null) {
+                removed.add(customer);
             }
         }
+
+        if (!removed.isEmpty()) {
+            allCustomers.removeAll(removed);
+        }
+
+        return new ArrayList<>(removed);
     }
 
 
@@ -348,13 +422,22 @@ public class Customer {
      */
     public static int findLocalCustomerIndex(int customerId) {
 
-        for (int i = 0; i < allCustomers.size(); i++) {
-            if (allCustomers.get(i).getCustomerId() == customerId) {
-                return i;
-            }
+        int index = customerIndex.indexOf(customerId);
+
+        if (index == -1) {  // Error case
+            Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to find customer", "Customer.findLocalCustomerIndex");
         }
-        Tools.consoleMessage(Tools.MsgType.ERROR, "Failed to find appointment", "Appointment.findLocalAppointmentIndex");
-        return -1;  // Error case
+        return index;
+    }
+
+
+    /**
+     *  Finds customer in local list, based on ID.
+     * @param customerId ID of customer to find.
+     * @return Customer, null if it is not in local list.
+     */
+    public static Customer findLocalCustomer(int customerId) {
+        return customerIndex.get(customerId);
     }
 
 
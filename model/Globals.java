@@ -42,6 +42,9 @@ public class Globals {
     // Logging text file
     public static final String LOGGING_FILE_PATH = "LOGIN_ATTEMPTS.txt";
     public static final boolean generateFiles = true;  // When true, files (such as txt) can be generated
+    public static final String JOURNAL_DIRECTORY = "journal";  // Saves not yet written to the database, replayed at startup
+    public static final String SNAPSHOT_PATH = "model.snapshot";  // Local lists saved on exit, only newer rows are loaded at startup
+    public static final String CLIENT_TABLES_SCRIPT = "database/client_tables.sql";  // Creates the tables this application adds to the database, run once when setting it up
 
 
     // Default user
@@ -61,15 +64,46 @@ public class Globals {
 
     public static final int companyOpenDuration = 840;  // Amount of minutes from company open to company close (840m = 14h), use this to extend company hours.
 
+    public static final String[] companyClosedDates = {};  // Holidays and other closures in company time, for example "2026-12-25"
+    public static final int businessCalendarDaysBack = 31;  // Days before today with precomputed open hours, older days are calculated when asked
+    public static final int businessCalendarYearsAhead = 5;  // Years after today with precomputed open hours
+
 
     // Alerts
     public static int alertTimeframe = 15;  // Amount of minutes in advance to scan for upcoming appointments
 
 
+    // Reports
+    public static final int analyticsLeafSize = 8192;  // Appointments aggregated by a single task, larger ranges are split between cores
+
+
     // Database variables
     public static String databaseUsername = "sqlUser";
     public static String databasePassword = "Passw0rd!";
     public static final boolean writeToDatabase = true;  // When false, data generated will not be saved when application closes
+    public static final int idBlockSize = 20;  // Amount of appointment/customer IDs reserved from the database at once
+    public static final int offlineIdBlockSize = 100;  // Appointment/customer IDs kept in reserve for records created while the database cannot be reached
+    public static final int idReserveAheadAt = 5;  // IDs left in a block when the next block is reserved in the background
+    public static final int writeBatchSize = 1000;  // Rows sent and committed together by bulk writes
+    public static final long writeBehindFlushMs = 500;  // How often saves made in the GUI are sent to the database
+    public static final int journalSegmentBytes = 1048576;  // Size of a journal file (1 MB), a new one is started when full
+    public static final long journalSyncMs = 100;  // How often journaled saves are forced to disk
+    public static final int journalSyncEvery = 64;  // Journaled saves that force the journal to disk right away
+    public static final long syncIntervalMs = 5000;  // How often changes made by other users are fetched
+    public static final long referenceRefreshMs = 600000;  // How often countries, divisions, contacts and users are read again (10 minutes)
+    public static final int tombstoneRetentionDays = 30;  // Records of deleted rows are kept this long for other users to fetch
+    public static final long snapshotWatermarkMarginSec = 300;  // Rows updated this long before a snapshot or sync watermark are fetched again, covers clock differences between users
+
+
+    // Connection pool
+    public static final int databasePoolSize = 8;  // Maximum amount of database connections open at the same time
+    public static final long connectionTimeoutMs = 10000;  // How long to wait for a free connection before giving up
+    public static final long idleValidationMs = 30000;  // Connections idle longer than this are checked before being reused
+    public static final long maxConnectionLifetimeMs = 1800000;  // Connections are replaced after 30 minutes
+    public static final long leakDetectionThresholdMs = 60000;  // Warn when a connection is held longer than this, 0 disables
+    public static final int statementCacheSize = 64;  // Prepared statements kept open per connection
+    public static final int startupLoaderThreads = 3;  // Customers, countries and appointments are loaded in parallel at startup
+    public static final int asyncDaoThreads = databasePoolSize;  // Threads running background queries for screens, more would only wait for connections
 
 
     // Debugging variables
@@ -0,0 +1,238 @@
+package model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Maps each ID to its record and its position in an observable list, so records can be found without scanning the list.
+ * IDs, records and positions are stored in plain arrays (open addressing with linear probing), no Integer objects are created.
+ * A listener on the list keeps the index up to date, so the list can be modified as usual.
+ * Replacing a record (list.set()) or adding records at the end only touches their own slots. Positions are only repaired
+ * from the first shifted position onwards, so adding or removing in the middle costs as much as the list's own shifting,
+ * and sorting repairs the sorted range.
+ * @param <T> Type of records held in the list.
+ */
+public class IdIndex<T> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final ObservableList<T> list;
+    private final ToIntFunction<T> idOf;
+
+    private int[] keys;  // Record IDs
+    private Object[] records;  // Record with the ID, null if slot is unused
+    private int[] positions;  // Position of the record in the list
+    private int mask;  // Capacity - 1, capacity is always a power of two
+    private int size = 0;
+
+
+    /**
+     * Creates an index over a list, indexing all records already in it.
+     * @param list List to index.
+     * @param idOf Returns the ID of a record.
+     */
+    public IdIndex(ObservableList<T> list, ToIntFunction<T> idOf) {
+        this.list = list;
+        this.idOf = idOf;
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, list.size()) * 2) * 2));
+        for (int i = 0; i < list.size(); i++) {
+            put(list.get(i), i);
+        }
+        list.addListener(this::onChanged);
+    }
+
+
+    /**
+     * @param id ID of record.
+     * @return Position of record in list, -1 if there is no record with given ID.
+     */
+    public int indexOf(int id) {
+        int slot = findSlot(id);
+        return slot == -1 ? -1 : positions[slot];
+    }
+
+
+    /**
+     * @param id ID of record.
+     * @return Record with given ID, null if it is not in the list.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        int slot = findSlot(id);
+        return slot == -1 ? null : (T) records[slot];
+    }
+
+
+    /**
+     * @param id ID of record.
+     * @return True if a record with given ID is in the list.
+     */
+    public boolean contains(int id) {return findSlot(id) != -1;}
+
+
+    /**
+     * @return Amount of IDs indexed.
+     */
+    public int size() {return size;}
+
+
+    /**
+     *  Applies list changes to the index, one slot per removed or added record.
+     *  Records after a change that added and removed a different amount have moved, their positions are repaired once
+     *  all changes are applied, starting at the first moved position.
+     */
+    private void onChanged(ListChangeListener.Change<? extends T> change) {
+
+        int movedFrom = Integer.MAX_VALUE;  // First position whose record may have moved
+
+        while (change.next()) {
+
+            if (change.wasPermutated()) {
+                repairPositions(change.getFrom(), change.getTo());
+                continue;
+            }
+
+            // Only forget removed IDs still held by the removed record, a newer record may share the ID
+            for (T record : change.getRemoved()) {
+                int slot = findSlot(idOf.applyAsInt(record));
+                if (slot != -1 && records[slot] == record) {
+                    removeSlot(slot);
+                }
+            }
+
+            int position = change.getFrom();
+            for (T record : change.getAddedSubList()) {
+                put(record, position++);
+            }
+
+            if (change.getAddedSize() != change.getRemovedSize()) {
+                movedFrom = Math.min(movedFrom, position);
+            }
+        }
+
+        repairPositions(movedFrom, list.size());
+    }
+
+
+    /**
+     *  Stores the current position of the records in a range of the list.
+     */
+    private void repairPositions(int from, int to) {
+
+        for (int i = from; i < to; i++) {
+            T record = list.get(i);
+            int slot = findSlot(idOf.applyAsInt(record));
+            if (slot != -1 && records[slot] == record) {
+                positions[slot] = i;
+            }
+        }
+    }
+
+
+    /**
+     *  Stores a record at its list position, replacing the record indexed under the same ID.
+     */
+    private void put(T record, int position) {
+
+        if ((size + 1) * 2 > records.length) {  // Keep at most half of the slots in use, probes stay short
+            grow();
+        }
+
+        int id = idOf.applyAsInt(record);
+        int slot = slotOf(id);
+        while (records[slot] != null) {
+            if (keys[slot] == id) {
+                records[slot] = record;
+                positions[slot] = position;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = id;
+        records[slot] = record;
+        positions[slot] = position;
+        size++;
+    }
+
+
+    /**
+     * @return Slot holding given ID, -1 if ID is not indexed.
+     */
+    private int findSlot(int id) {
+        int slot = slotOf(id);
+        while (records[slot] != null) {
+            if (keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     *  Frees a slot, moving later entries of the same probe chain back so lookups never hit a gap.
+     */
+    private void removeSlot(int slot) {
+
+        int free = slot;
+        int next = (slot + 1) & mask;
+
+        while (records[next] != null) {
+            int home = slotOf(keys[next]);
+
+            // Move the entry back if its home slot is not located between the free slot and itself
+            boolean canMove = (free <= next) ? (home <= free || home > next) : (home <= free && home > next);
+            if (canMove) {
+                keys[free] = keys[next];
+                records[free] = records[next];
+                positions[free] = positions[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        records[free] = null;
+        size--;
+    }
+
+
+    /**
+     *  Doubles capacity, keeping all entries.
+     */
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        Object[] oldRecords = records;
+        int[] oldPositions = positions;
+
+        allocate(records.length * 2);
+        size = 0;
+
+        for (int slot = 0; slot < oldRecords.length; slot++) {
+            if (oldRecords[slot] != null) {
+                put((T) oldRecords[slot], oldPositions[slot]);
+            }
+        }
+    }
+
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        records = new Object[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+    }
+
+
+    /**
+     * @return Home slot of ID, IDs are mixed so sequential IDs spread over the table.
+     */
+    private int slotOf(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,251 @@
+package model;
+
+
+/**
+ * A balanced (AVL) tree of time intervals, used to find overlapping appointments without checking every appointment.
+ * Intervals are sorted by start, every node also remembers the latest end found in its subtree.
+ * This allows whole subtrees to be skipped, finding an overlap takes O(log n + k) time, k being the intervals skipped by ID.
+ * @param <T> Type of value stored with each interval.
+ */
+public class IntervalTree<T> {
+
+    private Node<T> root;
+    private int size = 0;
+
+
+    /**
+     *  Adds an interval.
+     *  @param start Interval start.
+     *  @param end Interval end.
+     *  @param id Unique ID of interval, allows intervals with equal starts to be told apart.
+     *  @param value Value returned when interval overlaps a search.
+     */
+    public void insert(long start, long end, int id, T value) {
+        root = insert(root, new Node<>(start, end, id, value));
+        size++;
+    }
+
+
+    /**
+     *  Removes an interval.
+     *  @param start Start of interval, as given when it was inserted.
+     *  @param id ID of interval.
+     *  @return True if interval was found and removed.
+     */
+    public boolean remove(long start, int id) {
+        int sizeBefore = size;
+        root = remove(root, start, id);
+        return size < sizeBefore;
+    }
+
+
+    /**
+     *  Finds an interval overlapping [start, end].
+     *  @param start Start of searched range.
+     *  @param end End of searched range.
+     *  @param touchingOverlaps When true, intervals that only touch the range (one ends when the other starts) count as overlapping.
+     *  @param ignoredId ID of an interval to skip, for example the appointment being updated.
+     *  @return Value of an overlapping interval, null if nothing overlaps.
+     */
+    public T findOverlap(long start, long end, boolean touchingOverlaps, int ignoredId) {
+        return findOverlapIn(root, start, end, touchingOverlaps, ignoredId);
+    }
+
+
+    /**
+     * @return Amount of intervals in tree.
+     */
+    public int size() {return size;}
+
+
+    /**
+     * @return True if tree holds no intervals.
+     */
+    public boolean isEmpty() {return size == 0;}
+
+
+    /**
+     *  Searches a subtree in start order, skipping subtrees where every interval ends too early.
+     */
+    private T findOverlapIn(Node<T> node, long start, long end, boolean touchingOverlaps, int ignoredId) {
+
+        if (node == null || !endsLateEnough(node.maxEnd, start, touchingOverlaps)) {
+            return null;  // Nothing in this subtree ends late enough
+        }
+
+        T found = findOverlapIn(node.left, start, end, touchingOverlaps, ignoredId);
+        if (found != null) {
+            return found;
+        }
+
+        if (!startsEarlyEnough(node.start, end, touchingOverlaps)) {
+            return null;  // This node and everything to its right starts too late
+        }
+
+        if (node.id != ignoredId && overlaps(node.start, node.end, start, end, touchingOverlaps)) {
+            return node.value;
+        }
+
+        return findOverlapIn(node.right, start, end, touchingOverlaps, ignoredId);
+    }
+
+
+    private static boolean overlaps(long start1, long end1, long start2, long end2, boolean touchingOverlaps) {
+        return startsEarlyEnough(start1, end2, touchingOverlaps) && endsLateEnough(end1, start2, touchingOverlaps);
+    }
+
+    private static boolean startsEarlyEnough(long intervalStart, long rangeEnd, boolean touchingOverlaps) {
+        return touchingOverlaps ? intervalStart <= rangeEnd : intervalStart < rangeEnd;
+    }
+
+    private static boolean endsLateEnough(long intervalEnd, long rangeStart, boolean touchingOverlaps) {
+        return touchingOverlaps ? intervalEnd >= rangeStart : intervalEnd > rangeStart;
+    }
+
+
+    private static int compare(long start1, int id1, long start2, int id2) {
+        int result = Long.compare(start1, start2);
+        return result != 0 ? result : Integer.compare(id1, id2);
+    }
+
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+
+        if (node == null) {
+            return added;
+        }
+
+        if (compare(added.start, added.id, node.start, node.id) < 0) {
+            node.left = insert(node.left, added);
+        }
+        else {
+            node.right = insert(node.right, added);
+        }
+
+        return balance(node);
+    }
+
+
+    private Node<T> remove(Node<T> node, long start, int id) {
+
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = compare(start, id, node.start, node.id);
+
+        if (comparison < 0) {
+            node.left = remove(node.left, start, id);
+        }
+        else if (comparison > 0) {
+            node.right = remove(node.right, start, id);
+        }
+        else {
+            size--;
+
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+
+            // Replace node with the smallest node of its right subtree
+            Node<T> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeSmallest(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+
+
+    private Node<T> removeSmallest(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeSmallest(node.left);
+        return balance(node);
+    }
+
+
+    private Node<T> balance(Node<T> node) {
+
+        update(node);
+        int balance = height(node.left) - height(node.right);
+
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+
+        return node;
+    }
+
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+
+    /**
+     *  Recalculates height and latest end of a node from its children.
+     */
+    private static <T> void update(Node<T> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.maxEnd = node.end;
+        if (node.left != null) {node.maxEnd = Math.max(node.maxEnd, node.left.maxEnd);}
+        if (node.right != null) {node.maxEnd = Math.max(node.maxEnd, node.right.maxEnd);}
+    }
+
+
+    private static int height(Node<?> node) {return node == null ? 0 : node.height;}
+
+
+    private static class Node<T> {
+        final long start;
+        final long end;
+        final int id;
+        final T value;
+
+        long maxEnd;  // Latest end in this subtree
+        int height = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long start, long end, int id, T value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package model;
+
+import DAO.ReferenceData;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ *  Items of a combo box listing customers, contacts or users as "(ID) Name", sorted by ID, along with their IDs.
+ *  One model per type is shared by every screen, so opening a form neither queries the database nor rebuilds the list.
+ *  The customer model follows Customer.allCustomers, only the customers added, renamed or deleted are changed.
+ *  Contact and user models are rebuilt from ReferenceData when a refresh changed it.
+ *  Must only be used on the JavaFX application thread.
+ */
+public class NameIdModel {
+
+    private static NameIdModel customers;
+    private static NameIdModel contacts;
+    private static NameIdModel users;
+
+    private final ObservableList<String> labels = FXCollections.observableArrayList();
+    private final List<Integer> ids = new ArrayList<>();  // Same order as labels
+    private long version = -1;  // ReferenceData version the model was built from
+
+
+    private NameIdModel() {}
+
+
+    /**
+     *  Returns the shared customer model, building it the first time. Customers must be loaded, see DataLoader.customersReady().
+     * @return Customer model.
+     */
+    public static NameIdModel customers() {
+
+        if (customers == null) {
+
+            customers = new NameIdModel();
+
+            List<Customer> sorted = new ArrayList<>(Customer.allCustomers);
+            sorted.sort((a, b) -> Integer.compare(a.getCustomerId(), b.getCustomerId()));
+
+            List<String> labels = new ArrayList<>(sorted.size());
+            for (Customer customer : sorted) {
+                customers.ids.add(customer.getCustomerId());
+                labels.add(label(customer.getCustomerId(), customer.getCustomerName()));
+            }
+            customers.labels.setAll(labels);  // One change for the whole list
+
+            Customer.allCustomers.addListener((ListChangeListener<Customer>) change -> {
+                while (change.next()) {
+                    if (change.wasPermutated()) {
+                        continue;  // Model is sorted by ID, list order does not matter
+                    }
+                    for (Customer removed : change.getRemoved()) {
+                        customers.remove(removed.getCustomerId());
+                    }
+                    for (Customer added : change.getAddedSubList()) {
+                        customers.put(added.getCustomerId(), added.getCustomerName());
+                    }
+                }
+            });
+        }
+
+        return customers;
+    }
+
+
+    /**
+     * @return Shared contact model, up to date with ReferenceData.
+     */
+    public static NameIdModel contacts() throws SQLException {
+
+        ReferenceData data = ReferenceData.get();
+
+        if (contacts == null) {
+            contacts = new NameIdModel();
+        }
+        contacts.rebuildIfChanged(data.getVersion(), data.getContacts());
+
+        return contacts;
+    }
+
+
+    /**
+     * @return Shared user model, up to date with ReferenceData.
+     */
+    public static NameIdModel users() throws SQLException {
+
+        ReferenceData data = ReferenceData.get();
+
+        if (users == null) {
+            users = new NameIdModel();
+        }
+        users.rebuildIfChanged(data.getVersion(), data.getUsers());
+
+        return users;
+    }
+
+
+    /**
+     *  Creates the text shown for an item, for example "(1) John Doe".
+     * @param id ID of item.
+     * @param name Name of item.
+     * @return Text shown in combo box.
+     */
+    public static String label(int id, String name) {
+        return "(" + id + ") " + name;
+    }
+
+
+    /**
+     * @return Items for a combo box, changes to the model are shown right away.
+     */
+    public ObservableList<String> getLabels() {return labels;}
+
+
+    /**
+     * @param index Index of item, such as the selected index of a combo box.
+     * @return ID of item.
+     */
+    public int idAt(int index) {return ids.get(index);}
+
+
+    /**
+     * @param id ID of item.
+     * @return Index of item, -1 if there is none with this ID.
+     */
+    public int indexOf(int id) {
+        int index = Collections.binarySearch(ids, id);
+        return index < 0 ? -1 : index;
+    }
+
+
+    private void rebuildIfChanged(long version, ReferenceData.NameTable table) {
+
+        if (this.version == version) {
+            return;
+        }
+
+        List<String> labels = new ArrayList<>(table.size());
+        ids.clear();
+        for (int id : table.ids()) {
+            ids.add(id);
+            labels.add(label(id, table.nameOf(id)));
+        }
+        this.labels.setAll(labels);
+        this.version = version;
+    }
+
+
+    private void put(int id, String name) {
+
+        int index = Collections.binarySearch(ids, id);
+
+        if (index >= 0) {
+            labels.set(index, label(id, name));
+        }
+        else {
+            ids.add(-index - 1, id);
+            labels.add(-index - 1, label(id, name));
+        }
+    }
+
+
+    private void remove(int id) {
+
+        int index = Collections.binarySearch(ids, id);
+
+        if (index >= 0) {
+            ids.remove(index);
+            labels.remove(index);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Keeps an interval tree of appointment times for every customer and every contact.
+ * A listener on the appointment list keeps the trees up to date when appointments are added, updated or deleted.
+ * Customers may not have appointments that touch (one ending when the next starts), contacts may.
+ */
+public class OverlapIndex {
+
+    private final Map<Integer, IntervalTree<Appointment>> byCustomer = new HashMap<>();
+    private final Map<Integer, IntervalTree<Appointment>> byContact = new HashMap<>();
+
+
+    /**
+     * Creates an index over a list of appointments, indexing all appointments already in it.
+     * @param appointments List to index.
+     */
+    public OverlapIndex(ObservableList<Appointment> appointments) {
+
+        for (Appointment appointment : appointments) {
+            add(appointment);
+        }
+
+        appointments.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    continue;  // Order does not matter here
+                }
+                for (Appointment removed : change.getRemoved()) {
+                    remove(removed);
+                }
+                for (Appointment added : change.getAddedSubList()) {
+                    add(added);
+                }
+            }
+        });
+    }
+
+
+    /**
+     *  Finds an appointment of the same customer overlapping given appointment.
+     *  Appointments ending exactly when the other starts count as overlapping.
+     *  @param appointment Appointment to check, an existing appointment with the same ID is ignored.
+     *  @return Overlapping appointment, null if there is none.
+     */
+    public Appointment findCustomerOverlap(Appointment appointment) {
+        return findOverlap(byCustomer, appointment.getCustomerId(), appointment, true);
+    }
+
+
+    /**
+     *  Finds an appointment of the same contact overlapping given appointment.
+     *  Appointments ending exactly when the other starts do not count as overlapping.
+     *  @param appointment Appointment to check, an existing appointment with the same ID is ignored.
+     *  @return Overlapping appointment, null if there is none.
+     */
+    public Appointment findContactOverlap(Appointment appointment) {
+        return findOverlap(byContact, appointment.getContactId(), appointment, false);
+    }
+
+
+    /**
+     * @param customerId ID of customer.
+     * @return Amount of appointments the customer has.
+     */
+    public int countCustomerAppointments(int customerId) {
+        IntervalTree<Appointment> tree = byCustomer.get(customerId);
+        return tree == null ? 0 : tree.size();
+    }
+
+
+    private Appointment findOverlap(Map<Integer, IntervalTree<Appointment>> trees, int key, Appointment appointment, boolean touchingOverlaps) {
+
+        IntervalTree<Appointment> tree = trees.get(key);
+
+        if (tree == null) {
+            return null;  // No appointments for this customer/contact
+        }
+
+        return tree.findOverlap(appointment.getStartMillis(), appointment.getEndMillis(), touchingOverlaps, appointment.getAppointmentId());
+    }
+
+
+    private void add(Appointment appointment) {
+        long start = appointment.getStartMillis();
+        long end = appointment.getEndMillis();
+        byCustomer.computeIfAbsent(appointment.getCustomerId(), id -> new IntervalTree<>()).insert(start, end, appointment.getAppointmentId(), appointment);
+        byContact.computeIfAbsent(appointment.getContactId(), id -> new IntervalTree<>()).insert(start, end, appointment.getAppointmentId(), appointment);
+    }
+
+
+    private void remove(Appointment appointment) {
+        remove(byCustomer, appointment.getCustomerId(), appointment);
+        remove(byContact, appointment.getContactId(), appointment);
+    }
+
+
+    private void remove(Map<Integer, IntervalTree<Appointment>> trees, int key, Appointment appointment) {
+
+        IntervalTree<Appointment> tree = trees.get(key);
+
+        if (tree != null) {
+            tree.remove(appointment.getStartMillis(), appointment.getAppointmentId());
+            if (tree.isEmpty()) {
+                trees.remove(key);
+            }
+        }
+    }
+}
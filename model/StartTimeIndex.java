@@ -0,0 +1,87 @@
+package model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+
+/**
+ * Keeps appointments sorted by start time, so appointments within a time window can be found without checking every appointment.
+ * A listener on the appointment list keeps the index up to date when appointments are added, updated or deleted.
+ */
+public class StartTimeIndex {
+
+    // Appointments grouped by start time in epoch milliseconds, several appointments can start at the same time
+    private final NavigableMap<Long, List<Appointment>> byStart = new TreeMap<>();
+
+
+    /**
+     * Creates an index over a list of appointments, indexing all appointments already in it.
+     * @param appointments List to index.
+     */
+    public StartTimeIndex(ObservableList<Appointment> appointments) {
+
+        for (Appointment appointment : appointments) {
+            add(appointment);
+        }
+
+        appointments.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    continue;  // Order of the list does not matter here
+                }
+                for (Appointment removed : change.getRemoved()) {
+                    remove(removed);
+                }
+                for (Appointment added : change.getAddedSubList()) {
+                    add(added);
+                }
+            }
+        });
+    }
+
+
+    /**
+     *  Finds all appointments starting within a time window.
+     *  @param from Start of window, appointments starting at this time are included.
+     *  @param to End of window, appointments starting at this time are excluded.
+     *  @return Appointments starting within the window, sorted by start time.
+     */
+    public List<Appointment> between(LocalDateTime from, LocalDateTime to) {
+
+        List<Appointment> appointments = new ArrayList<>();
+
+        if (!from.isBefore(to)) {
+            return appointments;  // Empty window
+        }
+
+        for (List<Appointment> sameStart : byStart.subMap(TimeAndDate.toEpochMilli(from), true, TimeAndDate.toEpochMilli(to), false).values()) {
+            appointments.addAll(sameStart);
+        }
+
+        return appointments;
+    }
+
+
+    private void add(Appointment appointment) {
+        byStart.computeIfAbsent(appointment.getStartMillis(), start -> new ArrayList<>(1)).add(appointment);
+    }
+
+
+    private void remove(Appointment appointment) {
+
+        List<Appointment> sameStart = byStart.get(appointment.getStartMillis());
+
+        if (sameStart != null) {
+            sameStart.remove(appointment);
+            if (sameStart.isEmpty()) {
+                byStart.remove(appointment.getStartMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Maps the values of a text field repeated on many rows to small int codes, so each distinct value is stored once.
+ * Rows keep the code instead of their own copy of the text, and two rows hold the same value exactly when their codes are equal.
+ * Codes are handed out in the order values are first seen and never change, values are never removed.
+ * Safe to use from several threads, loaders encode rows in parallel while the application thread reads them.
+ */
+public class StringPool {
+
+    public static final int NULL_CODE = -1;  // Code of null
+
+    private static final List<StringPool> pools = new ArrayList<>();  // All pools, for summary()
+
+    public static final StringPool APPOINTMENT_TYPES = new StringPool("appointment types");
+    public static final StringPool LOCATIONS = new StringPool("locations");
+    public static final StringPool USER_NAMES = new StringPool("created/updated by");  // Appointments and customers
+    public static final StringPool COUNTRIES = new StringPool("countries");
+    public static final StringPool DIVISIONS = new StringPool("divisions");
+
+    private final String field;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];  // Value by code, replaced by a larger copy when full
+    private int size = 0;  // Only changed while holding the lock on this pool
+
+
+    private StringPool(String field) {
+        this.field = field;
+        synchronized (pools) {
+            pools.add(this);
+        }
+    }
+
+
+    /**
+     *  Finds the code of a value, adding the value if it was not seen before.
+     * @param value Value to encode, may be null.
+     * @return Code of value, NULL_CODE for null.
+     */
+    public int code(String value) {
+
+        if (value == null) {
+            return NULL_CODE;
+        }
+
+        Integer code = codes.get(value);  // Values already seen are found without locking
+
+        if (code != null) {
+            return code;
+        }
+
+        synchronized (this) {
+
+            code = codes.get(value);
+            if (code != null) {
+                return code;  // Added by another thread meanwhile
+            }
+
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;  // Published before the code, so a thread finding the code also finds the value
+            codes.put(value, size);
+
+            return size++;
+        }
+    }
+
+
+    /**
+     *  Finds the code of a value without adding it.
+     * @param value Value to look up.
+     * @return Code of value, NULL_CODE if it was never encoded.
+     */
+    public int find(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+
+    /**
+     * @param code Code returned by code().
+     * @return Value of code, null for NULL_CODE.
+     */
+    public String value(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+
+    /**
+     *  Returns the stored copy of a value, so equal values share one String.
+     * @param value Value to store, may be null.
+     * @return Stored value equal to given value.
+     */
+    public String intern(String value) {
+        return value(code(value));
+    }
+
+
+    /**
+     * @return Amount of distinct values.
+     */
+    public int cardinality() {return codes.size();}
+
+
+    /**
+     * @return Distinct values of every pool, for example "appointment types: 3, locations: 12".
+     */
+    public static String summary() {
+
+        StringBuilder summary = new StringBuilder();
+
+        synchronized (pools) {
+            for (StringPool pool : pools) {
+                if (summary.length() > 0) {
+                    summary.append(", ");
+                }
+                summary.append(pool.field).append(": ").append(pool.cardinality());
+            }
+        }
+
+        return summary.toString();
+    }
+}
@@ -2,6 +2,7 @@ package model;
 
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneRules;
 import java.util.*;
 
 
@@ -27,6 +28,14 @@ public class TimeAndDate {
     public static ZonedDateTime localStartTime;
     public static ZonedDateTime localEndTime;
 
+    public static final long NO_TIME = Long.MIN_VALUE;  // Stands for a missing (null) time in epoch fields
+
+    // Zones are looked up once, their rules are cached with them
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final ZoneId localZone = ZoneId.systemDefault();
+    private static final ZoneRules localRules = localZone.getRules();
+    private static final ZoneOffset fixedLocalOffset = localRules.isFixedOffset() ? localRules.getOffset(Instant.EPOCH) : null;  // Null if the zone has DST or other changes
+
 
     /**
      * Gets local timezone.
@@ -193,6 +202,73 @@ public class TimeAndDate {
         return newDate;
     }
 
+    /**
+     *  Converts a local time to the epoch value times are kept as, milliseconds since 1970 in UTC.
+     *  Local times skipped or repeated by DST are resolved the same way as LocalDateTime.atZone().
+     *  @param ldt Local time, may be null.
+     *  @return Epoch milliseconds, NO_TIME for null.
+     */
+    public static long toEpochMilli(LocalDateTime ldt) {
+
+        if (ldt == null) {
+            return NO_TIME;
+        }
+
+        ZoneOffset offset = fixedLocalOffset != null ? fixedLocalOffset : localRules.getOffset(ldt);
+        return ldt.toEpochSecond(offset) * 1000 + ldt.getNano() / 1000000;
+    }
+
+
+    /**
+     *  Converts an epoch value back to local time, for display and other UI use.
+     *  @param epochMilli Epoch milliseconds in UTC, or NO_TIME.
+     *  @return Local time, null for NO_TIME.
+     */
+    public static LocalDateTime toLocalDateTime(long epochMilli) {
+
+        if (epochMilli == NO_TIME) {
+            return null;
+        }
+
+        long epochSecond = Math.floorDiv(epochMilli, 1000L);
+        ZoneOffset offset = fixedLocalOffset != null ? fixedLocalOffset : localRules.getOffset(Instant.ofEpochSecond(epochSecond));
+        return LocalDateTime.ofEpochSecond(epochSecond, (int) Math.floorMod(epochMilli, 1000L) * 1000000, offset);
+    }
+
+
+    /**
+     *  Converts an epoch value to a Timestamp for JDBC, without going through LocalDateTime.
+     *  @param epochMilli Epoch milliseconds in UTC, or NO_TIME.
+     *  @return Timestamp of the same instant, null for NO_TIME.
+     */
+    public static java.sql.Timestamp toTimestamp(long epochMilli) {
+        return epochMilli == NO_TIME ? null : new java.sql.Timestamp(epochMilli);
+    }
+
+
+    /**
+     *  Converts a Timestamp read through JDBC to an epoch value, without going through LocalDateTime.
+     *  @param timestamp Timestamp, may be null.
+     *  @return Epoch milliseconds in UTC, NO_TIME for null.
+     */
+    public static long toEpochMilli(java.sql.Timestamp timestamp) {
+        return timestamp == null ? NO_TIME : timestamp.getTime();
+    }
+
+
+    /**
+     *  Converts an epoch value to local time counted in seconds, as if local time were UTC.
+     *  Days, hours and months of local time then follow with plain arithmetic, no time zone is needed.
+     *  @param epochMilli Epoch milliseconds in UTC.
+     *  @return Seconds of local time since 1970-01-01T00:00 local.
+     */
+    public static long toLocalEpochSecond(long epochMilli) {
+        long epochSecond = Math.floorDiv(epochMilli, 1000L);
+        ZoneOffset offset = fixedLocalOffset != null ? fixedLocalOffset : localRules.getOffset(Instant.ofEpochSecond(epochSecond));
+        return epochSecond + offset.getTotalSeconds();
+    }
+
+
     /**
      *  Converts a time in UTC to local time.
      *  @param ldt UTC time to convert.
@@ -202,7 +278,7 @@ public class TimeAndDate {
 
 
         // Convert to ZoneDateTime at origin ZoneID
-        ZonedDateTime zonedDateTime = ldt.atZone(ZoneId.of("UTC"));  // Tells it current input time is in UTC
+        ZonedDateTime zonedDateTime = ldt.atZone(UTC);  // Tells it current input time is in UTC
 
 
 
@@ -212,7 +288,7 @@ public class TimeAndDate {
         String formattedDateTime = zonedDateTime.format(formatter);
         System.out.println("Zone Prior (UTC): " + formattedDateTime + zonedDateTime.getZone());
 
-        zonedDateTime = zonedDateTime.withZoneSameInstant(ZoneId.systemDefault());  // withZoneSameInstant simply does timezone conversions, in this case we are telling it convert UTC to system default (EST)
+        zonedDateTime = zonedDateTime.withZoneSameInstant(localZone);  // withZoneSameInstant simply does timezone conversions, in this case we are telling it convert UTC to system default (EST)
         LocalDateTime convertedTime = zonedDateTime.toLocalDateTime();
 
 
@@ -282,10 +358,10 @@ public class TimeAndDate {
      */
     public static ZonedDateTime toUTC(LocalDateTime ldt) {
 
-        ZonedDateTime zonedDateTime = ldt.atZone(ZoneId.systemDefault());  // Tells it current input timezone is system timezone
+        ZonedDateTime zonedDateTime = ldt.atZone(localZone);  // Tells it current input timezone is system timezone
 
 
-        zonedDateTime = zonedDateTime.withZoneSameInstant(ZoneId.of("UTC"));  // withZoneSameInstant simply does timezone conversions, in this case we are telling it convert UTC to system default (EST)
+        zonedDateTime = zonedDateTime.withZoneSameInstant(UTC);  // withZoneSameInstant simply does timezone conversions, in this case we are telling it convert UTC to system default (EST)
 
 
         boolean printConversionsToConsole = false;
@@ -390,22 +466,6 @@ public class TimeAndDate {
     }
 
 
-    /**
-     *  Checks if appointment ends after company end.
-     *  @param ldt Appointment time to check.
-     *  @return True if appointment ends after company end.
-     */
-    public static boolean appointmentEndAfterCompanyEnd(LocalDateTime ldt) {
-
-       if(ldt.isBefore(localEndTime.toLocalDateTime())) {
-           return false;
-       }
-       else {
-           return true;
-       }
-    }
-
-
     /**
      *  Calculates what hours company is open, converting to local time
      *  For example: if the company is open from 08:30-22:30 EST, and the user is in MST, (2 hrs behind),
@@ -417,10 +477,10 @@ public class TimeAndDate {
 
         ZonedDateTime companyCloseHour = companyOpenHour.plusMinutes(Globals.companyOpenDuration);
 
-        ZonedDateTime localOpenTime = companyOpenHour.withZoneSameInstant(ZoneId.systemDefault());
+        ZonedDateTime localOpenTime = companyOpenHour.withZoneSameInstant(localZone);
         setLocalStartTime(localOpenTime);
 
-        ZonedDateTime localCloseTime = companyCloseHour.withZoneSameInstant(ZoneId.systemDefault());
+        ZonedDateTime localCloseTime = companyCloseHour.withZoneSameInstant(localZone);
         setLocalEndTime(localCloseTime);
 
         // Determine open hour range in local time